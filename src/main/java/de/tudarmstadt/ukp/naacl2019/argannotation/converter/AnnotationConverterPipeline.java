@@ -30,7 +30,6 @@ import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
-import org.apache.uima.fit.util.CasIOUtil;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -43,6 +42,8 @@ import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Premise;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.TokenIndex;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 public class AnnotationConverterPipeline extends JCasAnnotator_ImplBase{
 
@@ -60,13 +61,16 @@ public class AnnotationConverterPipeline extends JCasAnnotator_ImplBase{
 
 	@Override
 	public void process(JCas aJCas) throws AnalysisEngineProcessException {
-		String fileName = JCasUtil.selectSingle(aJCas, DocumentMetaData.class).getDocumentId()+".xmi";
+		String documentId = JCasUtil.selectSingle(aJCas, DocumentMetaData.class).getDocumentId();
+		// the annotations are written by the intermediate steps, in their storage format
+		StorageFormat format = StorageFormat.getIntermediateFormat();
 		int bodyBegin = JCasUtil.selectSingle(aJCas, ReviewBody.class).getBegin()+1;
 		TypeSystemDescription typeSystem = TypeSystemDescriptionFactory.createTypeSystemDescriptionFromPath(annotationPath+"/TypeSystem.xml");
 		try {
 			JCas oldJCas = JCasFactory.createJCas(typeSystem);
-			File xmiFile = new File(annotationPath+"/"+fileName);
-			CasIOUtil.readJCas(oldJCas, xmiFile);
+			File xmiFile = format.getFile(new File(annotationPath), documentId);
+			format.readJCas(oldJCas, xmiFile);
+			TokenIndex tokenIndex = new TokenIndex(aJCas);
 
 			//MajorClaim code
 			for(MajorClaim component: JCasUtil.select(oldJCas, MajorClaim.class)){
@@ -77,14 +81,7 @@ public class AnnotationConverterPipeline extends JCasAnnotator_ImplBase{
 				int begin = getTokenPosition(tokens.split(",")[0]);
 				int end = getTokenPosition(tokens.split(",")[tokens.split(",").length-1]);
 
-				for(Token token: JCasUtil.select(aJCas,Token.class)){
-					if(token.getBegin() == begin){
-						begin = token.getBegin();
-					}
-					if(token.getBegin() == end){
-						end = token.getEnd();
-					}
-				}
+				end = getSpanEnd(tokenIndex, end);
 				MajorClaim newAnnotation = new MajorClaim(aJCas, begin, end);
                 ArgumentUnitUtils.setProperty(newAnnotation, "Covered_Token", tokens);
 
@@ -100,14 +97,7 @@ public class AnnotationConverterPipeline extends JCasAnnotator_ImplBase{
 				int begin = getTokenPosition(tokens.split(",")[0]);
 				int end = getTokenPosition(tokens.split(",")[tokens.split(",").length-1]);
 
-				for(Token token: JCasUtil.select(aJCas,Token.class)){
-					if(token.getBegin() == begin){
-						begin = token.getBegin();
-					}
-					if(token.getBegin() == end){
-						end = token.getEnd();
-					}
-				}
+				end = getSpanEnd(tokenIndex, end);
 				Claim newAnnotation = new Claim(aJCas, begin, end);
                 ArgumentUnitUtils.setProperty(newAnnotation, "Covered_Token", tokens);
                 newAnnotation.setStance(component.getStance());
@@ -124,14 +114,7 @@ public class AnnotationConverterPipeline extends JCasAnnotator_ImplBase{
 				int begin = getTokenPosition(tokens.split(",")[0]);
 				int end = getTokenPosition(tokens.split(",")[tokens.split(",").length-1]);
 
-				for(Token token: JCasUtil.select(aJCas,Token.class)){
-					if(token.getBegin() == begin){
-						begin = token.getBegin();
-					}
-					if(token.getBegin() == end){
-						end = token.getEnd();
-					}
-				}
+				end = getSpanEnd(tokenIndex, end);
 				Premise newAnnotation = new Premise(aJCas, begin, end);
                 ArgumentUnitUtils.setProperty(newAnnotation, "Covered_Token", tokens);
 
@@ -183,6 +166,27 @@ public class AnnotationConverterPipeline extends JCasAnnotator_ImplBase{
         }
 	}
 
+	/**
+	 * Gets the end of a span whose last token begins at the given position. Tokens following
+	 * without whitespace are included, as the former scan over all tokens did.
+	 *
+	 * @param tokenIndex
+	 * @param end
+	 * @return
+	 */
+	private int getSpanEnd(TokenIndex tokenIndex, int end){
+		for(int i = tokenIndex.getFirstOrdinal(end); i < tokenIndex.size(); i++){
+			Token token = tokenIndex.getToken(i);
+			if(token.getBegin() == end){
+				end = token.getEnd();
+			}
+			else if(token.getBegin() > end){
+				break;
+			}
+		}
+		return end;
+	}
+
 	/**
 	 * Gets the position of a token
 	 *
@@ -18,25 +18,24 @@
 
 package de.tudarmstadt.ukp.naacl2019.argannotation.converter;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Reader;
 import java.io.Writer;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.csv.QuoteMode;
 import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.fit.factory.JCasFactory;
-import org.apache.uima.fit.util.CasIOUtil;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.AnswerSpan;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.HITId;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.MTurkResultStore;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 import de.tudarmstadt.ukp.naacl2019.argannotation.types.ReviewBody;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
@@ -60,25 +59,25 @@ public class ResultConverter
     void readData()
         throws IOException
     {
-        String[] header = getHeader();
-        Reader in = new FileReader(resultFile);
-
-        Iterable<CSVRecord> records = CSVFormat.TDF.withQuote('"').withHeader().parse(in);
+        MTurkResultStore results = MTurkResultStore.open(resultFile);
+        String[] header = results.getColumnNames().toArray(new String[0]);
 
         Writer out = new FileWriter(outputFile);
         CSVPrinter printer = CSVFormat.TDF.withQuote('"').withQuoteMode(QuoteMode.ALL)
                 .withHeader(header).print(out);
 
-        for (CSVRecord record : records) {
-            if (record.getRecordNumber() != 1) {
+        for (MTurkResultStore.Row record : results) {
+            long recordNumber = record.getIndex() + 1;
+            if (recordNumber != 1) {
                 printer.println();
             }
-            if ((record.getRecordNumber() % 100) == 0) {
-                System.err.println("Processed " + record.getRecordNumber() + " records");
+            if ((recordNumber % 100) == 0) {
+                System.err.println("Processed " + recordNumber + " records");
             }
-            String reviewID = record.get("annotation").replace(".html", "").replaceAll("(.*)-", "");
+            String reviewID = HITId.parse(record.get("annotation")).getReviewID();
 
-            String reviewPath = inputXMI.getPath() + "/" + reviewID + ".xmi";
+            String reviewPath = StorageFormat.getIntermediateFormat().getFile(inputXMI, reviewID)
+                    .getPath();
 
             int bodyBegin = getBodyBegin(reviewPath);
 
@@ -94,116 +93,51 @@ public class ResultConverter
                 result = "";
             }
 
-            int size = record.size();
-            for (int i = 0; i < size; i++) {
-                // System.out.println(record.get(i));
-                if (record.get(i).equals(rawAnswer)) {
+            for (String value : record.toMap().values()) {
+                if (value.equals(rawAnswer)) {
                     printer.print(result);
                 }
                 else {
-                    printer.print(record.get(i));
+                    printer.print(value);
                 }
             }
         }
-        in.close();
+        printer.close();
     }
 
-	private String[] getHeader() throws IOException {
-		Reader in = new FileReader(resultFile);
-
-		BufferedReader br = new BufferedReader(in);
-
-		String[] header = br.readLine().split("\t");
-		for(int i=0; i < header.length; i++){
-			header[i] = header[i].replaceAll("\"", "");
-		}
-
-		br.close();
-		return header;
-	}
-
-	private String parseRawAnswer(String rawAnswer, int bodyBegin) {
-		StringBuilder result = new StringBuilder();
-
-
-		//
-		if(!rawAnswer.contains("[")){
-			result.append(convertTokenPositions(rawAnswer, bodyBegin));
-		}
-		else{
-			String [] entries =  rawAnswer.split("\\[");
-			for(int i=1; i < entries.length; i++){
-				//If Element contains no { it is nonsense (discard it)
-				if(!entries[i].contains("{")) {
-                    continue;
-                }
-
-				//Fetch the type of the entry and the entry
-				String type = entries[i].substring(0, entries[i].indexOf("{"));
-				String tokens = entries[i].substring(entries[i].indexOf("{")+1, entries[i].indexOf("}"));
-
-				//Remove trailing comma if there is one
-				if(tokens.endsWith(",")) {
-                    tokens = tokens.substring(0, tokens.length()-1);
-                }
-
-				//find position and write new entry
-				String newTokens = convertTokenPositions(tokens, bodyBegin);
-				String newEntry = "[" + type + "{" + newTokens + "}"+"]";
-
-				//Add leading comma to all entries but the first
-				if(result.length() != 0 ){
-					result.append(",");
-				}
-				result.append(newEntry);
-			}
-		}
-		return result.toString();
-	}
-
 	/**
-	 * Converts all tokenPositions into the new formats without title- and reviewTokens
+	 * Converts all token positions of an answer into the new format without title- and reviewTokens
 	 *
-	 * @param tokensString The String containing only(!) the tokens separated by commas
+	 * @param rawAnswer The Answer.tokens value
 	 * @param bodyBegin The begin of the body part of the review
 	 * @return
 	 */
-	private String convertTokenPositions(String tokensString, int bodyBegin) {
-		String [] tokens =  tokensString.split(",");
-		for(int i=0; i < tokens.length; i++){
-			tokens[i] = convertTokenPosition(tokens[i], bodyBegin);
-		}
-		String result = String.join(",", tokens);
-		return result;
-	}
-
-	/**
-	 * Converts one token into the new token type. Also calculates the position in the new document.
-	 *
-	 * @param token
-	 * @param bodyBegin
-	 * @return
-	 */
-	private String convertTokenPosition(String token, int bodyBegin) {
-		if(token.contains("_")){
-			String convertedToken;
-
-			Integer pos = Integer.parseInt(token.split("_")[1]);
-			if(token.startsWith("titleToken") || token.startsWith("token")){
-				convertedToken = "token_"+pos;
+	private String parseRawAnswer(String rawAnswer, int bodyBegin) {
+		StringBuilder result = new StringBuilder();
+		for (AnswerSpan span : AnswerSpan.parse(rawAnswer)) {
+			int[] offsets = new int[span.size()];
+			AnswerSpan.TokenType[] tokenTypes = new AnswerSpan.TokenType[span.size()];
+			for (int i = 0; i < span.size(); i++) {
+				//Review tokens count from the begin of the body
+				offsets[i] = span.getOffset(i);
+				if (span.getTokenType(i) == AnswerSpan.TokenType.REVIEW_TOKEN) {
+					offsets[i] += bodyBegin;
+				}
+				tokenTypes[i] = AnswerSpan.TokenType.TOKEN;
 			}
-			else{
-				convertedToken = "token_"+(pos + bodyBegin);
+
+			//Add leading comma to all entries but the first
+			if (result.length() != 0) {
+				result.append(",");
 			}
-			return convertedToken;
+			result.append(new AnswerSpan(span.getStance(), span.getClaimID(), offsets, tokenTypes));
 		}
-        else {
-            return token;
-        }
+		return result.toString();
 	}
 
 	/**
-	 * Get the begin of the body based on the path to the xmi file containing the new reviews (title in text)
+	 * Get the begin of the body based on the path to the file containing the new reviews (title in text),
+	 * stored in the format of the intermediate steps
 	 *
 	 * @param reviewPath
 	 * @return
@@ -218,7 +152,7 @@ public class ResultConverter
             		xmiFile = new File(inputXMI.getPath() + "/" + path);
             	}
             }
-            CasIOUtil.readJCas(aJCas, xmiFile);
+            StorageFormat.getIntermediateFormat().readJCas(aJCas, xmiFile);
             ReviewBody title = JCasUtil.selectSingle(aJCas,ReviewBody.class);
             return title.getBegin()+1;
         } catch (IOException | UIMAException e) {
@@ -26,14 +26,13 @@ import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
 import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Converts xmi files into the new format
@@ -73,8 +72,7 @@ public class XMIConverter {
 
 	private void convertXMIs() throws UIMAException, IOException {
 
-		CollectionReader reader = CollectionReaderFactory.createReader(XmiReader.class,
-				XmiReader.PARAM_SOURCE_LOCATION, unannotatedXMI, XmiReader.PARAM_PATTERNS, "*.xmi");
+		CollectionReader reader = StorageFormat.getIntermediateFormat().createReader(unannotatedXMI);
 
 		AnalysisEngineDescription annotationConverter = AnalysisEngineFactory
                 .createEngineDescription(AnnotationConverterPipeline.class,
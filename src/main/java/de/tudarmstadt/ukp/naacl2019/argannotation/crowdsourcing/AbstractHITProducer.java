@@ -23,17 +23,25 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.collection.CollectionReader;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
-import org.apache.uima.fit.factory.JCasFactory;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
@@ -43,8 +51,7 @@ import com.github.mustachejava.MustacheFactory;
 
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Claim;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Parent class for creating HITs for crowd-sourcing
@@ -55,6 +62,9 @@ public abstract class AbstractHITProducer
     protected static final String TEMPLATE_DIRECTORY = "templates";
     protected static final String MTURK_SANDBOX_URL = "https://workersandbox.mturk.com/mturk/externalSubmit";
     protected static final String MTURK_ACTUAL_URL = "https://www.mturk.com/mturk/externalSubmit";
+    public static final String PACK_BATCH_NAME = "packs.csv";
+    // maximum number of HITs in a packed HIT
+    protected static final int PACK_MAX_HITS = 10;
 
     /**
      * Use sandbox or real MTurk?
@@ -63,6 +73,21 @@ public abstract class AbstractHITProducer
     protected String language;
     protected Mustache mustache;
 
+    private String template;
+    // the template as compiled, after the assets are published
+    private String compiledTemplate;
+    // all HITs of a run, if they are bundled instead of written to separate files
+    private HITBundleWriter bundle;
+    // versioned css/js files referenced by the HITs, if published
+    private HITAssets assets;
+    private final AtomicInteger renderedHITs = new AtomicInteger();
+    private final AtomicLong renderedBytes = new AtomicLong();
+    // maximum number of tokens of a packed HIT, 0 if the HITs are not packed
+    private int packTokenBudget;
+    private HITPacker packer;
+    // the HITs of the document being rendered by the current thread, if run incrementally
+    private final ThreadLocal<List<HITId>> documentHITs = new ThreadLocal<List<HITId>>();
+
     /**
      * Initializes the template system
      *
@@ -74,150 +99,482 @@ public abstract class AbstractHITProducer
         this.language = lang;
         this.useSandbox = useSandbox;
 
-        InputStream stream = this.getClass().getClassLoader()
-                .getResourceAsStream(getMustacheTemplateFileName());
+        template = readTemplate(getMustacheTemplateFileName());
+        compile(template);
+    }
+
+    private String readTemplate(String fileName)
+            throws IOException
+    {
+        InputStream stream = this.getClass().getClassLoader().getResourceAsStream(fileName);
         if (stream == null) {
-            throw new FileNotFoundException("Resource not found: " + getMustacheTemplateFileName());
+            throw new FileNotFoundException("Resource not found: " + fileName);
         }
 
-        // compile template
-        MustacheFactory mf = new DefaultMustacheFactory();
         Reader reader = new InputStreamReader(stream, "utf-8");
-        mustache = mf.compile(reader, "template");
+        try {
+            return IOUtils.toString(reader);
+        }
+        finally {
+            reader.close();
+        }
     }
 
-    public void process(File inputDir, File outputDir)
-            throws IOException, UIMAException
+    /**
+     * Publishes the css/js files referenced by the template as versioned files in the
+     * {@value HITAssets#FOLDER} subfolder of the output folder and lets the HITs reference them
+     * there. After processing, the bytes per HIT with and without the cached assets are printed.
+     *
+     * @param webappDir folder with the css, js and fonts folders, usually src/main/webapp
+     * @param outputDir output directory
+     * @throws IOException I/O exception
+     */
+    public void publishAssets(File webappDir, File outputDir)
+            throws IOException
     {
-        List<File> xmiFiles = new ArrayList<>(
-                FileUtils.listFiles(inputDir, new String[] { "xmi" }, true));
-
-        // read files one-by-one
-        for (File file : xmiFiles) {
-        	//Windows support for relative paths in xmis
-            if(System.getProperty("os.name").contains("Windows")){
-            	String path = FileUtils.readFileToString(file);
-            	if(path.startsWith("..")){
-            		file = new File(inputDir.getPath() + "/" + path);
-            	}
-            }
-            JCas jcas = JCasFactory.createJCas();
-            CollectionReader reader = CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, file);
+        assets = new HITAssets(webappDir, outputDir);
+        compile(assets.rewrite(template));
+    }
 
-            // "fill" the jCas container
-            reader.getNext(jcas.getCas());
+    /**
+     * Packs several short HITs into packed HITs up to the given number of tokens (see
+     * {@link HITPacker}). The HITs are still written as single files, as the packed HITs
+     * (pack-step-N.html) show them in frames; the batch CSV {@value #PACK_BATCH_NAME} lists the
+     * packed HITs. The answers of the packed HITs are unpacked by {@link PackedHITResults}.
+     *
+     * @param tokenBudget maximum number of tokens of a packed HIT, 0 to write single HITs only
+     */
+    public void setPacking(int tokenBudget)
+    {
+        this.packTokenBudget = tokenBudget;
+    }
 
-            createHITHTMLFromJCas(jcas, outputDir);
-        }
+    private void compile(String templateText)
+    {
+        MustacheFactory mf = new DefaultMustacheFactory();
+        mustache = mf.compile(new StringReader(templateText), "template");
+        compiledTemplate = templateText;
     }
 
     /**
-     * Takes a single jCas and creates HIT (or multiple HITs) in HTML format in the output folder
+     * Reads all files of the input folder with a single collection reader into a pooled JCas,
+     * which is reset and reused for the next document.
      *
-     * @param jcas      jCas with annotations from the previous step
+     * @param inputDir  folder with the files of the previous step
      * @param outputDir output directory
      * @throws IOException I/O exception
+     * @throws UIMAException UIMA exception
      */
-    protected abstract void createHITHTMLFromJCas(JCas jcas, File outputDir)
-            throws IOException;
+    public void process(File inputDir, File outputDir)
+            throws IOException, UIMAException
+    {
+        process(inputDir, outputDir, 1);
+    }
 
     /**
-     * Returns the name of Mustache template located under src/main/resources
+     * Reads all files of the input folder with a single collection reader and renders the HITs
+     * of the documents in parallel. Each document is read into its own pooled JCas, which is
+     * handed to a worker and reused after the HITs are written. The names of the HIT files only
+     * depend on the documents, so the output is the same as with a single thread.
      *
-     * @return name
+     * @param inputDir  folder with the files of the previous step
+     * @param outputDir output directory
+     * @param threads   number of rendering threads
+     * @throws IOException I/O exception
+     * @throws UIMAException UIMA exception
      */
-    public abstract String getMustacheTemplateFileName();
-
-    protected List<String> createRawList(Annotation annotation){
-    	return createRawList(annotation, null, null, null);
+    public void process(File inputDir, File outputDir, int threads)
+            throws IOException, UIMAException
+    {
+        process(inputDir, outputDir, threads, false);
     }
 
-    protected List<String> createRawList(Annotation annotation, MajorClaim majorClaim){
-    	return createRawList(annotation, majorClaim, null, null);
+    /**
+     * Like {@link #process(File, File, int)}, but optionally writes all HITs into one
+     * {@link HITBundleWriter#BUNDLE_NAME} with a batch CSV ({@link HITBundleWriter#BATCH_NAME})
+     * instead of one HTML file per HIT.
+     *
+     * @param inputDir  folder with the files of the previous step
+     * @param outputDir output directory
+     * @param threads   number of rendering threads
+     * @param bundled   write a single bundle
+     * @throws IOException I/O exception
+     * @throws UIMAException UIMA exception
+     */
+    public void process(File inputDir, File outputDir, int threads, boolean bundled)
+            throws IOException, UIMAException
+    {
+        process(inputDir, outputDir, threads, bundled, false);
     }
 
-    protected List<String> createRawList(Annotation annotation, MajorClaim majorClaim, Claim primaryClaim, List<Claim> claims) {
-    	List<String> rawList = new ArrayList<String>();
-        int previousTokenEndOffset = 0;
-        boolean inMajorClaim = false;
-        boolean inPrimaryClaim = false;
-        boolean[] inClaim = null;
-        List<Token> majorClaimTokens = new ArrayList<Token>();
-        List<Token> primaryClaimTokens = new ArrayList<Token>();
-        List<List<Token>> claimTokens = new ArrayList<List<Token>>();
-        //Claim and MajorClaim handling
-        if(majorClaim != null){
-        	majorClaimTokens = JCasUtil.selectCovered(Token.class, majorClaim);
-        }
-        if(primaryClaim != null){
-        	primaryClaimTokens = JCasUtil.selectCovered(Token.class, primaryClaim);
-        }
-        if(claims != null){
-        	claimTokens = new ArrayList<>();
-        	for(Claim claim: claims){
-            	claimTokens.add(JCasUtil.selectCovered(Token.class, claim));
-            }
-        	inClaim = new boolean[claimTokens.size()];
+    /**
+     * Like {@link #process(File, File, int, boolean)}, but optionally skips the input files whose
+     * HITs are up to date according to the {@link HITManifest} of the output folder, e.g. to
+     * resume an interrupted run. The input files are read from the input folder and its
+     * subfolders (e.g. the ASIN subfolders of the preprocessing).
+     *
+     * @param inputDir    folder with the files of the previous step
+     * @param outputDir   output directory
+     * @param threads     number of rendering threads
+     * @param bundled     write a single bundle
+     * @param incremental skip the input files whose HITs are up to date
+     * @throws IOException I/O exception
+     * @throws UIMAException UIMA exception
+     */
+    public void process(File inputDir, File outputDir, int threads, boolean bundled,
+            boolean incremental)
+            throws IOException, UIMAException
+    {
+        if (bundled && incremental) {
+            throw new IllegalArgumentException(
+                    "A bundle is always written completely, it cannot be updated incrementally");
         }
-
-		for(Token token: JCasUtil.selectCovered(Token.class, annotation)){
-			if (token.getBegin() > previousTokenEndOffset) {
-				rawList.add("<span> </span>");
+        if (packTokenBudget > 0 && (bundled || incremental)) {
+            throw new IllegalArgumentException(
+                    "Packed HITs are always written completely, as single HIT files");
+        }
+        HITManifest manifest = null;
+        if (incremental) {
+            outputDir.mkdirs();
+            // the MTurk URL is not part of the template
+            manifest = new HITManifest(outputDir, compiledTemplate + "\n" + useSandbox);
+        }
+        if (packTokenBudget > 0) {
+            packer = new HITPacker(packTokenBudget, PACK_MAX_HITS);
+            try {
+                processDocuments(inputDir, outputDir, threads, null);
+                writePacks(packer.pack(), outputDir);
             }
-            previousTokenEndOffset = token.getEnd();
-            String tokenText = token.getCoveredText();
-            String tokenClass = Pattern.matches("\\p{Punct}", tokenText) ? "punct" : "token";
-
-            // First close any (major) claim spans that are open
-            if (inMajorClaim == true && !majorClaimTokens.contains(token)) {
-                rawList.add("</span>");
-                inMajorClaim = false;
+            finally {
+                packer = null;
             }
+            return;
+        }
+        if (!bundled) {
+            processDocuments(inputDir, outputDir, threads, manifest);
+            return;
+        }
+        bundle = new HITBundleWriter(outputDir);
+        try {
+            processDocuments(inputDir, outputDir, threads, null);
+        }
+        finally {
+            bundle.close();
+        }
+        System.out.println("Wrote " + bundle.getCount() + " HITs to "
+                + new File(outputDir, HITBundleWriter.BUNDLE_NAME));
+        bundle = null;
+    }
 
-            if (inPrimaryClaim == true && !primaryClaimTokens.contains(token)) {
-                rawList.add("</span>");
-                inPrimaryClaim = false;
-            }
+    private void processDocuments(File inputDir, File outputDir, int threads,
+            HITManifest manifest)
+            throws IOException, UIMAException
+    {
+        long start = System.currentTimeMillis();
+        renderedHITs.set(0);
+        renderedBytes.set(0);
+        // one CAS per worker and one more per worker being filled by the reader
+        JCasPool casPool = new JCasPool(threads > 1 ? 2 * threads : 1);
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        List<Future<?>> renderings = new ArrayList<Future<?>>();
+        int documents = 0;
+        int skipped = 0;
 
-            for(int i=0; i < claimTokens.size(); i++){
-                if (inClaim[i] == true && !claimTokens.get(i).contains(token)) {
-                    rawList.add("</span>");
-                    inClaim[i] = false;
+        try {
+            List<File> pointerTargets = resolvePointers(inputDir);
+            if (manifest != null) {
+                // one reader per changed file, so the manifest knows the input file of each HIT
+                List<File> files = pointerTargets != null ? pointerTargets
+                        : listInputFiles(inputDir);
+                for (File file : files) {
+                    String inputHash = HITManifest.hash(file);
+                    if (manifest.isUnchanged(file, inputHash)) {
+                        skipped++;
+                        continue;
+                    }
+                    documents += process(StorageFormat.getIntermediateFormat().createReader(file),
+                            casPool, outputDir, executor, renderings, manifest, file, inputHash);
                 }
             }
-
-            // Now open any new (major) claim spans
-            if (inMajorClaim == false && majorClaimTokens.contains(token)) {
-            	rawList.add("<span class=\"major noselect\">");
-                inMajorClaim = true;
+            else if (pointerTargets == null) {
+                documents += process(StorageFormat.getIntermediateFormat().createReader(inputDir),
+                        casPool, outputDir, executor, renderings, null, null, null);
+            }
+            else {
+                for (File file : pointerTargets) {
+                    documents += process(StorageFormat.getIntermediateFormat().createReader(file),
+                            casPool, outputDir, executor, renderings, null, null, null);
+                }
             }
+            for (Future<?> rendering : renderings) {
+                rendering.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
 
-            if (inPrimaryClaim == false && primaryClaimTokens.contains(token)) {
-            	rawList.add("<span class=\""+primaryClaim.getStance()+" noselect\">");
-            	inPrimaryClaim = true;
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println("Processed " + documents + " documents in " + time + " ms ("
+                + Math.round(documents * 1000.0 / time) + " docs/sec)");
+        if (manifest != null) {
+            System.out.println("Skipped " + skipped + " unchanged documents");
+        }
+        if (assets != null) {
+            assets.printReport(renderedHITs.get(), renderedBytes.get());
+        }
+    }
+
+    private int process(CollectionReader reader, final JCasPool casPool, final File outputDir,
+            ExecutorService executor, List<Future<?>> renderings, final HITManifest manifest,
+            final File input, final String inputHash)
+            throws IOException, UIMAException, InterruptedException
+    {
+        int documents = 0;
+        while (reader.hasNext()) {
+            final JCas jcas = casPool.take();
+            try {
+                // "fill" the jCas container
+                reader.getNext(jcas.getCas());
+            }
+            catch (IOException | UIMAException | RuntimeException e) {
+                casPool.release(jcas);
+                throw e;
+            }
+            documents++;
+            if (executor == null) {
+                try {
+                    render(jcas, outputDir, manifest, input, inputHash);
+                }
+                finally {
+                    casPool.release(jcas);
+                }
+                continue;
             }
+            renderings.add(executor.submit(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                    throws IOException
+                {
+                    try {
+                        render(jcas, outputDir, manifest, input, inputHash);
+                    }
+                    finally {
+                        casPool.release(jcas);
+                    }
+                    return null;
+                }
+            }));
+        }
+        reader.close();
+        reader.destroy();
+        return documents;
+    }
 
-            for(int i=0; i < claimTokens.size(); i++){
-                if (inClaim[i] == false && claimTokens.get(i).contains(token)) {
-                    rawList.add("<span class=\"major noselect\">");
-                    inClaim[i] = true;
+    /**
+     * Writes the packed HITs and the batch CSV listing them, with the columns annotation (the
+     * ID of the packed HIT) and hits (the IDs of its HITs, separated by spaces).
+     */
+    private void writePacks(List<List<HITId>> packs, File outputDir)
+            throws IOException
+    {
+        String packTemplate = readTemplate(
+                TEMPLATE_DIRECTORY + "/mturk-template-packed-" + language + ".html");
+        if (assets != null) {
+            packTemplate = assets.rewrite(packTemplate);
+        }
+        Mustache packMustache = new DefaultMustacheFactory()
+                .compile(new StringReader(packTemplate), "packed");
+
+        PrintWriter batch = new PrintWriter(new File(outputDir, PACK_BATCH_NAME), "utf-8");
+        try {
+            batch.println("annotation,hits");
+            for (int p = 0; p < packs.size(); p++) {
+                List<HITId> pack = packs.get(p);
+                PackedHITContainer hitContainer = new PackedHITContainer();
+                hitContainer.mturkURL = useSandbox ? MTURK_SANDBOX_URL : MTURK_ACTUAL_URL;
+                hitContainer.language = language;
+                hitContainer.packID = "pack-" + pack.get(0).getStep() + "-" + p;
+                hitContainer.reviewCount = pack.size();
+                hitContainer.items = new ArrayList<PackedHITContainer.Item>();
+                StringBuilder hits = new StringBuilder();
+                for (int i = 0; i < pack.size(); i++) {
+                    PackedHITContainer.Item item = new PackedHITContainer.Item();
+                    item.prefix = PackedHITResults.getPrefix(i);
+                    item.annotation = pack.get(i).toString();
+                    item.file = pack.get(i).getFileName();
+                    item.number = i + 1;
+                    hitContainer.items.add(item);
+                    hits.append(i > 0 ? " " : "").append(item.annotation);
                 }
+
+                PrintWriter pw = new PrintWriter(
+                        new File(outputDir, hitContainer.packID + ".html"), "utf-8");
+                packMustache.execute(pw, hitContainer);
+                IOUtils.closeQuietly(pw);
+                batch.println("\"" + hitContainer.packID + "\",\"" + hits + "\"");
             }
+        }
+        finally {
+            batch.close();
+        }
+        System.out.println("Packed " + renderedHITs.get() + " HITs into " + packs.size()
+                + " packed HITs, listed in " + new File(outputDir, PACK_BATCH_NAME));
+    }
+
+    /**
+     * Renders the HITs of a document and records them in the manifest, if there is one.
+     */
+    private void render(JCas jcas, File outputDir, HITManifest manifest, File input,
+            String inputHash)
+            throws IOException
+    {
+        if (manifest == null) {
+            createHITHTMLFromJCas(jcas, outputDir);
+            return;
+        }
+        List<HITId> hits = new ArrayList<HITId>();
+        documentHITs.set(hits);
+        try {
+            createHITHTMLFromJCas(jcas, outputDir);
+        }
+        finally {
+            documentHITs.remove();
+        }
+        manifest.record(input, inputHash, hits);
+    }
 
-            rawList.add("<span class=" + tokenClass + " id=" + token.getId() + ">"
-                    + tokenText + "</span>");
-		}
+    /**
+     * @return the files of the intermediate format in the input folder and its subfolders, as
+     *         read by the reader of the whole folder
+     */
+    private List<File> listInputFiles(File inputDir)
+    {
+        List<File> files = new ArrayList<File>(
+                StorageFormat.getIntermediateFormat().listFiles(inputDir));
+        Collections.sort(files);
+        return files;
+    }
 
-		if (inMajorClaim) {
-			rawList.add("</span>");
+    /**
+     * Windows support for relative paths in xmis: the all/ folder contains files holding the
+     * relative path of the actual file instead of symlinks.
+     *
+     * @return the referenced files, or null if the input folder does not contain such files
+     */
+    private List<File> resolvePointers(File inputDir)
+            throws IOException
+    {
+        if (!System.getProperty("os.name").contains("Windows")) {
+            return null;
         }
-		for(int i=0; i < claimTokens.size(); i++){
-        	if (inClaim[i]) {
-        		rawList.add("</span>");
+        List<File> files = new ArrayList<>(
+                StorageFormat.getIntermediateFormat().listFiles(inputDir));
+        boolean pointers = false;
+        for (int i = 0; i < files.size(); i++) {
+            String path = FileUtils.readFileToString(files.get(i));
+            if (path.startsWith("..")) {
+                files.set(i, new File(inputDir.getPath() + "/" + path));
+                pointers = true;
             }
         }
+        return pointers ? files : null;
+    }
+
+    /**
+     * Renders a HIT, either to its own file in the output folder or into the bundle of the run.
+     *
+     * @param id           ID of the HIT
+     * @param hitContainer the values of the template
+     * @param tokens       number of tokens the worker has to read, for packing the HITs
+     * @param outputDir    output directory
+     * @throws IOException I/O exception
+     */
+    protected void writeHIT(HITId id, Object hitContainer, int tokens, File outputDir)
+            throws IOException
+    {
+        if (bundle != null) {
+            StringWriter html = new StringWriter();
+            this.mustache.execute(html, hitContainer);
+            String page = html.toString();
+            bundle.add(id, page);
+            countHIT(page.getBytes("utf-8").length);
+            return;
+        }
+        File outputHITFile = new File(outputDir, id.getFileName());
+        System.out.println("Rendering " + outputHITFile);
+        PrintWriter pw = new PrintWriter(outputHITFile);
+        this.mustache.execute(pw, hitContainer);
+        IOUtils.closeQuietly(pw);
+        countHIT(outputHITFile.length());
+        List<HITId> hits = documentHITs.get();
+        if (hits != null) {
+            hits.add(id);
+        }
+        if (packer != null) {
+            packer.add(id, tokens);
+        }
+    }
+
+    private void countHIT(long bytes)
+    {
+        renderedHITs.incrementAndGet();
+        renderedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Takes a single jCas and creates HIT (or multiple HITs) in HTML format in the output folder.
+     * May be called by several threads at once, each with its own jCas.
+     *
+     * @param jcas      jCas with annotations from the previous step
+     * @param outputDir output directory
+     * @throws IOException I/O exception
+     */
+    protected abstract void createHITHTMLFromJCas(JCas jcas, File outputDir)
+            throws IOException;
 
-		return rawList;
-	}
+    /**
+     * Returns the name of Mustache template located under src/main/resources
+     *
+     * @return name
+     */
+    public abstract String getMustacheTemplateFileName();
+
+    protected List<String> createRawList(Annotation annotation){
+    	return createRawList(annotation, null, null, null);
+    }
+
+    protected List<String> createRawList(Annotation annotation, MajorClaim majorClaim){
+    	return createRawList(annotation, majorClaim, null, null);
+    }
+
+    /**
+     * Wraps the tokens of the annotation in classed &lt;span&gt; tags and the tokens of the
+     * (major) claims in additional &lt;span&gt; tags. To create the lists for several primary
+     * claims of the same document, use a {@link TokenLayout} directly.
+     */
+    protected List<String> createRawList(Annotation annotation, MajorClaim majorClaim, Claim primaryClaim, List<Claim> claims) {
+        List<Claim> allClaims = new ArrayList<Claim>();
+        if (claims != null) {
+            allClaims.addAll(claims);
+        }
+        if (primaryClaim != null) {
+            allClaims.add(primaryClaim);
+        }
+        return new TokenLayout(annotation, majorClaim, allClaims)
+                .createRawList(primaryClaim != null ? allClaims.size() - 1 : -1);
+    }
 }
@@ -47,9 +47,7 @@ import javax.xml.xpath.XPathExpressionException;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.uima.UIMAException;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.fit.factory.JCasFactory;
-import org.apache.uima.fit.util.CasIOUtil;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
@@ -67,6 +65,7 @@ import de.tudarmstadt.ukp.dkpro.argumentation.types.ArgumentRelation;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Claim;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Reads in a set of XMIs and an AMT results file and outputs the annotations in
@@ -365,9 +364,9 @@ public class AnnotationsToHTML
     }
 
     private JCas loadJCas(Assignment assignment) throws IOException, UIMAException{
-    	String reviewPath = inputXMI.getPath() + "/"
-                + assignment.reviewID + ".xmi";
-        File xmiFile = new File(reviewPath);
+    	// the input is written by the intermediate steps, in their storage format
+    	StorageFormat format = StorageFormat.getIntermediateFormat();
+        File xmiFile = format.getFile(inputXMI, assignment.reviewID);
         if (xmiFile.exists()) {
 
             JCas aJCas = JCasFactory.createJCas();
@@ -377,7 +376,7 @@ public class AnnotationsToHTML
             		xmiFile = new File(inputXMI.getPath() + "/" + path);
             	}
             }
-            CasIOUtil.readJCas(aJCas, xmiFile);
+            format.readJCas(aJCas, xmiFile);
             return aJCas;
         }
 		return null;
@@ -429,7 +428,7 @@ public class AnnotationsToHTML
         throws IOException
     {
         Set<Assignment> assignments = new TreeSet<Assignment>();
-        Reader in = new BufferedReader(new FileReader(resultFile));
+        MTurkResultStore results = MTurkResultStore.open(resultFile);
         String type = "UNKNOWN";
         String stance = "";
         if(annotationType.equals("m")){
@@ -441,8 +440,7 @@ public class AnnotationsToHTML
         else if(annotationType.equals("p")){
         	type = "Premise";
         }
-        Iterable<CSVRecord> records = CSVFormat.TDF.withQuote('"').withHeader().parse(in);
-        for (CSVRecord record : records) {
+        for (MTurkResultStore.Row record : results) {
             if (record.get("workerid").isEmpty()) {
                 continue;
             }
@@ -454,31 +452,14 @@ public class AnnotationsToHTML
                     && !record.get("assignmentstatus").equals("Submitted")) {
                 continue;
             }
-            Collection<String> answers = new ArrayList<String>();
-            String rawAnswer = record.get("Answer.tokens");
-            if(rawAnswer.contains("[")){
-            	while(rawAnswer.contains("[")){
-            		if(rawAnswer.indexOf("}")!=-1){
-	            		String tmpAnswer = rawAnswer.substring(rawAnswer.indexOf("["),rawAnswer.indexOf("}")+1);
-	            		rawAnswer = rawAnswer.replace(tmpAnswer, "");
-	            		answers.add(tmpAnswer);
-            		}
-            		else{
-            			break;
-            		}
-            	}
-            }
-            else{
-            	answers.add(rawAnswer);
-            }
+            List<AnswerSpan> answers = AnswerSpan.parse(record.get("Answer.tokens"));
 
             Assignment assignment = new Assignment();
 
             assignment.hitID = record.get("hitid");
             assignment.workerID = record.get("workerid");
             assignment.assignmentStatus = record.get("assignmentstatus");
-            assignment.reviewID = record.get("annotation").replace(".html", "")
-                    .replaceAll("(.*)-", "");
+            assignment.reviewID = HITId.parse(record.get("annotation")).getReviewID();
             String intext = record.get("Answer.intext");
             if ("false".equals(intext) || "nonsense".equals(intext)) {
                 assignment.intext = false;
@@ -491,75 +472,42 @@ public class AnnotationsToHTML
                 throw new IllegalArgumentException("Unknown intext value: " + intext);
             }
             if (assignment.intext) {
-            	for(String answer: answers){
-	            	if(answer.contains("token")){
-		                if(answer.contains("butid")){
-		                	answer = answer.substring(answer.indexOf("{")+1,answer.indexOf("}"));
-		                	stance = "Attack";
-		                }
-		                else if(answer.contains("becauseid")){
-		                	answer = answer.substring(answer.indexOf("{")+1,answer.indexOf("}"));
-		                	stance = "Support";
-		                }
-		                answer = answer.replaceAll("undefined", "").replaceAll(",,", ",").replaceAll("^,", "");
-
-		                int begin;
-		                int end;
-		                if(answer.contains(",")){
-		                	String[] tokens = answer.split(",");
-		                	begin = Integer.parseInt(tokens[0].split("_")[1]);
-		                	end = Integer.parseInt(tokens[tokens.length-1].split("_")[1]);
-		                }
-		                else{
-		                	begin = Integer.parseInt(answer.split("_")[1]);
-		                	end = begin;
-		                }
-		                AnnotationSpan span = new AnnotationSpan(type, stance, false, begin, end, true);
-		                if(annotationType.equals("p")){
-			                int target = getTarget(record.get("annotation"));
-		                	span.pairing = target;
-		                }
-		                assignment.spans.add(span);
-	            	}
+            	for(AnswerSpan answer: answers){
+	                if(answer.getStance() == AnswerSpan.Stance.ATTACK){
+	                	stance = "Attack";
+	                }
+	                else if(answer.getStance() == AnswerSpan.Stance.SUPPORT){
+	                	stance = "Support";
+	                }
+
+	                int begin = answer.getOffset(0);
+	                int end = answer.getOffset(answer.size()-1);
+	                AnnotationSpan span = new AnnotationSpan(type, stance, false, begin, end, true);
+	                if(annotationType.equals("p")){
+		                int target = getTarget(record.get("annotation"));
+	                	span.pairing = target;
+	                }
+	                assignment.spans.add(span);
 	            }
             }
             assignments.add(assignment);
 	    }
-        in.close();
 
         return assignments;
     }
 
     private int getTarget(String annotation) {
-    	String claimNumber = annotation.substring(annotation.indexOf("hit-premise-")+"hit-premise-".length(), annotation.indexOf("-review-"));
-		return Integer.parseInt(claimNumber);
+		return HITId.parse(annotation).getClaimIndex();
 	}
 
 	/**
-     * Returns the token to a given tokenID. If none is found,
-     * the returned result is null
-     */
-    private Token getToken(JCas aJCas, String tokenId)
-    {
-        FSIterator<Token> tokenIterator = aJCas.getAllIndexedFS(Token.class);
-        tokenIterator.moveToFirst();
-            while (tokenIterator.hasNext()) {
-                Token token = tokenIterator.get();
-                if (token.getId().equals(tokenId)) {
-                    return token;
-                }
-                tokenIterator.moveToNext();
-            }
-            return null;
-    }
-
-    /**
      * Returns the token to a given offset. If none is found,
      * the returned result is null
      */
-    private Token getToken(JCas aJCas, int offset)
+    private Token getToken(TokenIndex tokenIndex, int offset)
     {
-    	return getToken(aJCas, "token_"+offset);
+    	int ordinal = tokenIndex.getOrdinal(AnswerSpan.TokenType.TOKEN, offset);
+    	return ordinal == -1 ? null : tokenIndex.getToken(ordinal);
     }
 
     /**
@@ -580,9 +528,8 @@ public class AnnotationsToHTML
                 System.err.println("Added contexts for " + i + " of "
                         + assignments.size() + " assignments");
             }
-            String reviewPath = inputXMI.getPath() + "/"
-                    + assignment.reviewID + ".xmi";
-            File xmiFile = new File(reviewPath);
+            File xmiFile = StorageFormat.getIntermediateFormat().getFile(inputXMI,
+                    assignment.reviewID);
             if (xmiFile.exists()) {
                 JCas aJCas = loadJCas(assignment);
                 if(assignment.intext){
@@ -590,10 +537,11 @@ public class AnnotationsToHTML
                 }
                 if (assignment.intext && !assignment.spans.isEmpty()) {
                     int endIndex = 0;
+                    TokenIndex tokenIndex = new TokenIndex(aJCas);
 
                     for(int j = 0; j < assignment.spans.size(); j++){
                     	if(assignment.spans.get(j).tmpEnd){
-                    		endIndex = getToken(aJCas, assignment.spans.get(j).end).getEnd();
+                    		endIndex = getToken(tokenIndex, assignment.spans.get(j).end).getEnd();
                     		assignment.spans.get(j).end = endIndex;
                     		assignment.spans.get(j).tmpEnd = false;
                     	}
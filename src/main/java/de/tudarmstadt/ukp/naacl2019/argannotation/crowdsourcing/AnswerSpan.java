@@ -0,0 +1,330 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A span selected by a worker, as given in the Answer.tokens column of the MTurk results: the
+ * stance of the claim and the tokens, each as its type and offset (token_123 is a
+ * {@link TokenType#TOKEN} with offset 123). Claim and premise answers list one span per claim,
+ * "[becauseid:1{token_0,undefined,token_3,},[butid:4{token_596,},],"; major claim answers are a
+ * plain list of token IDs, "token_0,undefined,token_3".
+ *
+ */
+public class AnswerSpan
+{
+    public enum Stance
+    {
+        /** [because{...}] */
+        SUPPORT,
+        /** [but{...}] */
+        ATTACK,
+        /** plain list of token IDs */
+        NONE
+    }
+
+    public enum TokenType
+    {
+        TOKEN("token"), TITLE_TOKEN("titleToken"), REVIEW_TOKEN("reviewToken");
+
+        private final String prefix;
+
+        private TokenType(String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        /**
+         * @return the prefix of the token IDs, before the underscore
+         */
+        public String getPrefix()
+        {
+            return prefix;
+        }
+    }
+
+    private static final String BECAUSE = "because";
+    private static final String BUT = "but";
+    private static final String ID = "id:";
+
+    private final Stance stance;
+    private final int claimID;
+    private final int[] offsets;
+    private final TokenType[] tokenTypes;
+
+    /**
+     * @param stance
+     *            the stance
+     * @param claimID
+     *            number of the claim in the answer (becauseid:1), or -1
+     * @param offsets
+     *            offsets of the tokens
+     * @param tokenTypes
+     *            types of the tokens
+     */
+    public AnswerSpan(Stance stance, int claimID, int[] offsets, TokenType[] tokenTypes)
+    {
+        this.stance = stance;
+        this.claimID = claimID;
+        this.offsets = offsets;
+        this.tokenTypes = tokenTypes;
+    }
+
+    /**
+     * Parses an answer in a single pass, without splitting it into strings. The "undefined"
+     * entries (whitespace between the tokens), entries which are no token IDs, bracketed spans
+     * with neither "because" nor "but" and spans without tokens are dropped.
+     *
+     * @param answer
+     *            the Answer.tokens value
+     * @return the spans in the order of the answer
+     */
+    public static List<AnswerSpan> parse(CharSequence answer)
+    {
+        List<AnswerSpan> spans = new ArrayList<AnswerSpan>(4);
+        Tokens tokens = new Tokens();
+        int length = answer.length();
+        int i = 0;
+        while (i < length) {
+            if (answer.charAt(i) == '[') {
+                int wordStart = i + 1;
+                int wordEnd = wordStart;
+                while (wordEnd < length && answer.charAt(wordEnd) != '{'
+                        && answer.charAt(wordEnd) != '[') {
+                    wordEnd++;
+                }
+                if (wordEnd == length || answer.charAt(wordEnd) == '[') {
+                    // no token list, nonsense
+                    i = wordEnd;
+                    continue;
+                }
+                i = tokens.read(answer, wordEnd + 1, '}');
+                if (i < length) {
+                    // skip the closing brace
+                    i++;
+                }
+                Stance stance = null;
+                int claimID = -1;
+                int idStart = -1;
+                if (startsWith(answer, wordStart, wordEnd, BECAUSE)) {
+                    stance = Stance.SUPPORT;
+                    idStart = wordStart + BECAUSE.length();
+                }
+                else if (startsWith(answer, wordStart, wordEnd, BUT)) {
+                    stance = Stance.ATTACK;
+                    idStart = wordStart + BUT.length();
+                }
+                if (idStart != -1 && startsWith(answer, idStart, wordEnd, ID)) {
+                    claimID = parseNumber(answer, idStart + ID.length(), wordEnd);
+                }
+                if (stance != null && tokens.count > 0) {
+                    spans.add(tokens.toSpan(stance, claimID));
+                }
+            }
+            else {
+                // plain list, or the separators between the bracketed spans
+                i = tokens.read(answer, i, '[');
+                if (tokens.count > 0) {
+                    spans.add(tokens.toSpan(Stance.NONE, -1));
+                }
+            }
+        }
+        return spans;
+    }
+
+    public Stance getStance()
+    {
+        return stance;
+    }
+
+    /**
+     * @return number of the claim in the answer (becauseid:1), or -1
+     */
+    public int getClaimID()
+    {
+        return claimID;
+    }
+
+    /**
+     * @return number of tokens
+     */
+    public int size()
+    {
+        return offsets.length;
+    }
+
+    /**
+     * @param i
+     *            index of the token in the span
+     * @return the offset of the token, the number of its ID
+     */
+    public int getOffset(int i)
+    {
+        return offsets[i];
+    }
+
+    /**
+     * @param i
+     *            index of the token in the span
+     * @return the type of the token, the prefix of its ID
+     */
+    public TokenType getTokenType(int i)
+    {
+        return tokenTypes[i];
+    }
+
+    /**
+     * @param i
+     *            index of the token in the span
+     * @return the ID of the token, as in Token.getId()
+     */
+    public String getTokenID(int i)
+    {
+        return tokenTypes[i].getPrefix() + "_" + offsets[i];
+    }
+
+    /**
+     * @return the span in the answer format, without "undefined" entries
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        if (stance != Stance.NONE) {
+            result.append('[').append(stance == Stance.SUPPORT ? BECAUSE : BUT);
+            if (claimID >= 0) {
+                result.append(ID).append(claimID);
+            }
+            result.append('{');
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(tokenTypes[i].getPrefix()).append('_').append(offsets[i]);
+        }
+        if (stance != Stance.NONE) {
+            result.append("}]");
+        }
+        return result.toString();
+    }
+
+    private static boolean startsWith(CharSequence answer, int start, int end, String prefix)
+    {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (answer.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number, or -1 if the range is empty or contains other characters
+     */
+    private static int parseNumber(CharSequence answer, int start, int end)
+    {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            char c = answer.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = 10 * number + (c - '0');
+        }
+        return number;
+    }
+
+    /**
+     * The tokens of the span being parsed, reused for all spans of an answer.
+     */
+    private static class Tokens
+    {
+        private static final TokenType[] TYPES = TokenType.values();
+
+        private int[] offsets = new int[32];
+        private TokenType[] types = new TokenType[32];
+        private int count;
+
+        /**
+         * Reads the comma-separated token IDs up to the terminator, which is not consumed.
+         *
+         * @return the position of the terminator, or the length of the answer
+         */
+        int read(CharSequence answer, int start, char terminator)
+        {
+            count = 0;
+            int length = answer.length();
+            int i = start;
+            while (i < length && answer.charAt(i) != terminator) {
+                int entryEnd = i;
+                while (entryEnd < length && answer.charAt(entryEnd) != ','
+                        && answer.charAt(entryEnd) != terminator) {
+                    entryEnd++;
+                }
+                addEntry(answer, i, entryEnd);
+                i = entryEnd < length && answer.charAt(entryEnd) == ',' ? entryEnd + 1 : entryEnd;
+            }
+            return i;
+        }
+
+        private void addEntry(CharSequence answer, int start, int end)
+        {
+            while (start < end && Character.isWhitespace(answer.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(answer.charAt(end - 1))) {
+                end--;
+            }
+            for (TokenType type : TYPES) {
+                String prefix = type.getPrefix();
+                int underscore = start + prefix.length();
+                if (underscore < end && answer.charAt(underscore) == '_'
+                        && startsWith(answer, start, underscore, prefix)) {
+                    int offset = parseNumber(answer, underscore + 1, end);
+                    if (offset != -1) {
+                        if (count == offsets.length) {
+                            offsets = Arrays.copyOf(offsets, 2 * count);
+                            types = Arrays.copyOf(types, 2 * count);
+                        }
+                        offsets[count] = offset;
+                        types[count] = type;
+                        count++;
+                    }
+                    return;
+                }
+            }
+        }
+
+        AnswerSpan toSpan(Stance stance, int claimID)
+        {
+            return new AnswerSpan(stance, claimID, Arrays.copyOf(offsets, count),
+                    Arrays.copyOf(types, count));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.ContentHash;
+
+/**
+ * Publishes the css/js files referenced by a HIT template (../css/... and ../js/..., relative to
+ * src/main/webapp) as versioned files in the folder {@value #FOLDER} next to the HITs. The name
+ * of each file contains a hash of its content (e.g. bootstrap.min.3f2a9c01d4.css), so the web
+ * server can let browsers cache them forever: a worker downloads them with the first HIT only,
+ * and a changed file gets a new name. The fonts referenced by the stylesheets are published the
+ * same way.
+ *
+ * Each file is published once, no matter how many HITs reference it.
+ *
+ */
+public class HITAssets
+{
+    public static final String FOLDER = "assets";
+
+    private static final Pattern TEMPLATE_REFERENCE = Pattern.compile("\\.\\./((?:css|js)/[\\w.-]+)");
+    private static final Pattern CSS_REFERENCE = Pattern.compile("url\\(\\.\\./(fonts/[\\w.-]+)");
+    private static final int HASH_LENGTH = 10;
+
+    private final File webappDir;
+    private final File assetDir;
+    // path relative to the webapp folder -> name of the published file
+    private final Map<String, String> published = new HashMap<String, String>();
+    private long assetBytes;
+
+    /**
+     * @param webappDir
+     *            folder with the css, js and fonts folders, usually src/main/webapp
+     * @param outputDir
+     *            folder of the HITs; the assets are written to its subfolder {@value #FOLDER}
+     */
+    public HITAssets(File webappDir, File outputDir)
+    {
+        this.webappDir = webappDir;
+        this.assetDir = new File(outputDir, FOLDER);
+    }
+
+    /**
+     * Publishes all css/js files referenced by the template and replaces the references by the
+     * versioned files.
+     *
+     * @param template
+     *            text of the HIT template
+     * @return the template referencing the published files
+     * @throws IOException
+     *             if a referenced file does not exist or cannot be published
+     */
+    public String rewrite(String template)
+        throws IOException
+    {
+        StringBuffer result = new StringBuffer();
+        Matcher matcher = TEMPLATE_REFERENCE.matcher(template);
+        while (matcher.find()) {
+            matcher.appendReplacement(result,
+                    Matcher.quoteReplacement(FOLDER + "/" + publish(matcher.group(1))));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * @return number of published files
+     */
+    public int getAssetCount()
+    {
+        return published.size();
+    }
+
+    /**
+     * @return total size of the published files in bytes
+     */
+    public long getAssetBytes()
+    {
+        return assetBytes;
+    }
+
+    /**
+     * Prints how many bytes a worker loads per HIT: every HIT with all assets, as if nothing
+     * was cached, compared to the HIT page alone once the versioned assets are cached. Browsers
+     * load only one of the font formats, so the sizes with assets are upper bounds.
+     *
+     * @param hits
+     *            number of rendered HITs
+     * @param hitBytes
+     *            total size of the rendered HITs in bytes
+     */
+    public void printReport(int hits, long hitBytes)
+    {
+        if (hits == 0) {
+            return;
+        }
+        long perHIT = hitBytes / hits;
+        long uncached = perHIT + assetBytes;
+        System.out.println("Published " + published.size() + " assets (" + assetBytes
+                + " bytes) to " + assetDir);
+        System.out.println("Bytes per HIT: at most " + uncached + " with all assets, " + perHIT
+                + " with cached assets (" + Math.round(100.0 * perHIT / uncached) + "%)");
+        System.out.println("Bytes for all " + hits + " HITs: " + (hitBytes + hits * assetBytes)
+                + " with all assets per HIT, " + (hitBytes + assetBytes)
+                + " with the assets loaded once");
+    }
+
+    /**
+     * @param path
+     *            path of the file relative to the webapp folder
+     * @return name of the published file in the asset folder
+     */
+    private String publish(String path)
+        throws IOException
+    {
+        String name = published.get(path);
+        if (name != null) {
+            return name;
+        }
+        File file = new File(webappDir, path);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Asset not found: " + file);
+        }
+        byte[] content = FileUtils.readFileToByteArray(file);
+        if (path.endsWith(".css")) {
+            content = rewriteStylesheet(new String(content, "utf-8")).getBytes("utf-8");
+        }
+
+        String fileName = file.getName();
+        int extension = fileName.lastIndexOf('.');
+        name = fileName.substring(0, extension) + "." + hash(content)
+                + fileName.substring(extension);
+        File target = new File(assetDir, name);
+        if (!target.exists()) {
+            FileUtils.writeByteArrayToFile(target, content);
+        }
+        published.put(path, name);
+        assetBytes += content.length;
+        return name;
+    }
+
+    /**
+     * The stylesheets are published into the same folder as the fonts, so url(../fonts/...)
+     * becomes the name of the published font.
+     */
+    private String rewriteStylesheet(String stylesheet)
+        throws IOException
+    {
+        StringBuffer result = new StringBuffer();
+        Matcher matcher = CSS_REFERENCE.matcher(stylesheet);
+        while (matcher.find()) {
+            matcher.appendReplacement(result,
+                    Matcher.quoteReplacement("url(" + publish(matcher.group(1))));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static String hash(byte[] content)
+    {
+        return ContentHash.hash(content).substring(0, HASH_LENGTH);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes all HITs of a run into a single zip file instead of one HTML file per HIT, together
+ * with a batch CSV for the MTurk batch upload. The CSV has one line per HIT with the columns
+ * annotation (the {@link HITId}, which MTurk copies into the results), reviewID and claimIndex
+ * (empty if the HIT is not about a single claim). The zip entries are named after the HIT
+ * files, so the zip can be extracted to the web server as is.
+ *
+ * HITs may be added by several threads.
+ *
+ */
+public class HITBundleWriter
+    implements Closeable
+{
+    public static final String BUNDLE_NAME = "hits.zip";
+    public static final String BATCH_NAME = "hits.csv";
+
+    private final ZipOutputStream zip;
+    private final Writer batch;
+    private int count;
+
+    /**
+     * @param outputDir
+     *            folder to write {@value #BUNDLE_NAME} and {@value #BATCH_NAME} to
+     * @throws IOException
+     *             if the files cannot be created
+     */
+    public HITBundleWriter(File outputDir)
+        throws IOException
+    {
+        outputDir.mkdirs();
+        zip = new ZipOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(outputDir, BUNDLE_NAME))));
+        batch = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(outputDir, BATCH_NAME)), "utf-8"));
+        batch.write("annotation,reviewID,claimIndex\n");
+        count = 0;
+    }
+
+    /**
+     * @param id
+     *            ID of the HIT
+     * @param html
+     *            the rendered HIT
+     * @throws IOException
+     *             if the HIT cannot be written
+     */
+    public synchronized void add(HITId id, String html)
+        throws IOException
+    {
+        zip.putNextEntry(new ZipEntry(id.getFileName()));
+        zip.write(html.getBytes("utf-8"));
+        zip.closeEntry();
+        batch.write(quote(id.toString()) + "," + quote(id.getReviewID()) + ","
+                + (id.getClaimIndex() >= 0 ? id.getClaimIndex() : "") + "\n");
+        count++;
+    }
+
+    /**
+     * @return number of HITs written
+     */
+    public synchronized int getCount()
+    {
+        return count;
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        try {
+            zip.close();
+        }
+        finally {
+            batch.close();
+        }
+    }
+
+    private static String quote(String value)
+    {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,118 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+/**
+ * ID of a HIT: the annotation step, the review and, for premise HITs, the index of the claim in
+ * the review. The string form hit-step[-claimIndex]-review-reviewID is the name of the HTML file
+ * of the HIT (without .html) and the value of the annotation column in the MTurk results.
+ *
+ */
+public class HITId
+{
+    public static final String MAJOR_CLAIM = "majorClaim";
+    public static final String CLAIM = "claim";
+    public static final String PREMISE = "premise";
+
+    private static final String PREFIX = "hit-";
+    private static final String REVIEW = "-review-";
+    private static final String EXTENSION = ".html";
+
+    private final String step;
+    private final String reviewID;
+    private final int claimIndex;
+
+    /**
+     * @param step
+     *            {@value #MAJOR_CLAIM}, {@value #CLAIM} or {@value #PREMISE}
+     * @param reviewID
+     *            the review
+     * @param claimIndex
+     *            index of the claim, or -1 if the HIT is not about a single claim
+     */
+    public HITId(String step, String reviewID, int claimIndex)
+    {
+        this.step = step;
+        this.reviewID = reviewID;
+        this.claimIndex = claimIndex;
+    }
+
+    /**
+     * Parses the ID from the annotation column of the MTurk results. Paths and the .html
+     * extension of the HIT file name are ignored.
+     *
+     * @param annotation
+     *            the HIT ID or the name of the HIT file
+     * @return the ID
+     * @throws IllegalArgumentException
+     *             if this is not a HIT ID
+     */
+    public static HITId parse(String annotation)
+    {
+        String id = annotation.substring(annotation.lastIndexOf('/') + 1);
+        if (id.endsWith(EXTENSION)) {
+            id = id.substring(0, id.length() - EXTENSION.length());
+        }
+        int review = id.lastIndexOf(REVIEW);
+        if (!id.startsWith(PREFIX) || review < 0) {
+            throw new IllegalArgumentException("Not a HIT ID: " + annotation);
+        }
+        String reviewID = id.substring(review + REVIEW.length());
+        String step = id.substring(PREFIX.length(), review);
+        int claimIndex = -1;
+        int separator = step.indexOf('-');
+        if (separator >= 0) {
+            claimIndex = Integer.parseInt(step.substring(separator + 1));
+            step = step.substring(0, separator);
+        }
+        return new HITId(step, reviewID, claimIndex);
+    }
+
+    public String getStep()
+    {
+        return step;
+    }
+
+    public String getReviewID()
+    {
+        return reviewID;
+    }
+
+    /**
+     * @return index of the claim, or -1 if the HIT is not about a single claim
+     */
+    public int getClaimIndex()
+    {
+        return claimIndex;
+    }
+
+    /**
+     * @return the name of the HTML file of the HIT
+     */
+    public String getFileName()
+    {
+        return toString() + EXTENSION;
+    }
+
+    @Override
+    public String toString()
+    {
+        return PREFIX + step + (claimIndex >= 0 ? "-" + claimIndex : "") + REVIEW + reviewID;
+    }
+}
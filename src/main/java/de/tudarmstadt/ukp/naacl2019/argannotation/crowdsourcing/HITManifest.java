@@ -0,0 +1,209 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.ContentHash;
+
+/**
+ * Manifest of the HITs written to an output folder, for re-running a HIT producer incrementally.
+ * For each HIT, it records the HIT file, the input file it was created from, a hash of the input
+ * file and a hash of the template (including the MTurk URL), one
+ * "hitFile TAB inputFile TAB inputHash TAB templateHash" line per HIT. An input file without
+ * HITs gets a single line with an empty HIT file.
+ *
+ * The lines of an input file are appended after all its HITs are written, so an interrupted run
+ * can be resumed: input files whose lines are missing are processed again. The manifest is
+ * append-only, for each input file only the lines with its last hashes are valid.
+ *
+ * An input file does not have to be processed again, if its hash and the template hash are
+ * unchanged and all its HIT files still exist. If a changed input file yields fewer HITs than
+ * before, the HIT files it no longer yields are deleted.
+ *
+ * The HITs of several documents may be rendered at once, so all access to the entries is
+ * synchronized.
+ *
+ */
+public class HITManifest
+{
+    public static final String MANIFEST_NAME = "hits.manifest";
+
+    private final File outputDir;
+    private final File manifest;
+    private final String templateHash;
+    // absolute path of the input file -> its last entry
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * @param outputDir
+     *            the output folder of the HITs, containing the manifest
+     * @param template
+     *            the text of the template and everything else the HITs depend on besides the
+     *            input file
+     * @throws IOException
+     *             I/O exception
+     */
+    public HITManifest(File outputDir, String template)
+        throws IOException
+    {
+        this.outputDir = outputDir;
+        this.manifest = new File(outputDir, MANIFEST_NAME);
+        this.templateHash = hash(template);
+        if (manifest.exists()) {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(manifest), "utf-8"))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length == 4) {
+                        add(fields[1], fields[2], fields[3], fields[0]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param input
+     *            the input file
+     * @param inputHash
+     *            the hash of the input file, see {@link #hash(File)}
+     * @return true, if the HITs of the input file are still up to date
+     */
+    public synchronized boolean isUnchanged(File input, String inputHash)
+    {
+        Entry entry = entries.get(input.getAbsolutePath());
+        if (entry == null || !entry.inputHash.equals(inputHash)
+                || !entry.templateHash.equals(templateHash)) {
+            return false;
+        }
+        for (String hitFile : entry.hitFiles) {
+            if (!new File(outputDir, hitFile).exists()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the HITs written for the input file to the manifest and deletes the HIT files
+     * recorded before for the input file which it no longer yields.
+     *
+     * @param input
+     *            the input file
+     * @param inputHash
+     *            the hash of the input file
+     * @param hits
+     *            the HITs written for the input file, may be empty
+     * @throws IOException
+     *             I/O exception
+     */
+    public synchronized void record(File input, String inputHash, List<HITId> hits)
+        throws IOException
+    {
+        String inputPath = input.getAbsolutePath();
+        Entry previous = entries.get(inputPath);
+        List<String> previousHitFiles = previous == null ? Collections.<String> emptyList()
+                : new ArrayList<String>(previous.hitFiles);
+        List<String> hitFiles = new ArrayList<String>();
+        for (HITId hit : hits) {
+            hitFiles.add(hit.getFileName());
+        }
+        if (hitFiles.isEmpty()) {
+            hitFiles.add("");
+        }
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(manifest, true), "utf-8"))) {
+            for (String hitFile : hitFiles) {
+                writer.write(hitFile + "\t" + inputPath + "\t" + inputHash + "\t" + templateHash
+                        + "\n");
+                add(inputPath, inputHash, templateHash, hitFile);
+            }
+        }
+        Set<String> current = new HashSet<String>(hitFiles);
+        for (String hitFile : previousHitFiles) {
+            if (!current.contains(hitFile)) {
+                new File(outputDir, hitFile).delete();
+            }
+        }
+    }
+
+    /**
+     * @param file
+     *            the input file
+     * @return the hash of the content of the file
+     * @throws IOException
+     *             I/O exception
+     */
+    public static String hash(File file)
+        throws IOException
+    {
+        try (InputStream in = new FileInputStream(file)) {
+            return ContentHash.hash(in);
+        }
+    }
+
+    private void add(String inputPath, String inputHash, String templateHash, String hitFile)
+    {
+        Entry entry = entries.get(inputPath);
+        if (entry == null || !entry.inputHash.equals(inputHash)
+                || !entry.templateHash.equals(templateHash)) {
+            entry = new Entry(inputHash, templateHash);
+            entries.put(inputPath, entry);
+        }
+        if (!hitFile.isEmpty()) {
+            entry.hitFiles.add(hitFile);
+        }
+    }
+
+    private static String hash(String text)
+    {
+        return ContentHash.hash(text);
+    }
+
+    private static class Entry
+    {
+        private final String inputHash;
+        private final String templateHash;
+        private final List<String> hitFiles = new ArrayList<String>();
+
+        private Entry(String inputHash, String templateHash)
+        {
+            this.inputHash = inputHash;
+            this.templateHash = templateHash;
+        }
+    }
+}
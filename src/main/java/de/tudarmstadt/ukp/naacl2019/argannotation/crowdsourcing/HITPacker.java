@@ -0,0 +1,112 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Packs the HITs of a run into packed HITs of several reviews each, so that workers annotate
+ * several short reviews with a single page load and submission. The HITs are packed first-fit
+ * decreasing by their number of tokens, up to a token budget per packed HIT; a HIT exceeding the
+ * budget is packed alone. Ties are broken by the HIT ID, so the packs do not depend on the order
+ * in which the HITs were rendered.
+ *
+ * HITs may be added by several threads.
+ *
+ */
+public class HITPacker
+{
+    private final int tokenBudget;
+    private final int maxHITs;
+    private final List<PackedHIT> hits = new ArrayList<PackedHIT>();
+
+    /**
+     * @param tokenBudget
+     *            maximum number of tokens of a packed HIT
+     * @param maxHITs
+     *            maximum number of HITs in a packed HIT
+     */
+    public HITPacker(int tokenBudget, int maxHITs)
+    {
+        this.tokenBudget = tokenBudget;
+        this.maxHITs = maxHITs;
+    }
+
+    /**
+     * @param id
+     *            ID of the HIT
+     * @param tokens
+     *            number of tokens the worker has to read
+     */
+    public synchronized void add(HITId id, int tokens)
+    {
+        hits.add(new PackedHIT(id, tokens));
+    }
+
+    /**
+     * @return the HITs of each packed HIT
+     */
+    public synchronized List<List<HITId>> pack()
+    {
+        List<PackedHIT> sorted = new ArrayList<PackedHIT>(hits);
+        Collections.sort(sorted, new Comparator<PackedHIT>()
+        {
+            @Override
+            public int compare(PackedHIT o1, PackedHIT o2)
+            {
+                if (o1.tokens != o2.tokens) {
+                    return o1.tokens > o2.tokens ? -1 : 1;
+                }
+                return o1.id.toString().compareTo(o2.id.toString());
+            }
+        });
+
+        List<List<HITId>> packs = new ArrayList<List<HITId>>();
+        List<Integer> packTokens = new ArrayList<Integer>();
+        for (PackedHIT hit : sorted) {
+            int pack = 0;
+            while (pack < packs.size() && (packs.get(pack).size() >= maxHITs
+                    || packTokens.get(pack) + hit.tokens > tokenBudget)) {
+                pack++;
+            }
+            if (pack == packs.size()) {
+                packs.add(new ArrayList<HITId>());
+                packTokens.add(0);
+            }
+            packs.get(pack).add(hit.id);
+            packTokens.set(pack, packTokens.get(pack) + hit.tokens);
+        }
+        return packs;
+    }
+
+    private static class PackedHIT
+    {
+        private final HITId id;
+        private final int tokens;
+
+        private PackedHIT(HITId id, int tokens)
+        {
+            this.id = id;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+/**
+ * A fixed number of JCases which are reset and reused for the documents, so the type system is
+ * only detected and the CAS only created once instead of once per document.
+ *
+ */
+public class JCasPool
+{
+    private final BlockingQueue<JCas> free;
+
+    /**
+     * @param size
+     *            number of JCases in the pool
+     * @throws UIMAException
+     *             if the CASes cannot be created
+     */
+    public JCasPool(int size)
+        throws UIMAException
+    {
+        free = new ArrayBlockingQueue<JCas>(size);
+        TypeSystemDescription typeSystem = TypeSystemDescriptionFactory
+                .createTypeSystemDescription();
+        for (int i = 0; i < size; i++) {
+            free.add(JCasFactory.createJCas(typeSystem));
+        }
+    }
+
+    /**
+     * Waits until a JCas is free.
+     *
+     * @return an empty JCas, to be returned with {@link #release(JCas)}
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public JCas take()
+        throws InterruptedException
+    {
+        return free.take();
+    }
+
+    /**
+     * Resets the JCas and returns it to the pool.
+     *
+     * @param jcas
+     *            JCas taken from this pool
+     */
+    public void release(JCas jcas)
+    {
+        jcas.reset();
+        free.add(jcas);
+    }
+}
@@ -18,11 +18,10 @@
 
 package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
@@ -55,8 +54,7 @@ public class MTurkAnnotationAdder extends JCasAnnotator_ImplBase{
     @ConfigurationParameter(name = PARAM_ANNOTATION_TYPE, mandatory = false)
     private String annotationType;
 
-	HashMap<String,ArrayList<HashMap<String,String>>> mTurkMap = new HashMap<String,ArrayList<HashMap<String,String>>>();
-	ArrayList<String> parameters = new ArrayList<String>();
+	MTurkResultStore mTurkResults;
 	@Override
     public void initialize(UimaContext ctx)
         throws ResourceInitializationException
@@ -64,47 +62,14 @@ public class MTurkAnnotationAdder extends JCasAnnotator_ImplBase{
 		super.initialize(ctx);
 		sourceLocation = ctx.getConfigParameterValue(PARAM_SOURCE_LOCATION).toString();
 		annotationType= ctx.getConfigParameterValue(PARAM_ANNOTATION_TYPE).toString();
-		parameters.add("hitid");
-		parameters.add("hittypeid");
-		parameters.add("workerid");
-		parameters.add("Answer.tokens");
-		parameters.add("annotation");
-		parameters.add("Answer.textinput");
 		try {
-            loadMTurkResults();
+            mTurkResults = MTurkResultStore.open(new File(sourceLocation));
         }
         catch (IOException e) {
             throw new ResourceInitializationException(e);
         }
     }
 
-	private void loadMTurkResults() throws IOException {
-			BufferedReader br = new BufferedReader(new FileReader(sourceLocation));
-			String[] headers = br.readLine().split("\t");
-			String line;
-			while((line = br.readLine())!= null){
-				HashMap<String,String> innerMap = new HashMap<String,String>();
-				String[] lineElements = line.split("\t");
-				for(int i=0; i < lineElements.length; i++){
-					if(parameters.contains(removeQuotation(headers[i]))){
-						innerMap.put(removeQuotation(headers[i]), removeQuotation(lineElements[i]));
-					}
-				}
-				String documentname = innerMap.get("annotation");
-				documentname = documentname.split("-")[documentname.split("-").length-1].replace(".html", "");
-				ArrayList<HashMap<String, String>> tmpList;
-				if(mTurkMap.containsKey(documentname)){
-					tmpList = mTurkMap.get(documentname);
-				}
-				else{
-					tmpList = new ArrayList<HashMap<String, String>>();
-				}
-				tmpList.add(innerMap);
-				mTurkMap.put(documentname, tmpList);
-			}
-			br.close();
-	}
-
     @Override
     public void process(JCas aJCas)
         throws AnalysisEngineProcessException
@@ -113,36 +78,37 @@ public class MTurkAnnotationAdder extends JCasAnnotator_ImplBase{
         for (DocumentMetaData meta : JCasUtil.select(aJCas, DocumentMetaData.class)) {
             id = meta.getDocumentId();
         }
-        if (mTurkMap.containsKey(id)) {
+        if (mTurkResults.contains(id)) {
             System.out.println("FOUND ID " + id);
-            ArrayList<HashMap<String, String>> mTurkResults = mTurkMap.get(id);
+            List<MTurkResultStore.Row> entries = mTurkResults.getRows(id);
+            TokenIndex tokenIndex = new TokenIndex(aJCas);
             // Do major claim annotations
             if (annotationType.equals("m")) {
-                for (HashMap<String, String> entry : mTurkResults) {
+                for (MTurkResultStore.Row entry : entries) {
                     int begin = -1;
                     int end = -1;
                     String typeValue = "";
                     ArrayList<String> tokens = new ArrayList<String>();
-                    for (String token : entry.get("Answer.tokens").split(",")) {
-                        tokens.add(token);
+                    for (AnswerSpan span : AnswerSpan.parse(entry.get("Answer.tokens"))) {
+                        for (int i = 0; i < span.size(); i++) {
+                            tokens.add(span.getTokenID(i));
+                        }
                     }
 
-                    for (Token token : JCasUtil.select(aJCas, Token.class)) {
-                        if (tokens.contains(token.getId())) {
-                            if (token.getBegin() < begin || begin == -1) {
-                                begin = token.getBegin();
-                            }
-                            if (token.getEnd() > end) {
-                                end = token.getEnd();
-                            }
-                            if (typeValue == "") {
-                                typeValue = token.getId().split("_")[0];
-                            }
-                            else if (!typeValue.equals(token.getId().split("_")[0])
-                                    && !typeValue.contains("_")) {
-                                typeValue += "_" + token.getId().split("_")[0];
-                                end = token.getEnd();
-                            }
+                    for (Token token : tokenIndex.getTokens(tokens)) {
+                        if (token.getBegin() < begin || begin == -1) {
+                            begin = token.getBegin();
+                        }
+                        if (token.getEnd() > end) {
+                            end = token.getEnd();
+                        }
+                        if (typeValue == "") {
+                            typeValue = token.getId().split("_")[0];
+                        }
+                        else if (!typeValue.equals(token.getId().split("_")[0])
+                                && !typeValue.contains("_")) {
+                            typeValue += "_" + token.getId().split("_")[0];
+                            end = token.getEnd();
                         }
                     }
                     if (begin != -1 && end != -1) {
@@ -168,53 +134,42 @@ public class MTurkAnnotationAdder extends JCasAnnotator_ImplBase{
                  * [becauseid:2{undefined,token_565,undefined,token_568,},
                  * [butid:4{token_596,undefined,token_600,undefined,token_605,},],"
                  */
-                for (HashMap<String, String> entry : mTurkResults) {
-                    // First split for all claims and add them to a list
-                    ArrayList<String> claims = new ArrayList<String>();
-                    for(String claim : entry.get("Answer.tokens").split(",}")){
-                        // Remove all the undefined strings (whitespaces) in the annotation
-                        claims.add(claim.replace("undefined,", ""));
-                    }
-                    for(String claimString : claims){
+                for (MTurkResultStore.Row entry : entries) {
+                    // The parser removes all the undefined strings (whitespaces) in the annotation
+                    for(AnswerSpan claimSpan : AnswerSpan.parse(entry.get("Answer.tokens"))){
 
                         int begin = -1;
                         int end = -1;
                         String typeValue = "";
                         String claimType = "";
                         // Set if we have a supporting or an attacking claim
-                        if(claimString.contains("because")){
+                        if(claimSpan.getStance() == AnswerSpan.Stance.SUPPORT){
                             claimType = "support";
-                        }else if(claimString.contains("but")){
+                        }else if(claimSpan.getStance() == AnswerSpan.Stance.ATTACK){
                             claimType = "attack";
                         }
-                        // Handle the closing bracket getting split too...
+                        // Ignore plain token lists
                         if(claimType.isEmpty()) {
                             continue;
                         }
-                        // Handle comment annotation
-                        if(!claimString.contains("]")){
-                            ArrayList<String> tokens = new ArrayList<String>();
-                            // The first part of the claim string contains its type (attacking or supporting)
-                            for (String token : claimString.split("\\{")[1].split(",")) {
-                                tokens.add(token);
+                        ArrayList<String> tokens = new ArrayList<String>();
+                        for (int i = 0; i < claimSpan.size(); i++) {
+                            tokens.add(claimSpan.getTokenID(i));
+                        }
+                        for (Token token : tokenIndex.getTokens(tokens)) {
+                            if (token.getBegin() < begin || begin == -1) {
+                                begin = token.getBegin();
                             }
-                            for (Token token : JCasUtil.select(aJCas, Token.class)) {
-                                if (tokens.contains(token.getId())) {
-                                    if (token.getBegin() < begin || begin == -1) {
-                                        begin = token.getBegin();
-                                    }
-                                    if (token.getEnd() > end) {
-                                        end = token.getEnd();
-                                    }
-                                    if (typeValue == "") {
-                                        typeValue = token.getId().split("_")[0];
-                                    }
-                                    else if (!typeValue.equals(token.getId().split("_")[0])
-                                            && !typeValue.contains("_")) {
-                                        typeValue += "_" + token.getId().split("_")[0];
-                                        end = token.getEnd();
-                                    }
-                                }
+                            if (token.getEnd() > end) {
+                                end = token.getEnd();
+                            }
+                            if (typeValue == "") {
+                                typeValue = token.getId().split("_")[0];
+                            }
+                            else if (!typeValue.equals(token.getId().split("_")[0])
+                                    && !typeValue.contains("_")) {
+                                typeValue += "_" + token.getId().split("_")[0];
+                                end = token.getEnd();
                             }
                         }
                         if (begin != -1 && end != -1) {
@@ -237,11 +192,4 @@ public class MTurkAnnotationAdder extends JCasAnnotator_ImplBase{
         }
     }
 
-	private String removeQuotation(String element){
-		if(element.contains("\"")){
-			element = element.substring(1, element.length()-1);
-		}
-		return element;
-	}
-
 }
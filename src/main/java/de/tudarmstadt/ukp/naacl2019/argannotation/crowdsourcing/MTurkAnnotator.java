@@ -32,8 +32,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Runs a pipeline that adds Annotations from MTurk to the XMIs
@@ -44,17 +43,14 @@ public class MTurkAnnotator
     public static void runPipeline(File inputDir, File outputDir, String annotationStep, String resultFileLocation)
         throws UIMAException, IOException
     {
-    	CollectionReaderDescription reader = createReaderDescription(
-				XmiReader.class, XmiReader.PARAM_SOURCE_LOCATION, inputDir
-				, XmiReader.PARAM_PATTERNS,
-		XmiReader.INCLUDE_PREFIX + "*.xmi");
+    	CollectionReaderDescription reader = StorageFormat.getIntermediateFormat()
+				.createReaderDescription(inputDir);
 
     	AnalysisEngineDescription mTurkAnnotationAdder = createEngineDescription(
 				MTurkAnnotationAdder.class, MTurkAnnotationAdder.PARAM_SOURCE_LOCATION, resultFileLocation, MTurkAnnotationAdder.PARAM_ANNOTATION_TYPE, annotationStep);
 
-    	AnalysisEngineDescription xmiWriter = createEngineDescription(
-				XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION, outputDir,
-				XmiWriter.PARAM_OVERWRITE,true);
+    	AnalysisEngineDescription xmiWriter = StorageFormat.getIntermediateFormat()
+				.createWriterDescription(outputDir);
         SimplePipeline.runPipeline(reader, mTurkAnnotationAdder,xmiWriter);
     }
 
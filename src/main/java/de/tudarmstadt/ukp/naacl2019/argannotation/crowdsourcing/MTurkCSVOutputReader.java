@@ -18,41 +18,75 @@
 
 package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Reader for the tab-separated output from Mechanical Turk. As the output is not a standard
- * CSV file, it requires a special treatment by parsing. This class provides iterating over
- * entries as a map (column name, value)
+ * CSV file, it requires a special treatment by parsing, which is done once per file by
+ * {@link MTurkResultStore}. This class provides iterating over entries as a map (column name,
+ * value)
+ *
+ * Several files (e.g. the downloads of several batches, also gzipped) are parsed in parallel,
+ * one thread per core, and merged in the order they are given. An assignment (HIT ID, worker
+ * ID and, for the unpacked rows of a packed HIT, the HIT ID of the item) that is contained in
+ * several files is read only from the first one. The duplicates are found with a 64 bit hash of
+ * each assignment, which costs at most 32 bytes per accepted assignment while the files are
+ * merged (nothing for a single file) and one bit per row afterwards in streaming mode. A row
+ * is only skipped if its IDs equal those of the row with the same hash, so two assignments with
+ * the same hash are both read.
  *
  */
 public class MTurkCSVOutputReader
         implements Iterable<Map<String, String>>
 {
 
-    private static final boolean DEBUG = false;
-
     private final List<Map<String, String>> records = new ArrayList<>();
 
     private final Set<String> columnNames = new TreeSet<>();
 
     private final Map<File, String> hitTypeIdForFile = new HashMap<>();
 
+    private final Set<String> requiredFields;
+
+    private final boolean readOnlyAcceptedOrRejected;
+
+    private final boolean streaming;
+
+    // streaming mode: the results of each file and their column index
+    private final List<MTurkResultStore> stores = new ArrayList<>();
+
+    private final List<ColumnIndex> columnIndexes = new ArrayList<>();
+
+    // streaming mode: rows of each file that are duplicates of assignments read before
+    private final List<BitSet> duplicateRows = new ArrayList<>();
+
+    // streaming mode: values shared by the records
+    private final ConcurrentMap<String, String> internedValues = new ConcurrentHashMap<>();
+
     /**
      * Loads and parses the MTurk output files
      *
@@ -66,87 +100,168 @@ public class MTurkCSVOutputReader
             boolean readOnlyAcceptedOrRejected, File... files)
             throws IOException
     {
-        Set<String> requiredFields = new HashSet<>(Arrays.asList("hitid", "hittypeid"));
-        requiredFields.addAll(additionalRequiredFields);
-
-        for (File file : files) {
-            InputStreamReader in = new InputStreamReader(new FileInputStream(file), "utf-8");
-            BufferedReader br = new BufferedReader(in);
-
-            List<String> lines = new ArrayList<>();
-
-            String line = br.readLine();
-
-            StringBuilder incompleteLine = new StringBuilder();
-            while (line != null) {
-                String trim = line.trim();
-                // this is a "correct" line, ending with [tab]"xxx" (but not [tab]")
-                if (trim.endsWith("\"") && !trim.endsWith("\t\"")) {
-                    incompleteLine.append(trim);
-                    lines.add(incompleteLine.toString().trim());
+        this(additionalRequiredFields, readOnlyAcceptedOrRejected, false, files);
+    }
 
-                    incompleteLine = new StringBuilder();
-                }
-                else {
-                    incompleteLine.append(" ").append(trim);
+    /**
+     * Loads and parses the MTurk output files
+     *
+     * @param additionalRequiredFields   fields in records that must be present (not null)
+     * @param readOnlyAcceptedOrRejected If set to false, all HITs regardless of the status
+     *                                   will be processed (including Submitted, etc.)
+     * @param streaming                  If set to true, the records are not kept in memory, but
+     *                                   read from the indexed files whenever the reader is
+     *                                   iterated; the records are then read-only and missing
+     *                                   required fields are reported during the iteration
+     * @param files                      files or several files
+     * @throws IOException I/O exception
+     */
+    public MTurkCSVOutputReader(Set<String> additionalRequiredFields,
+            boolean readOnlyAcceptedOrRejected, boolean streaming, File... files)
+            throws IOException
+    {
+        this.requiredFields = new HashSet<>(Arrays.asList("hitid", "hittypeid"));
+        this.requiredFields.addAll(additionalRequiredFields);
+        this.readOnlyAcceptedOrRejected = readOnlyAcceptedOrRejected;
+        this.streaming = streaming;
+
+        int threads = Math.max(1,
+                Math.min(files.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // each file is parsed once, even if it is given twice
+            Map<File, Future<LoadedFile>> loadsByFile = new HashMap<>();
+            List<Future<LoadedFile>> loads = new ArrayList<>();
+            for (final File file : files) {
+                Future<LoadedFile> load = loadsByFile.get(file.getCanonicalFile());
+                if (load == null) {
+                    load = executor.submit(new Callable<LoadedFile>()
+                    {
+                        @Override
+                        public LoadedFile call()
+                            throws IOException
+                        {
+                            return load(file);
+                        }
+                    });
+                    loadsByFile.put(file.getCanonicalFile(), load);
                 }
-
-                line = br.readLine();
+                loads.add(load);
             }
 
-            br.close();
-            in.close();
-
-            if (DEBUG) {
-                for (String s : lines) {
-                    System.out.println("=" + s.substring(0, 20) + "..." + s
-                            .substring(s.length() - 20, s.length()) + "=");
-                }
+            // merge in the order of the files, regardless of which one is parsed first; the
+            // assignments of a single file are unique, so they are only tracked for several
+            AssignmentKeys assignments = loadsByFile.size() > 1 ? new AssignmentKeys() : null;
+            Set<Future<LoadedFile>> merged = new HashSet<>();
+            for (int i = 0; i < files.length; i++) {
+                merge(files[i], loads.get(i).get(), !merged.add(loads.get(i)), assignments);
             }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 
-            System.out.println("Loaded " + lines.size() + " lines from " + file);
-
-            String header = lines.get(0);
-            SortedMap<Integer, String> headerMapping = extractHeaderMapping(header);
+    /**
+     * Parses a file, called by the worker threads
+     *
+     * @param file CSV MTurk file
+     * @return the parsed file
+     * @throws IOException I/O exception
+     */
+    private LoadedFile load(File file)
+            throws IOException
+    {
+        MTurkResultStore results = MTurkResultStore.open(file);
 
-            columnNames.addAll(headerMapping.values());
+        if (streaming) {
+            return new LoadedFile(results, null, extractHitTypeId(results, file));
+        }
 
-            List<Map<String, String>> extractRecords = extractRecords(
-                    lines.subList(1, lines.size()), headerMapping, requiredFields, file);
+        List<Map<String, String>> extractRecords = extractRecords(results, requiredFields, file);
 
-            // update hit type id for this file
-            String hitTypeId = null;
-            for (Map<String, String> record : extractRecords) {
-                String typeId = record.get("hittypeid");
-                if (hitTypeId == null) {
-                    hitTypeId = typeId;
-                }
-                else if (!hitTypeId.equals(typeId)) {
-                    System.err.println("Several hitTypeIds found in file " + file);
-                }
+        // update hit type id for this file
+        String hitTypeId = null;
+        for (Map<String, String> record : extractRecords) {
+            String typeId = record.get("hittypeid");
+            if (hitTypeId == null) {
+                hitTypeId = typeId;
             }
-            hitTypeIdForFile.put(file, hitTypeId);
-
-            System.out.println("Extracted " + extractRecords.size() + " assignments from " + file);
-
-            // all all records that are not duplicate (HIT ID, and worker ID)
-            List<Map<String, String>> recordsToBeAdded = new ArrayList<>();
-            for (Map<String, String> newRecord : extractRecords) {
-                boolean approved = "Approved".equals(newRecord.get("assignmentstatus"));
-                boolean rejected = "Rejected".equals(newRecord.get("assignmentstatus"));
+            else if (!hitTypeId.equals(typeId)) {
+                System.err.println("Several hitTypeIds found in file " + file);
+            }
+        }
+        return new LoadedFile(results, extractRecords, hitTypeId);
+    }
 
-                // we load only approved or rejected assignments by default
-                if (!(approved || rejected) && readOnlyAcceptedOrRejected) {
-                    System.err.println("Skipping unexpected assignmentstatus: " + newRecord
-                            .get("assignmentstatus") + ", HIT: " + newRecord.get("hitid"));
+    /**
+     * Adds the records of a parsed file, skipping assignments that have been read before
+     *
+     * @param file        CSV MTurk file
+     * @param loaded      the parsed file
+     * @param repeated    whether the file has been merged before, i.e. it was given twice
+     * @param assignments the assignments read before, updated; null if there is only one file
+     */
+    private void merge(File file, LoadedFile loaded, boolean repeated,
+            AssignmentKeys assignments)
+    {
+        MTurkResultStore results = loaded.results;
+
+        System.out.println("Loaded " + results.size() + " rows from " + file);
+
+        columnNames.addAll(results.getColumnNames());
+        hitTypeIdForFile.put(file, loaded.hitTypeId);
+
+        int fileIndex = assignments == null ? -1 : assignments.addFile(results);
+        int duplicates = 0;
+        if (streaming) {
+            stores.add(results);
+            columnIndexes.add(new ColumnIndex(results.getColumnNames()));
+            BitSet duplicateRowsOfFile = new BitSet(results.size());
+            for (MTurkResultStore.Row row : results) {
+                if (hasAcceptedStatus(recordValue(row.get("assignmentstatus")))
+                        && isDuplicate(repeated, assignments, fileIndex, row)) {
+                    duplicateRowsOfFile.set(row.getIndex());
+                    duplicates++;
                 }
-                else {
-                    recordsToBeAdded.add(newRecord);
+            }
+            duplicateRows.add(duplicateRowsOfFile);
+        }
+        else {
+            System.out.println(
+                    "Extracted " + loaded.records.size() + " assignments from " + file);
+
+            // add all records that are not duplicate (HIT ID, worker ID and item HIT ID); there
+            // is one record per row
+            for (int i = 0; i < loaded.records.size(); i++) {
+                Map<String, String> newRecord = loaded.records.get(i);
+                if (isAccepted(newRecord)) {
+                    if (isDuplicate(repeated, assignments, fileIndex, results.getRow(i))) {
+                        duplicates++;
+                    }
+                    else {
+                        records.add(newRecord);
+                    }
                 }
-
             }
-            records.addAll(recordsToBeAdded);
-            //            records.addAll(extractRecords);
+        }
+        if (duplicates > 0) {
+            System.err.println("Skipped " + duplicates
+                    + " assignments (HIT ID, worker ID, item HIT ID) that were read before from "
+                    + file);
         }
     }
 
@@ -201,46 +316,29 @@ public class MTurkCSVOutputReader
     /**
      * Extracts the records
      *
-     * @param lines         lines
-     * @param headerMapping mapping from position to column name
+     * @param results       rows of the CSV MTurk file
      * @param file          CSV MTurk file
      * @return list of records
      */
-    private static List<Map<String, String>> extractRecords(List<String> lines,
-            Map<Integer, String> headerMapping, Set<String> requiredFields, File file)
+    private static List<Map<String, String>> extractRecords(MTurkResultStore results,
+            Set<String> requiredFields, File file)
     {
-        List<Map<String, String>> result = new ArrayList<>(lines.size());
-
-        for (String line : lines) {
-            List<String> stripLine = readAndStripLine(line);
+        List<Map<String, String>> result = new ArrayList<>(results.size());
 
+        for (MTurkResultStore.Row row : results) {
             Map<String, String> record = new HashMap<>();
 
-            for (int i = 0; i < stripLine.size(); i++) {
-                String entry = stripLine.get(i).trim();
+            for (Map.Entry<String, String> cell : row.toMap().entrySet()) {
+                String entry = cell.getValue().trim();
 
                 // ignore empty records
                 if (!entry.isEmpty()) {
-                    String columnName = headerMapping.get(i);
-
-                    record.put(columnName, entry);
+                    record.put(cell.getKey(), entry);
                 }
             }
 
             // sanity check - some fields are required
-            for (String requiredField : requiredFields) {
-                if (!record.keySet().contains(requiredField)) {
-                    throw new IllegalStateException(
-                            "Field " + requiredField + " is missing in record " + record
-                                    + " in file " + file.getAbsoluteFile());
-                }
-
-                if (record.get(requiredField) == null) {
-                    throw new IllegalStateException(
-                            "Required field " + requiredField + " is null in file " + file
-                                    .getAbsoluteFile());
-                }
-            }
+            checkRequiredFields(record, requiredFields, file);
 
             // we can filter out unimportant entries
             SortedMap<String, String> filteredRecord = removeUnimportantEntriesFromRow(record);
@@ -252,51 +350,188 @@ public class MTurkCSVOutputReader
     }
 
     /**
-     * Extracts mapping from the first line (header) = (position, name)
+     * Checks the status of the record
      *
-     * @param headerLine first line
-     * @return mapping
+     * @param record record
+     * @return true, if the record is to be processed
      */
-    private static SortedMap<Integer, String> extractHeaderMapping(String headerLine)
+    private boolean isAccepted(Map<String, String> record)
     {
-        List<String> list = readAndStripLine(headerLine);
+        if (!hasAcceptedStatus(record.get("assignmentstatus"))) {
+            System.err.println("Skipping unexpected assignmentstatus: " + record
+                    .get("assignmentstatus") + ", HIT: " + record.get("hitid"));
+            return false;
+        }
+        return true;
+    }
 
-        SortedMap<Integer, String> result = new TreeMap<>();
+    /**
+     * Checks the status of an assignment, without reporting skipped assignments
+     *
+     * @param assignmentStatus status, may be null
+     * @return true, if the assignment is to be processed
+     */
+    private boolean hasAcceptedStatus(String assignmentStatus)
+    {
+        boolean approved = "Approved".equals(assignmentStatus);
+        boolean rejected = "Rejected".equals(assignmentStatus);
 
-        for (int i = 0; i < list.size(); i++) {
-            result.put(i, list.get(i));
+        // we load only approved or rejected assignments by default
+        return approved || rejected || !readOnlyAcceptedOrRejected;
+    }
+
+    /**
+     * Checks whether an accepted assignment has been read before, and records it otherwise
+     *
+     * @param repeated    whether its file has been merged before
+     * @param assignments the assignments read before, null if there is only one file
+     * @param file        index of the file in the assignments, -1 if there is only one file
+     * @param row         row of the assignment
+     * @return true, if the assignment is to be skipped
+     */
+    private static boolean isDuplicate(boolean repeated, AssignmentKeys assignments, int file,
+            MTurkResultStore.Row row)
+    {
+        if (assignments == null) {
+            return repeated;
         }
+        return !assignments.add(file, row);
+    }
 
-        return result;
+    /**
+     * Returns the IDs of an assignment for the detection of duplicates. The unpacked rows of a
+     * packed HIT share the HIT ID and worker ID, so the HIT ID of the item is part of them.
+     *
+     * @param row row of the assignment
+     * @return HIT ID, worker ID and item HIT ID, each null if empty
+     */
+    private static String[] getAssignmentIDs(MTurkResultStore.Row row)
+    {
+        return new String[] { recordValue(row.get("hitid")), recordValue(row.get("workerid")),
+                recordValue(row.get(PackedHITResults.ANNOTATION)) };
     }
 
     /**
-     * Reads a single line, splits by tabulator, and trims the content; also removes opening anc
-     * closing parentheses and normalizes double parentheses in the content
+     * Returns the key of an assignment for the detection of duplicates, a 64 bit FNV-1a hash
      *
-     * @param line line
-     * @return list of cells
+     * @param ids IDs of the assignment, may be null
+     * @return key
      */
-    private static List<String> readAndStripLine(String line)
+    private static long getAssignmentKey(String[] ids)
     {
-        List<String> result = new ArrayList<>();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                hash = (hash ^ '\t') * 0x100000001b3L;
+            }
+            hash = hash(hash, String.valueOf(ids[i]));
+        }
+        return hash;
+    }
 
-        for (String entry : line.split("\t")) {
-            result.add(
-                    entry.replaceAll("^\"", "").replaceAll("\"$", "").replace("\"\"", "\"").trim());
+    private static long hash(long hash, String value)
+    {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
         }
+        return hash;
+    }
 
-        return result;
+    /**
+     * Returns the value of a cell as in the records
+     *
+     * @param cell cell of a row, may be null
+     * @return trimmed value, null if empty
+     */
+    private static String recordValue(String cell)
+    {
+        if (cell == null || cell.trim().isEmpty()) {
+            return null;
+        }
+        return cell.trim();
+    }
+
+    private static void checkRequiredFields(Map<String, String> record,
+            Set<String> requiredFields, File file)
+    {
+        for (String requiredField : requiredFields) {
+            if (!record.keySet().contains(requiredField)) {
+                throw new IllegalStateException(
+                        "Field " + requiredField + " is missing in record " + record
+                                + " in file " + file.getAbsoluteFile());
+            }
+
+            if (record.get(requiredField) == null) {
+                throw new IllegalStateException(
+                        "Required field " + requiredField + " is null in file " + file
+                                .getAbsoluteFile());
+            }
+        }
     }
 
     /**
-     * Iterator over the records
+     * Reads the hittypeid column only
+     *
+     * @param results rows of the CSV MTurk file
+     * @param file    CSV MTurk file
+     * @return hit type id of the file
+     */
+    private static String extractHitTypeId(MTurkResultStore results, File file)
+    {
+        String hitTypeId = null;
+        for (MTurkResultStore.Row row : results) {
+            String typeId = row.get("hittypeid");
+            if (typeId == null || typeId.trim().isEmpty()) {
+                continue;
+            }
+            if (hitTypeId == null) {
+                hitTypeId = typeId.trim();
+            }
+            else if (!hitTypeId.equals(typeId.trim())) {
+                System.err.println("Several hitTypeIds found in file " + file);
+                break;
+            }
+        }
+        return hitTypeId;
+    }
+
+    /**
+     * Creates the compact record of a row; the values of some columns are shared by all records
+     *
+     * @param row     row of a CSV MTurk file
+     * @param columns column index of the file
+     * @return record
+     */
+    private CompactRecord createCompactRecord(MTurkResultStore.Row row, ColumnIndex columns)
+    {
+        String[] values = new String[columns.names.length];
+        for (int i = 0; i < values.length; i++) {
+            String entry = row.get(columns.names[i]).trim();
+
+            // ignore empty records
+            if (!entry.isEmpty()) {
+                if (INTERNED_COLUMNS.contains(columns.names[i])) {
+                    String interned = internedValues.putIfAbsent(entry, entry);
+                    entry = interned == null ? entry : interned;
+                }
+                values[i] = entry;
+            }
+        }
+        return new CompactRecord(columns, values);
+    }
+
+    /**
+     * Iterator over the records. In streaming mode, each call reads the records from the files
+     * again, and only the current record is kept in memory.
      *
      * @return iterator
      */
     @Override
     public Iterator<Map<String, String>> iterator()
     {
+        if (streaming) {
+            return new StreamingIterator();
+        }
         return records.iterator();
     }
 
@@ -327,4 +562,282 @@ public class MTurkCSVOutputReader
         return result;
     }
 
+    /**
+     * Columns whose values are shared by all records in streaming mode; they take only a few
+     * distinct values
+     */
+    private final static Set<String> INTERNED_COLUMNS = new HashSet<>(Arrays.asList(
+            "hittypeid", "assignmentstatus", "workerid", "Answer.intext"));
+
+    /**
+     * Iterates over the records of all files, creating each record only when it is needed
+     */
+    private class StreamingIterator
+            implements Iterator<Map<String, String>>
+    {
+        private int file = 0;
+
+        private int row = 0;
+
+        private Map<String, String> next;
+
+        @Override
+        public boolean hasNext()
+        {
+            while (next == null && file < stores.size()) {
+                MTurkResultStore results = stores.get(file);
+                if (row == results.size()) {
+                    file++;
+                    row = 0;
+                    continue;
+                }
+                if (duplicateRows.get(file).get(row)) {
+                    row++;
+                    continue;
+                }
+                CompactRecord record = createCompactRecord(results.getRow(row++),
+                        columnIndexes.get(file));
+                checkRequiredFields(record, requiredFields, results.getResultFile());
+                if (isAccepted(record)) {
+                    next = record;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map<String, String> next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<String, String> result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * Set of assignments without boxing: open addressing of their keys in a long array, which is
+     * kept at most half full, next to the file and row of each key. A key that is found is
+     * confirmed with the IDs of its row, so assignments with the same key are all added.
+     */
+    private static final class AssignmentKeys
+    {
+        private final List<MTurkResultStore> files = new ArrayList<>();
+
+        private long[] keys = new long[1 << 10];
+
+        // file index << 32 | row index
+        private long[] rows = new long[1 << 10];
+
+        private int size;
+
+        /**
+         * @param results the rows of the next file
+         * @return index of the file
+         */
+        private int addFile(MTurkResultStore results)
+        {
+            files.add(results);
+            return files.size() - 1;
+        }
+
+        /**
+         * @param file index of the file of the row
+         * @param row  row of the assignment
+         * @return true, if the assignment has not been added before
+         */
+        private boolean add(int file, MTurkResultStore.Row row)
+        {
+            String[] ids = getAssignmentIDs(row);
+            long key = getAssignmentKey(ids);
+            // 0 marks the empty slots
+            if (key == 0) {
+                key = 1;
+            }
+            if (2 * (size + 1) > keys.length) {
+                long[] oldKeys = keys;
+                long[] oldRows = rows;
+                keys = new long[2 * oldKeys.length];
+                rows = new long[2 * oldRows.length];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        int slot = emptySlot(oldKeys[i]);
+                        keys[slot] = oldKeys[i];
+                        rows[slot] = oldRows[i];
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int slot = firstSlot(key);
+            while (keys[slot] != 0) {
+                if (keys[slot] == key && Arrays.equals(ids, getAssignmentIDs(getRow(rows[slot])))) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            rows[slot] = (long) file << 32 | row.getIndex();
+            size++;
+            return true;
+        }
+
+        private MTurkResultStore.Row getRow(long position)
+        {
+            return files.get((int) (position >>> 32)).getRow((int) position);
+        }
+
+        private int firstSlot(long key)
+        {
+            // the low bits of FNV-1a are poorly mixed
+            return (int) ((key ^ (key >>> 32)) * 0x9e3779b97f4a7c15L >>> 32) & (keys.length - 1);
+        }
+
+        private int emptySlot(long key)
+        {
+            int mask = keys.length - 1;
+            int slot = firstSlot(key);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * A file parsed by a worker thread
+     */
+    private static final class LoadedFile
+    {
+        private final MTurkResultStore results;
+
+        // null in streaming mode
+        private final List<Map<String, String>> records;
+
+        private final String hitTypeId;
+
+        private LoadedFile(MTurkResultStore results, List<Map<String, String>> records,
+                String hitTypeId)
+        {
+            this.results = results;
+            this.records = records;
+            this.hitTypeId = hitTypeId;
+        }
+    }
+
+    /**
+     * Sorted column names of a file without the unimportant entries, shared by all its records
+     */
+    private static final class ColumnIndex
+    {
+        private final String[] names;
+
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        private ColumnIndex(List<String> columns)
+        {
+            SortedSet<String> sorted = new TreeSet<>(columns);
+            sorted.removeAll(Arrays.asList(UNIMPORTANT_ENTRIES));
+            names = sorted.toArray(new String[sorted.size()]);
+            for (int i = 0; i < names.length; i++) {
+                positions.put(names[i], i);
+            }
+        }
+    }
+
+    /**
+     * Read-only record holding only an array of values, sorted by column name like the records
+     * that are kept in memory
+     */
+    private static final class CompactRecord
+            extends AbstractMap<String, String>
+    {
+        private final ColumnIndex columns;
+
+        private final String[] values;
+
+        private final int size;
+
+        private CompactRecord(ColumnIndex columns, String[] values)
+        {
+            this.columns = columns;
+            this.values = values;
+            int count = 0;
+            for (String value : values) {
+                if (value != null) {
+                    count++;
+                }
+            }
+            this.size = count;
+        }
+
+        @Override
+        public String get(Object key)
+        {
+            Integer position = columns.positions.get(key);
+            return position == null ? null : values[position];
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet()
+        {
+            return new AbstractSet<Entry<String, String>>()
+            {
+                @Override
+                public Iterator<Entry<String, String>> iterator()
+                {
+                    return new Iterator<Entry<String, String>>()
+                    {
+                        private int position = advance(0);
+
+                        private int advance(int from)
+                        {
+                            while (from < values.length && values[from] == null) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return position < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next()
+                        {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> entry = new SimpleImmutableEntry<>(
+                                    columns.names[position], values[position]);
+                            position = advance(position + 1);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+            };
+        }
+    }
+
 }
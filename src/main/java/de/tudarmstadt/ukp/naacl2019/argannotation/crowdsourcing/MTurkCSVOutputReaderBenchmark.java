@@ -0,0 +1,216 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+/**
+ * Compares the loaded and the streaming mode of {@link MTurkCSVOutputReader} on a synthetic
+ * .result file (by default 1M assignments, 3 per HIT). For each mode, the time, the bytes
+ * allocated by the reading thread and the heap retained while iterating are reported. The loaded
+ * mode keeps all records in memory, so it needs a large heap (-Xmx) for the default size.
+ *
+ */
+public class MTurkCSVOutputReaderBenchmark
+{
+	@Option(name="-o",aliases = { "--output" },metaVar="dir",usage="temporary folder for the synthetic result file, deleted afterwards")
+	private File outputDir = new File("target/mturk-reader-benchmark");
+
+	@Option(name="-n",aliases = { "--assignments" },metaVar="N",usage="number of assignments in the synthetic result file")
+	private int assignments = 1000000;
+
+	@Option(name="-s",aliases = { "--streamingOnly" },usage="skip the loaded mode")
+	private boolean streamingOnly = false;
+
+	private static final String[] COLUMNS = { "hitid", "hittypeid", "title", "description",
+			"keywords", "reward", "creationtime", "assignments", "numavailable", "numpending",
+			"numcomplete", "hitstatus", "reviewstatus", "annotation", "assignmentduration",
+			"autoapprovaldelay", "hitlifetime", "viewhit", "assignmentid", "workerid",
+			"assignmentstatus", "autoapprovaltime", "assignmentaccepttime",
+			"assignmentsubmittime", "assignmentapprovaltime", "assignmentrejecttime", "deadline",
+			"feedback", "reject", "Answer.intext", "Answer.textinput", "Answer.tokens" };
+
+	private static final int WORKERS = 500;
+	private static final int ASSIGNMENTS_PER_HIT = 3;
+
+	public void runBenchmark()
+			throws IOException
+	{
+		FileUtils.deleteQuietly(outputDir);
+		outputDir.mkdirs();
+		File resultFile = new File(outputDir, "synthetic.result");
+		writeResultFile(resultFile, assignments);
+		System.out.println("Wrote " + assignments + " assignments (" + (resultFile.length() >> 20)
+				+ " MB) to " + resultFile);
+
+		long start = System.nanoTime();
+		MTurkResultStore.open(resultFile);
+		System.out.println("Index: " + millis(System.nanoTime() - start) + " ms");
+
+		if (!streamingOnly) {
+			measure("loaded", resultFile, false);
+		}
+		measure("streaming", resultFile, true);
+		FileUtils.deleteQuietly(outputDir);
+	}
+
+	private void measure(String mode, File resultFile, boolean streaming)
+			throws IOException
+	{
+		long heapBefore = usedHeap();
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+
+		MTurkCSVOutputReader reader = new MTurkCSVOutputReader(
+				Collections.<String> emptySet(), true, streaming, resultFile);
+		int records = 0;
+		long characters = 0;
+		long retained = 0;
+		for (Map<String, String> record : reader) {
+			characters += record.get("workerid").length() + record.get("Answer.tokens").length();
+			if (++records == assignments / 2) {
+				// halfway through, with the reader still in use
+				retained = usedHeap() - heapBefore;
+			}
+		}
+
+		long time = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+		System.out.println(mode + ": " + records + " records (" + characters + " chars), "
+				+ millis(time) + " ms, allocated " + (allocated >> 20) + " MB ("
+				+ (allocated / Math.max(records, 1)) + " bytes/record), retained "
+				+ (retained >> 20) + " MB");
+	}
+
+	/**
+	 * Writes a synthetic result file of major claim HITs with the columns of MTurk results, used
+	 * by the other MTurk benchmarks too.
+	 */
+	static void writeResultFile(File resultFile, int assignments)
+			throws IOException
+	{
+		Random random = new Random(0);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(resultFile), "utf-8"), 1 << 16)) {
+			writeRow(writer, COLUMNS);
+			String[] row = new String[COLUMNS.length];
+			for (int a = 0; a < assignments; a++) {
+				int hit = a / ASSIGNMENTS_PER_HIT;
+				for (int c = 0; c < COLUMNS.length; c++) {
+					row[c] = "";
+				}
+				row[0] = "3" + String.format("%029d", hit);
+				row[1] = "3SYNTHETICHITTYPE0000000000000";
+				row[2] = "Find the major claim";
+				row[3] = "Read a review and select its major claim";
+				row[5] = "$0.10";
+				row[11] = "Reviewable";
+				row[13] = new HITId(HITId.MAJOR_CLAIM, "review" + hit, -1).toString();
+				row[18] = "3" + String.format("%029d", a);
+				row[19] = "A" + String.format("%013d", random.nextInt(WORKERS));
+				row[20] = random.nextInt(10) == 0 ? "Rejected" : "Approved";
+				row[22] = "Mon Jan 15 10:00:00 PST 2018";
+				row[23] = "Mon Jan 15 10:03:00 PST 2018";
+				if (random.nextInt(20) == 0) {
+					// comments may span several lines and contain quotes
+					row[29] = "false";
+					row[30] = "The review has no \"major claim\".\nIt only lists facts.";
+				}
+				else {
+					row[29] = "true";
+				}
+				StringBuilder tokens = new StringBuilder();
+				int first = random.nextInt(200);
+				for (int t = first; t < first + 5 + random.nextInt(20); t++) {
+					if (tokens.length() > 0) {
+						tokens.append(",");
+					}
+					tokens.append("token_").append(t);
+				}
+				row[31] = tokens.toString();
+				writeRow(writer, row);
+			}
+		}
+	}
+
+	private static void writeRow(Writer writer, String[] cells)
+			throws IOException
+	{
+		for (int c = 0; c < cells.length; c++) {
+			if (c > 0) {
+				writer.write("\t");
+			}
+			writer.write("\"" + cells[c].replace("\"", "\"\"") + "\"");
+		}
+		writer.write("\n");
+	}
+
+	private static long allocatedBytes()
+	{
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static long usedHeap()
+	{
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long millis(long nanos)
+	{
+		return Math.round(nanos / 1e6);
+	}
+
+	public static void main(String[] args)
+			throws IOException
+	{
+		new MTurkCSVOutputReaderBenchmark().doMain(args);
+	}
+
+	private void doMain(String[] args) throws IOException {
+		CmdLineParser parser = new CmdLineParser(this);
+		try {
+            // parse the arguments.
+            parser.parseArgument(args);
+            runBenchmark();
+        } catch( CmdLineException e ) {
+            System.err.println(e.getMessage());
+            System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
+            parser.printUsage(System.err);
+            System.err.println();
+            return;
+        }
+	}
+}
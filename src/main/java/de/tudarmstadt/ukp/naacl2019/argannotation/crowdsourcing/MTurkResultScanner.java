@@ -0,0 +1,210 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Scanner for the tab-separated output of Mechanical Turk, reading the input in a single pass.
+ * Cells may be quoted; quoted cells may contain tabs and line breaks, and a doubled quote stands
+ * for a quote. The quotes are removed, and the cells of the current record are slices of a buffer
+ * that is reused for the next record, so scanning allocates no strings unless
+ * {@link #getCell(int)} is called. Empty lines are skipped.
+ *
+ */
+public class MTurkResultScanner
+    implements Closeable
+{
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+    private final char[] input = new char[1 << 16];
+    private int inputPosition;
+    private int inputLength;
+    private boolean started;
+
+    // the unquoted cells of the current record, one after the other
+    private char[] buffer = new char[1 << 12];
+    private int length;
+    private int[] cellEnds = new int[64];
+    private int cellCount;
+
+    /**
+     * @param reader
+     *            the MTurk output, buffering is done by the scanner
+     */
+    public MTurkResultScanner(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * Scans the next record.
+     *
+     * @return false, if there are no more records
+     * @throws IOException
+     *             I/O exception
+     */
+    public boolean next()
+        throws IOException
+    {
+        length = 0;
+        cellCount = 0;
+
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == BYTE_ORDER_MARK) {
+                c = read();
+            }
+        }
+        while (c == '\n' || c == '\r') {
+            c = read();
+        }
+        if (c == -1) {
+            return false;
+        }
+
+        boolean quoted = false;
+        boolean cellStart = true;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    // unterminated quote at the end of the input
+                    endCell();
+                    return true;
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                append((char) c);
+            }
+            else if (c == '\t') {
+                endCell();
+                cellStart = true;
+                c = read();
+                continue;
+            }
+            else if (c == '\n' || c == -1) {
+                endCell();
+                return true;
+            }
+            else if (c == '"' && cellStart) {
+                quoted = true;
+            }
+            else if (c != '\r') {
+                append((char) c);
+            }
+            cellStart = false;
+            c = read();
+        }
+    }
+
+    /**
+     * @return number of cells of the current record
+     */
+    public int getCellCount()
+    {
+        return cellCount;
+    }
+
+    /**
+     * @return the buffer containing the cells of the current record, valid until the next call
+     *         of {@link #next()}
+     */
+    public char[] getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * @param cell
+     *            index of the cell
+     * @return start of the cell in the buffer
+     */
+    public int getCellStart(int cell)
+    {
+        return cell == 0 ? 0 : cellEnds[cell - 1];
+    }
+
+    /**
+     * @param cell
+     *            index of the cell
+     * @return end of the cell in the buffer (exclusive)
+     */
+    public int getCellEnd(int cell)
+    {
+        return cellEnds[cell];
+    }
+
+    /**
+     * @param cell
+     *            index of the cell
+     * @return the cell as a new string
+     */
+    public String getCell(int cell)
+    {
+        int start = getCellStart(cell);
+        return new String(buffer, start, cellEnds[cell] - start);
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        reader.close();
+    }
+
+    private int read()
+        throws IOException
+    {
+        if (inputPosition == inputLength) {
+            inputLength = reader.read(input, 0, input.length);
+            inputPosition = 0;
+            if (inputLength <= 0) {
+                inputLength = 0;
+                return -1;
+            }
+        }
+        return input[inputPosition++];
+    }
+
+    private void append(char c)
+    {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * length);
+        }
+        buffer[length++] = c;
+    }
+
+    private void endCell()
+    {
+        if (cellCount == cellEnds.length) {
+            cellEnds = Arrays.copyOf(cellEnds, 2 * cellCount);
+        }
+        cellEnds[cellCount++] = length;
+    }
+}
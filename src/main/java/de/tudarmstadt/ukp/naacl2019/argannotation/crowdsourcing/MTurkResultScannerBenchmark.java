@@ -0,0 +1,202 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+/**
+ * Compares the parsers of MTurk .result files on a synthetic file (see
+ * {@link MTurkCSVOutputReaderBenchmark}): the former line-based parser of
+ * {@link MTurkCSVOutputReader} (joining lines, splitting and stripping the quotes with regular
+ * expressions), commons-csv, and {@link MTurkResultScanner}, both with cells as slices of its
+ * buffer and with a string per cell. Each parser reads the file several times; the best time and
+ * the bytes allocated per record are reported.
+ *
+ */
+public class MTurkResultScannerBenchmark
+{
+	@Option(name="-o",aliases = { "--output" },metaVar="dir",usage="temporary folder for the synthetic result file, deleted afterwards")
+	private File outputDir = new File("target/mturk-scanner-benchmark");
+
+	@Option(name="-n",aliases = { "--assignments" },metaVar="N",usage="number of assignments in the synthetic result file")
+	private int assignments = 200000;
+
+	@Option(name="-r",aliases = { "--repetitions" },metaVar="N",usage="number of times each parser reads the file")
+	private int repetitions = 5;
+
+	private enum Parser
+	{
+		LINES, COMMONS_CSV, SCANNER_SLICES, SCANNER_STRINGS
+	}
+
+	public void runBenchmark()
+			throws IOException
+	{
+		FileUtils.deleteQuietly(outputDir);
+		outputDir.mkdirs();
+		File resultFile = new File(outputDir, "synthetic.result");
+		MTurkCSVOutputReaderBenchmark.writeResultFile(resultFile, assignments);
+		System.out.println("Wrote " + assignments + " assignments (" + (resultFile.length() >> 20)
+				+ " MB) to " + resultFile);
+
+		for (Parser parser : Parser.values()) {
+			long bestTime = Long.MAX_VALUE;
+			long allocated = 0;
+			long[] counts = null;
+			for (int r = 0; r < repetitions; r++) {
+				long allocatedBefore = allocatedBytes();
+				long start = System.nanoTime();
+				counts = parse(parser, resultFile);
+				bestTime = Math.min(bestTime, System.nanoTime() - start);
+				allocated = allocatedBytes() - allocatedBefore;
+			}
+			System.out.println(parser + ": " + counts[0] + " records (" + counts[1] + " chars), "
+					+ millis(bestTime) + " ms, allocated " + (allocated / Math.max(counts[0], 1))
+					+ " bytes/record");
+		}
+		FileUtils.deleteQuietly(outputDir);
+	}
+
+	/**
+	 * @return number of records (without the header) and total length of the cells
+	 */
+	private static long[] parse(Parser parser, File resultFile)
+			throws IOException
+	{
+		long records = 0;
+		long characters = 0;
+		try (Reader in = new InputStreamReader(new FileInputStream(resultFile), "utf-8")) {
+			switch (parser) {
+			case LINES:
+				for (List<String> record : readLines(in)) {
+					records++;
+					for (String cell : record) {
+						characters += cell.length();
+					}
+				}
+				break;
+			case COMMONS_CSV:
+				for (CSVRecord record : CSVFormat.TDF.withQuote('"').parse(in)) {
+					records++;
+					for (String cell : record) {
+						characters += cell.length();
+					}
+				}
+				break;
+			default:
+				MTurkResultScanner scanner = new MTurkResultScanner(in);
+				while (scanner.next()) {
+					records++;
+					for (int i = 0; i < scanner.getCellCount(); i++) {
+						if (parser == Parser.SCANNER_STRINGS) {
+							characters += scanner.getCell(i).length();
+						}
+						else {
+							characters += scanner.getCellEnd(i) - scanner.getCellStart(i);
+						}
+					}
+				}
+			}
+		}
+		return new long[] { records - 1, characters };
+	}
+
+	/**
+	 * The former parser of {@link MTurkCSVOutputReader}
+	 */
+	private static List<List<String>> readLines(Reader in)
+			throws IOException
+	{
+		BufferedReader br = new BufferedReader(in);
+		List<String> lines = new ArrayList<>();
+		String line = br.readLine();
+		StringBuilder incompleteLine = new StringBuilder();
+		while (line != null) {
+			String trim = line.trim();
+			// this is a "correct" line, ending with [tab]"xxx" (but not [tab]")
+			if (trim.endsWith("\"") && !trim.endsWith("\t\"")) {
+				incompleteLine.append(trim);
+				lines.add(incompleteLine.toString().trim());
+				incompleteLine = new StringBuilder();
+			}
+			else {
+				incompleteLine.append(" ").append(trim);
+			}
+			line = br.readLine();
+		}
+
+		List<List<String>> records = new ArrayList<>(lines.size());
+		for (String record : lines) {
+			List<String> cells = new ArrayList<>();
+			for (String entry : record.split("\t")) {
+				cells.add(entry.replaceAll("^\"", "").replaceAll("\"$", "").replace("\"\"", "\"")
+						.trim());
+			}
+			records.add(cells);
+		}
+		return records;
+	}
+
+	private static long allocatedBytes()
+	{
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static long millis(long nanos)
+	{
+		return Math.round(nanos / 1e6);
+	}
+
+	public static void main(String[] args)
+			throws IOException
+	{
+		new MTurkResultScannerBenchmark().doMain(args);
+	}
+
+	private void doMain(String[] args) throws IOException {
+		CmdLineParser parser = new CmdLineParser(this);
+		try {
+            // parse the arguments.
+            parser.parseArgument(args);
+            runBenchmark();
+        } catch( CmdLineException e ) {
+            System.err.println(e.getMessage());
+            System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
+            parser.printUsage(System.err);
+            System.err.println();
+            return;
+        }
+	}
+}
@@ -0,0 +1,775 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The rows of an MTurk .result file, indexed by review ID and HIT number (the claim index of
+ * premise HITs, 0 for all other HITs; see {@link HITId}). The result file is parsed once into a
+ * binary index file next to it ({@value #INDEX_EXTENSION}), which is rebuilt whenever the result
+ * file changes. The result file is read with a {@link MTurkResultScanner}; gzipped result files
+ * ({@value #GZIP_EXTENSION}) are decompressed while reading. The rows stay in the
+ * memory-mapped index file and are only decoded when they are accessed; only the positions of
+ * the rows and the review IDs are kept on the heap.
+ *
+ * The results of packed HITs are unpacked into one row per HIT (see {@link PackedHITResults}).
+ * Missing cells are empty strings, as are cells of columns that only the unpacked rows have.
+ *
+ * The store can be read by several threads.
+ *
+ */
+public class MTurkResultStore
+    implements Iterable<MTurkResultStore.Row>
+{
+    public static final String INDEX_EXTENSION = ".idx";
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int MAGIC = 0x4d545249; // "MTRI"
+    private static final int VERSION = 2;
+    // rows never cross the boundary of a mapped segment
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    // magic, version, source length and modification time, position of the footer
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+
+    private final File resultFile;
+    private final List<String> columnNames;
+    private final Map<String, Integer> columnIndex;
+    private final long[] rowPositions;
+    // review ID -> HIT number -> rows
+    private final Map<String, SortedMap<Integer, int[]>> hits;
+    private final MappedByteBuffer[] segments;
+
+    private MTurkResultStore(File resultFile, File indexFile)
+        throws IOException
+    {
+        this.resultFile = resultFile;
+        long footerPosition;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile), 1 << 16))) {
+            footerPosition = readHeader(in, resultFile);
+            if (footerPosition < 0) {
+                throw new IOException("Outdated index " + indexFile);
+            }
+            skipFully(in, footerPosition - HEADER_SIZE);
+
+            int columnCount = in.readInt();
+            List<String> columns = new ArrayList<String>(columnCount);
+            columnIndex = new HashMap<String, Integer>();
+            for (int c = 0; c < columnCount; c++) {
+                columns.add(in.readUTF());
+                columnIndex.put(columns.get(c), c);
+            }
+            columnNames = Collections.unmodifiableList(columns);
+
+            rowPositions = new long[in.readInt()];
+            for (int r = 0; r < rowPositions.length; r++) {
+                rowPositions[r] = in.readLong();
+            }
+
+            int reviewCount = in.readInt();
+            hits = new HashMap<String, SortedMap<Integer, int[]>>(2 * reviewCount);
+            for (int i = 0; i < reviewCount; i++) {
+                String reviewID = in.readUTF();
+                SortedMap<Integer, int[]> numbers = new TreeMap<Integer, int[]>();
+                int numberCount = in.readInt();
+                for (int n = 0; n < numberCount; n++) {
+                    int number = in.readInt();
+                    int[] rows = new int[in.readInt()];
+                    for (int r = 0; r < rows.length; r++) {
+                        rows[r] = in.readInt();
+                    }
+                    numbers.put(number, rows);
+                }
+                hits.put(reviewID, numbers);
+            }
+        }
+
+        // the mapping remains valid after the channel is closed
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+            FileChannel channel = file.getChannel();
+            segments = new MappedByteBuffer[(int) ((footerPosition + SEGMENT_SIZE - 1)
+                    >>> SEGMENT_BITS)];
+            for (int s = 0; s < segments.length; s++) {
+                long begin = s * SEGMENT_SIZE;
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, begin,
+                        Math.min(SEGMENT_SIZE, footerPosition - begin));
+            }
+        }
+    }
+
+    /**
+     * Opens the store of a result file, building its index first if it does not exist or is
+     * outdated.
+     *
+     * @param resultFile
+     *            the MTurk .result file (tab-separated, with a header line)
+     * @return the store
+     * @throws IOException
+     *             if the result file cannot be read or the index cannot be written
+     */
+    public static MTurkResultStore open(File resultFile)
+        throws IOException
+    {
+        File indexFile = new File(resultFile.getPath() + INDEX_EXTENSION);
+        if (!isValid(indexFile, resultFile)) {
+            build(resultFile, indexFile);
+        }
+        return new MTurkResultStore(resultFile, indexFile);
+    }
+
+    /**
+     * @return the result file of this store
+     */
+    public File getResultFile()
+    {
+        return resultFile;
+    }
+
+    /**
+     * @return the column names, those of the header first
+     */
+    public List<String> getColumnNames()
+    {
+        return columnNames;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int size()
+    {
+        return rowPositions.length;
+    }
+
+    /**
+     * @param index
+     *            index of the row in the result file (after unpacking)
+     * @return the row
+     */
+    public Row getRow(int index)
+    {
+        return new Row(index);
+    }
+
+    /**
+     * @return all rows in the order of the result file
+     */
+    public List<Row> getRows()
+    {
+        return new AbstractList<Row>()
+        {
+            @Override
+            public Row get(int index)
+            {
+                return getRow(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return rowPositions.length;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Row> iterator()
+    {
+        return getRows().iterator();
+    }
+
+    /**
+     * @return the IDs of all reviews with results
+     */
+    public Set<String> getReviewIDs()
+    {
+        return Collections.unmodifiableSet(hits.keySet());
+    }
+
+    /**
+     * @param reviewID
+     *            the review
+     * @return true, if there are results for the review
+     */
+    public boolean contains(String reviewID)
+    {
+        return hits.containsKey(reviewID);
+    }
+
+    /**
+     * @param reviewID
+     *            the review
+     * @return the rows of each HIT of the review by HIT number, empty if there are none
+     */
+    public SortedMap<Integer, List<Row>> getHITs(String reviewID)
+    {
+        SortedMap<Integer, List<Row>> result = new TreeMap<Integer, List<Row>>();
+        SortedMap<Integer, int[]> numbers = hits.get(reviewID);
+        if (numbers != null) {
+            for (Map.Entry<Integer, int[]> number : numbers.entrySet()) {
+                result.put(number.getKey(), toRows(number.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param reviewID
+     *            the review
+     * @return the accepted rows of each HIT of the review by HIT number (see
+     *         {@link Row#isRejected()}), without the HITs that have none; empty if there are none
+     */
+    public SortedMap<Integer, List<Row>> getAcceptedHITs(String reviewID)
+    {
+        SortedMap<Integer, List<Row>> hits = getHITs(reviewID);
+        Iterator<List<Row>> hitIterator = hits.values().iterator();
+        while (hitIterator.hasNext()) {
+            List<Row> rows = hitIterator.next();
+            Iterator<Row> rowIterator = rows.iterator();
+            while (rowIterator.hasNext()) {
+                if (rowIterator.next().isRejected()) {
+                    rowIterator.remove();
+                }
+            }
+            if (rows.isEmpty()) {
+                hitIterator.remove();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @param reviewID
+     *            the review
+     * @return the rows of all HITs of the review in the order of the result file, empty if there
+     *         are none
+     */
+    public List<Row> getRows(String reviewID)
+    {
+        SortedMap<Integer, int[]> numbers = hits.get(reviewID);
+        if (numbers == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> indexes = new ArrayList<Integer>();
+        for (int[] rows : numbers.values()) {
+            for (int row : rows) {
+                indexes.add(row);
+            }
+        }
+        Collections.sort(indexes);
+        List<Row> result = new ArrayList<Row>(indexes.size());
+        for (int row : indexes) {
+            result.add(new Row(row));
+        }
+        return result;
+    }
+
+    private List<Row> toRows(int[] indexes)
+    {
+        List<Row> rows = new ArrayList<Row>(indexes.length);
+        for (int index : indexes) {
+            rows.add(new Row(index));
+        }
+        return rows;
+    }
+
+    private String getCell(int row, int column)
+    {
+        long position = rowPositions[row];
+        ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+        int offset = (int) (position & (SEGMENT_SIZE - 1));
+        int cellCount = segment.getInt(offset);
+        if (column >= cellCount) {
+            return "";
+        }
+        int begin = column == 0 ? 0 : segment.getInt(offset + 4 * column);
+        int end = segment.getInt(offset + 4 + 4 * column);
+        if (begin == end) {
+            return "";
+        }
+        byte[] bytes = new byte[end - begin];
+        ByteBuffer cells = segment.duplicate();
+        cells.position(offset + 4 + 4 * cellCount + begin);
+        cells.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A row of the results, decoded from the index file on access
+     */
+    public final class Row
+    {
+        private final int index;
+
+        private Row(int index)
+        {
+            this.index = index;
+        }
+
+        /**
+         * @return index of the row in the result file (after unpacking)
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+
+        /**
+         * @param column
+         *            the column name
+         * @return the value, an empty string if the row has no value in this column, or null if
+         *         there is no such column
+         */
+        public String get(String column)
+        {
+            Integer c = columnIndex.get(column);
+            return c == null ? null : getCell(index, c);
+        }
+
+        /**
+         * @return true, if the assignment has been rejected or is marked to be rejected
+         */
+        public boolean isRejected()
+        {
+            return get("assignmentstatus").equals("Rejected") || !get("reject").isEmpty();
+        }
+
+        /**
+         * @return all values of the row by column name, in the order of the columns
+         */
+        public Map<String, String> toMap()
+        {
+            Map<String, String> map = new LinkedHashMap<String, String>();
+            for (int c = 0; c < columnNames.size(); c++) {
+                map.put(columnNames.get(c), getCell(index, c));
+            }
+            return map;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toMap().toString();
+        }
+    }
+
+    /**
+     * @return the position of the footer, or -1 if the index does not belong to the current
+     *         version of the result file
+     */
+    private static long readHeader(DataInputStream in, File resultFile)
+        throws IOException
+    {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION
+                || in.readLong() != resultFile.length()
+                || in.readLong() != resultFile.lastModified()) {
+            return -1;
+        }
+        return in.readLong();
+    }
+
+    /**
+     * Opens the result file, decompressing it if it is gzipped ({@value #GZIP_EXTENSION}).
+     */
+    private static InputStream openResultFile(File resultFile)
+        throws IOException
+    {
+        InputStream in = new FileInputStream(resultFile);
+        if (resultFile.getName().endsWith(GZIP_EXTENSION)) {
+            return new GZIPInputStream(in, 1 << 16);
+        }
+        return in;
+    }
+
+    private static boolean isValid(File indexFile, File resultFile)
+        throws IOException
+    {
+        if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+            return readHeader(in, resultFile) >= 0;
+        }
+    }
+
+    private static void build(File resultFile, File indexFile)
+        throws IOException
+    {
+        System.out.println("Indexing " + resultFile);
+        long sourceLength = resultFile.length();
+        long sourceLastModified = resultFile.lastModified();
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+
+        Map<String, Integer> columnIndex = new LinkedHashMap<String, Integer>();
+        RowPositions rowPositions = new RowPositions();
+        Map<String, SortedMap<Integer, List<Integer>>> hits = new LinkedHashMap<String, SortedMap<Integer, List<Integer>>>();
+        long position;
+
+        try (Reader in = new InputStreamReader(openResultFile(resultFile),
+                StandardCharsets.UTF_8);
+                IndexOutputStream out = new IndexOutputStream(tmpFile)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceLastModified);
+            out.writeLong(0); // position of the footer, written at the end
+
+            MTurkResultScanner scanner = new MTurkResultScanner(in);
+            if (scanner.next()) {
+                // header position -> column, and the header position of each column
+                int[] headerColumns = new int[scanner.getCellCount()];
+                for (int i = 0; i < headerColumns.length; i++) {
+                    String column = scanner.getCell(i);
+                    if (!columnIndex.containsKey(column)) {
+                        columnIndex.put(column, columnIndex.size());
+                    }
+                    headerColumns[i] = columnIndex.get(column);
+                }
+                int[] headerPositions = new int[columnIndex.size()];
+                for (int i = 0; i < headerColumns.length; i++) {
+                    headerPositions[headerColumns[i]] = i;
+                }
+                List<String> header = new ArrayList<String>(columnIndex.keySet());
+                Integer annotationColumn = columnIndex.get(PackedHITResults.ANNOTATION);
+                boolean packed = PackedHITResults.isPacked(header);
+
+                RowBuffer buffer = new RowBuffer();
+                while (scanner.next()) {
+                    if (packed) {
+                        Map<String, String> values = new HashMap<String, String>();
+                        for (int i = 0; i < scanner.getCellCount()
+                                && i < headerColumns.length; i++) {
+                            values.put(header.get(headerColumns[i]), scanner.getCell(i));
+                        }
+                        for (Map<String, String> row : PackedHITResults.unpack(values)) {
+                            addRow(row, columnIndex, buffer, rowPositions, hits, out);
+                        }
+                        continue;
+                    }
+                    // the cells are encoded directly from the buffer of the scanner
+                    buffer.clear();
+                    for (int c = 0; c < headerPositions.length; c++) {
+                        int i = headerPositions[c];
+                        if (i < scanner.getCellCount()) {
+                            buffer.addCell(scanner.getBuffer(), scanner.getCellStart(i),
+                                    scanner.getCellEnd(i));
+                        }
+                        else {
+                            buffer.addCell("");
+                        }
+                    }
+                    String annotation = annotationColumn == null
+                            || headerPositions[annotationColumn] >= scanner.getCellCount()
+                                    ? null : scanner.getCell(headerPositions[annotationColumn]);
+                    addRow(annotation, buffer, rowPositions, hits, out);
+                }
+            }
+
+            // footer
+            position = out.getPosition();
+            out.writeInt(columnIndex.size());
+            for (String column : columnIndex.keySet()) {
+                out.writeUTF(column);
+            }
+            out.writeInt(rowPositions.size);
+            for (int r = 0; r < rowPositions.size; r++) {
+                out.writeLong(rowPositions.positions[r]);
+            }
+            out.writeInt(hits.size());
+            for (Map.Entry<String, SortedMap<Integer, List<Integer>>> review : hits.entrySet()) {
+                out.writeUTF(review.getKey());
+                out.writeInt(review.getValue().size());
+                for (Map.Entry<Integer, List<Integer>> number : review.getValue().entrySet()) {
+                    out.writeInt(number.getKey());
+                    out.writeInt(number.getValue().size());
+                    for (int row : number.getValue()) {
+                        out.writeInt(row);
+                    }
+                }
+            }
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(tmpFile, "rw")) {
+            file.seek(HEADER_SIZE - 8);
+            file.writeLong(position);
+        }
+        if (indexFile.exists() && !indexFile.delete()) {
+            throw new IOException("Cannot replace " + indexFile);
+        }
+        if (!tmpFile.renameTo(indexFile)) {
+            throw new IOException("Cannot rename " + tmpFile + " to " + indexFile);
+        }
+        System.out.println("Indexed " + rowPositions.size + " rows of " + hits.size()
+                + " reviews in " + indexFile);
+    }
+
+    /**
+     * Adds a row of a packed HIT, which may have columns that the header does not have.
+     */
+    private static void addRow(Map<String, String> row, Map<String, Integer> columnIndex,
+            RowBuffer buffer, RowPositions rowPositions,
+            Map<String, SortedMap<Integer, List<Integer>>> hits, IndexOutputStream out)
+        throws IOException
+    {
+        for (String column : row.keySet()) {
+            if (!columnIndex.containsKey(column)) {
+                columnIndex.put(column, columnIndex.size());
+            }
+        }
+        buffer.clear();
+        for (String column : columnIndex.keySet()) {
+            String value = row.get(column);
+            buffer.addCell(value == null ? "" : value);
+        }
+        addRow(row.get(PackedHITResults.ANNOTATION), buffer, rowPositions, hits, out);
+    }
+
+    /**
+     * Writes a row as the number of cells, the end of each cell relative to the first cell and
+     * the UTF-8 bytes of the cells, and adds it to the HITs of its review.
+     */
+    private static void addRow(String annotation, RowBuffer buffer, RowPositions rowPositions,
+            Map<String, SortedMap<Integer, List<Integer>>> hits, IndexOutputStream out)
+        throws IOException
+    {
+        long size = 4 + 4L * buffer.cellCount + buffer.length;
+        if (size > SEGMENT_SIZE) {
+            throw new IOException("Row too large: " + size + " bytes");
+        }
+        out.alignTo((int) size);
+
+        int rowIndex = rowPositions.size;
+        rowPositions.add(out.getPosition());
+        out.writeInt(buffer.cellCount);
+        for (int c = 0; c < buffer.cellCount; c++) {
+            out.writeInt(buffer.ends[c]);
+        }
+        out.write(buffer.data, 0, buffer.length);
+
+        HITId hitId;
+        try {
+            hitId = annotation == null ? null : HITId.parse(annotation);
+        }
+        catch (IllegalArgumentException e) {
+            // rows without a HIT ID are only part of the rows in file order
+            hitId = null;
+        }
+        if (hitId != null) {
+            SortedMap<Integer, List<Integer>> numbers = hits.get(hitId.getReviewID());
+            if (numbers == null) {
+                numbers = new TreeMap<Integer, List<Integer>>();
+                hits.put(hitId.getReviewID(), numbers);
+            }
+            // premise HITs are about a single claim of the review
+            Integer number = Math.max(hitId.getClaimIndex(), 0);
+            List<Integer> rows = numbers.get(number);
+            if (rows == null) {
+                rows = new ArrayList<Integer>();
+                numbers.put(number, rows);
+            }
+            rows.add(rowIndex);
+        }
+    }
+
+    private static void skipFully(DataInputStream in, long bytes)
+        throws IOException
+    {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of index");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /**
+     * The UTF-8 encoded cells of a row, reused for all rows
+     */
+    private static class RowBuffer
+    {
+        private byte[] data = new byte[1 << 12];
+        private int length;
+        private int[] ends = new int[64];
+        private int cellCount;
+
+        private void clear()
+        {
+            length = 0;
+            cellCount = 0;
+        }
+
+        private void addCell(String value)
+        {
+            char[] chars = value.toCharArray();
+            addCell(chars, 0, chars.length);
+        }
+
+        private void addCell(char[] chars, int start, int end)
+        {
+            if (length + 3L * (end - start) > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + 3 * (end - start)));
+            }
+            for (int i = start; i < end; i++) {
+                char c = chars[i];
+                if (c < 0x80) {
+                    data[length++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    data[length++] = (byte) (0xc0 | (c >> 6));
+                    data[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 < end
+                        && Character.isLowSurrogate(chars[i + 1])) {
+                    int codePoint = Character.toCodePoint(c, chars[++i]);
+                    data[length++] = (byte) (0xf0 | (codePoint >> 18));
+                    data[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    data[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    data[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                }
+                else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate, as replaced by String.getBytes
+                    data[length++] = '?';
+                }
+                else {
+                    data[length++] = (byte) (0xe0 | (c >> 12));
+                    data[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    data[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            if (cellCount == ends.length) {
+                ends = Arrays.copyOf(ends, 2 * cellCount);
+            }
+            ends[cellCount++] = length;
+        }
+    }
+
+    /**
+     * Positions of the rows written so far, without boxing
+     */
+    private static class RowPositions
+    {
+        private long[] positions = new long[1024];
+        private int size;
+
+        private void add(long position)
+        {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * size);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    /**
+     * Data output keeping track of the (long) position
+     */
+    private static class IndexOutputStream
+        extends DataOutputStream
+    {
+        private IndexOutputStream(File file)
+            throws IOException
+        {
+            super(new CountingOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file), 1 << 16)));
+        }
+
+        private long getPosition()
+        {
+            return ((CountingOutputStream) out).count;
+        }
+
+        /**
+         * Pads to the next segment, if the given number of bytes would cross its boundary
+         */
+        private void alignTo(int size)
+            throws IOException
+        {
+            long offset = getPosition() & (SEGMENT_SIZE - 1);
+            if (offset + size > SEGMENT_SIZE) {
+                long padding = SEGMENT_SIZE - offset;
+                byte[] zeros = new byte[1 << 16];
+                while (padding > 0) {
+                    int length = (int) Math.min(padding, zeros.length);
+                    write(zeros, 0, length);
+                    padding -= length;
+                }
+            }
+        }
+    }
+
+    private static class CountingOutputStream
+        extends FilterOutputStream
+    {
+        private long count;
+
+        private CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(int b)
+            throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+            throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.List;
+
+/**
+ * Container class (POJO) for a packed HIT, see {@link HITPacker}
+ *
+ */
+public class PackedHITContainer
+    extends AbstractMTurkHITContainer
+{
+    public String packID;
+    public int reviewCount;
+    public List<Item> items;
+
+    /**
+     * A single HIT of the packed HIT
+     */
+    public static class Item
+    {
+        public String prefix; // prefix of the answer fields of the HIT, see PackedHITResults
+        public String annotation; // the HIT ID
+        public String file; // the HTML file of the HIT
+        public int number;
+    }
+}
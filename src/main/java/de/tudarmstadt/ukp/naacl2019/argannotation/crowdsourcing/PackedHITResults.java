@@ -0,0 +1,128 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Unpacks the MTurk results of packed HITs (see {@link HITPacker}). The answers of the i-th HIT
+ * of a packed HIT are submitted with the prefix "item" + i, i.e. in the columns
+ * Answer.item0.tokens, Answer.item0.intext etc., and its HIT ID in Answer.item0.annotation.
+ * Unpacking turns each of them into a row as if the HIT had been submitted on its own: the
+ * annotation column is the HIT ID, the answers are in the usual Answer.* columns and all other
+ * columns (hitid, workerid, assignmentstatus, ...) are those of the packed HIT.
+ *
+ */
+public class PackedHITResults
+{
+    public static final String ITEM_PREFIX = "item";
+    public static final String ANNOTATION = "annotation";
+
+    private static final String ANSWER = "Answer.";
+    private static final Pattern ITEM_COLUMN = Pattern
+            .compile("^" + Pattern.quote(ANSWER + ITEM_PREFIX) + "(\\d+)\\.(.+)$");
+
+    private PackedHITResults()
+    {
+    }
+
+    /**
+     * @param index
+     *            index of the HIT in the packed HIT
+     * @return the prefix of the answer fields of the HIT
+     */
+    public static String getPrefix(int index)
+    {
+        return ITEM_PREFIX + index;
+    }
+
+    /**
+     * @param columnNames
+     *            the columns of MTurk results
+     * @return true, if there are answer columns of packed HITs
+     */
+    public static boolean isPacked(Collection<String> columnNames)
+    {
+        for (String column : columnNames) {
+            if (ITEM_COLUMN.matcher(column).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param row
+     *            a row of the MTurk results, column name to value
+     * @return the row itself, if it is not the result of a packed HIT, otherwise one row per HIT
+     *         of the packed HIT
+     */
+    public static List<Map<String, String>> unpack(Map<String, String> row)
+    {
+        SortedMap<Integer, Map<String, String>> items = null;
+        for (Map.Entry<String, String> column : row.entrySet()) {
+            Matcher matcher = ITEM_COLUMN.matcher(column.getKey());
+            if (!matcher.matches()) {
+                continue;
+            }
+            if (items == null) {
+                items = new TreeMap<Integer, Map<String, String>>();
+            }
+            Integer index = Integer.valueOf(matcher.group(1));
+            Map<String, String> item = items.get(index);
+            if (item == null) {
+                item = new HashMap<String, String>();
+                items.put(index, item);
+            }
+            String field = matcher.group(2);
+            item.put(ANNOTATION.equals(field) ? ANNOTATION : ANSWER + field, column.getValue());
+        }
+        if (items == null) {
+            return Collections.singletonList(row);
+        }
+
+        Map<String, String> common = new HashMap<String, String>();
+        for (Map.Entry<String, String> column : row.entrySet()) {
+            if (!ITEM_COLUMN.matcher(column.getKey()).matches()) {
+                common.put(column.getKey(), column.getValue());
+            }
+        }
+        List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+        for (Map<String, String> item : items.values()) {
+            // the batch may contain packed HITs with fewer HITs
+            String annotation = item.get(ANNOTATION);
+            if (annotation == null || annotation.trim().isEmpty()) {
+                continue;
+            }
+            Map<String, String> unpacked = new HashMap<String, String>(common);
+            unpacked.putAll(item);
+            rows.add(unpacked);
+        }
+        return rows;
+    }
+}
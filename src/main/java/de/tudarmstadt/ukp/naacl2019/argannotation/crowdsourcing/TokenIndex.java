@@ -0,0 +1,262 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * The tokens of a document in the order of the annotation index (title tokens first, then the
+ * review tokens), indexed by their ID (e.g. token_123, as used in the MTurk answers) and by their
+ * begin offset. The ordinal of a token is its position in this order. The index is built once per
+ * CAS, so resolving the token IDs of the answers no longer needs a scan over all tokens per
+ * answer. The IDs are also indexed by their {@link AnswerSpan.TokenType} and number, so the
+ * parsed answers are resolved without building the ID strings again.
+ *
+ */
+public class TokenIndex
+{
+    private final List<Token> tokens;
+    private final Map<String, Integer> ordinals;
+    // begin offset per ordinal, ascending
+    private final int[] begins;
+    // per token type: number of the ID (high 32 bits) and ordinal (low 32 bits), ascending
+    private final long[][] idNumbers = new long[AnswerSpan.TokenType.values().length][];
+
+    /**
+     * @param aJCas
+     *            the document, which must not get new tokens while the index is used
+     */
+    public TokenIndex(JCas aJCas)
+    {
+        tokens = new ArrayList<Token>(JCasUtil.select(aJCas, Token.class));
+        ordinals = new HashMap<String, Integer>(2 * tokens.size());
+        begins = new int[tokens.size()];
+        long[][] numbers = new long[idNumbers.length][tokens.size()];
+        int[] counts = new int[idNumbers.length];
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            begins[i] = token.getBegin();
+            if (token.getId() != null && !ordinals.containsKey(token.getId())) {
+                ordinals.put(token.getId(), i);
+                addIDNumber(token.getId(), i, numbers, counts);
+            }
+        }
+        for (int t = 0; t < idNumbers.length; t++) {
+            idNumbers[t] = Arrays.copyOf(numbers[t], counts[t]);
+            Arrays.sort(idNumbers[t]);
+        }
+    }
+
+    private static void addIDNumber(String tokenID, int ordinal, long[][] numbers, int[] counts)
+    {
+        for (AnswerSpan.TokenType type : AnswerSpan.TokenType.values()) {
+            String prefix = type.getPrefix();
+            if (tokenID.length() > prefix.length() + 1 && tokenID.startsWith(prefix)
+                    && tokenID.charAt(prefix.length()) == '_') {
+                try {
+                    int number = Integer.parseInt(tokenID.substring(prefix.length() + 1));
+                    if (number >= 0) {
+                        numbers[type.ordinal()][counts[type.ordinal()]++] = ((long) number << 32)
+                                | ordinal;
+                    }
+                }
+                catch (NumberFormatException e) {
+                    // not an ID of the answer format
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of tokens
+     */
+    public int size()
+    {
+        return tokens.size();
+    }
+
+    /**
+     * @return all tokens in order
+     */
+    public List<Token> getTokens()
+    {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    /**
+     * @param ordinal
+     *            position of the token
+     * @return the token
+     */
+    public Token getToken(int ordinal)
+    {
+        return tokens.get(ordinal);
+    }
+
+    /**
+     * @param tokenID
+     *            ID of a token
+     * @return the token, or null if there is none with this ID
+     */
+    public Token getToken(String tokenID)
+    {
+        int ordinal = getOrdinal(tokenID);
+        return ordinal == -1 ? null : tokens.get(ordinal);
+    }
+
+    /**
+     * @param tokenID
+     *            ID of a token
+     * @return the ordinal of the token, or -1 if there is none with this ID
+     */
+    public int getOrdinal(String tokenID)
+    {
+        Integer ordinal = ordinals.get(tokenID);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Same as {@link #getOrdinal(String)} for the ID type_offset, e.g. for the tokens of an
+     * {@link AnswerSpan}, but without creating the ID.
+     *
+     * @param type
+     *            type of the token, the prefix of its ID
+     * @param offset
+     *            offset of the token, the number of its ID
+     * @return the ordinal of the token, or -1 if there is none with this ID
+     */
+    public int getOrdinal(AnswerSpan.TokenType type, int offset)
+    {
+        long[] numbers = idNumbers[type.ordinal()];
+        long key = (long) offset << 32;
+        int low = 0;
+        int high = numbers.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (numbers[middle] < key) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        if (offset >= 0 && low < numbers.length && (numbers[low] >>> 32) == offset) {
+            return (int) numbers[low];
+        }
+        return -1;
+    }
+
+    /**
+     * @param offset
+     *            character offset
+     * @return the ordinal of the first token beginning at or after the offset, {@link #size()} if
+     *         there is none
+     */
+    public int getFirstOrdinal(int offset)
+    {
+        int low = 0;
+        int high = begins.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (begins[middle] < offset) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param offset
+     *            character offset
+     * @return the (first) token beginning at the offset, or null if there is none
+     */
+    public Token getTokenAt(int offset)
+    {
+        int ordinal = getFirstOrdinal(offset);
+        if (ordinal < begins.length && begins[ordinal] == offset) {
+            return tokens.get(ordinal);
+        }
+        return null;
+    }
+
+    /**
+     * @param fromOrdinal
+     *            ordinal of the first token
+     * @param toOrdinal
+     *            ordinal after the last token
+     * @return the tokens in the range
+     */
+    public List<Token> getTokens(int fromOrdinal, int toOrdinal)
+    {
+        return Collections.unmodifiableList(tokens.subList(fromOrdinal, toOrdinal));
+    }
+
+    /**
+     * Returns the tokens lying within the given offsets, as in JCasUtil.selectCovered.
+     */
+    public List<Token> getCoveredTokens(int begin, int end)
+    {
+        List<Token> covered = new ArrayList<Token>();
+        for (int i = getFirstOrdinal(begin); i < begins.length && begins[i] <= end; i++) {
+            if (tokens.get(i).getEnd() <= end) {
+                covered.add(tokens.get(i));
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Returns the tokens with the given IDs in document order. Unknown IDs (e.g. "undefined" for
+     * whitespace in the MTurk answers) are ignored, and every token is returned only once.
+     */
+    public List<Token> getTokens(Collection<String> tokenIDs)
+    {
+        int[] found = new int[tokenIDs.size()];
+        int count = 0;
+        for (String tokenID : tokenIDs) {
+            int ordinal = getOrdinal(tokenID);
+            if (ordinal != -1) {
+                found[count++] = ordinal;
+            }
+        }
+        Arrays.sort(found, 0, count);
+        List<Token> result = new ArrayList<Token>(count);
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || found[i] != found[i - 1]) {
+                result.add(tokens.get(found[i]));
+            }
+        }
+        return result;
+    }
+}
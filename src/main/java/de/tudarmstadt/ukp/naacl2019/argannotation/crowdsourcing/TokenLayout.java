@@ -0,0 +1,192 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import de.tudarmstadt.ukp.dkpro.argumentation.types.Claim;
+import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * The tokens of an annotation (e.g. the review body) wrapped in classed &lt;span&gt; tags,
+ * together with the positions where the spans of the major claim and of the claims open and
+ * close. The layout is computed once per document; the raw HTML token list for any of the claims
+ * as primary claim is then derived in a single sweep over the tokens.
+ *
+ * A token belongs to a claim if the claim covers it, as in JCasUtil.selectCovered.
+ *
+ */
+public class TokenLayout
+{
+    private static final Pattern PUNCTUATION = Pattern.compile("\\p{Punct}");
+
+    private static final String CLAIM_SPAN = "<span class=\"major noselect\">";
+
+    private final List<Claim> claims;
+    private final int tokenCount;
+    // per token
+    private final String[] tokenHTML;
+    private final boolean[] spaceBefore;
+    private final boolean[] inMajorClaim;
+    // per claim and token
+    private final boolean[][] inClaim;
+    // number of claim spans closing/opening before each token
+    private final int[] closingClaims;
+    private final int[] openingClaims;
+    // number of claim spans covering the last token
+    private final int openClaimsAtEnd;
+
+    /**
+     * @param annotation
+     *            annotation whose tokens are laid out
+     * @param majorClaim
+     *            the major claim or null
+     * @param claims
+     *            the claims, may be empty
+     */
+    public TokenLayout(Annotation annotation, MajorClaim majorClaim, List<Claim> claims)
+    {
+        this.claims = claims;
+        List<Token> tokens = JCasUtil.selectCovered(Token.class, annotation);
+        tokenCount = tokens.size();
+        tokenHTML = new String[tokenCount];
+        spaceBefore = new boolean[tokenCount];
+        inMajorClaim = new boolean[tokenCount];
+        inClaim = new boolean[claims.size()][tokenCount];
+        closingClaims = new int[tokenCount];
+        openingClaims = new int[tokenCount];
+
+        int previousTokenEndOffset = 0;
+        for (int t = 0; t < tokenCount; t++) {
+            Token token = tokens.get(t);
+            spaceBefore[t] = token.getBegin() > previousTokenEndOffset;
+            previousTokenEndOffset = token.getEnd();
+            String tokenText = token.getCoveredText();
+            String tokenClass = PUNCTUATION.matcher(tokenText).matches() ? "punct" : "token";
+            tokenHTML[t] = "<span class=" + tokenClass + " id=" + token.getId() + ">" + tokenText
+                    + "</span>";
+            inMajorClaim[t] = majorClaim != null && covers(majorClaim, token);
+            for (int c = 0; c < claims.size(); c++) {
+                inClaim[c][t] = covers(claims.get(c), token);
+                if (opens(inClaim[c], t)) {
+                    openingClaims[t]++;
+                }
+                if (closes(inClaim[c], t)) {
+                    closingClaims[t]++;
+                }
+            }
+        }
+
+        int open = 0;
+        for (int c = 0; c < claims.size(); c++) {
+            if (tokenCount > 0 && inClaim[c][tokenCount - 1]) {
+                open++;
+            }
+        }
+        openClaimsAtEnd = open;
+    }
+
+    /**
+     * @return the raw HTML token list without a primary claim; all claims are highlighted
+     */
+    public List<String> createRawList()
+    {
+        return createRawList(-1);
+    }
+
+    /**
+     * @param primaryClaim
+     *            index of the primary claim in the claims of this layout, or -1; the primary
+     *            claim is highlighted with its stance, all other claims as claims
+     * @return the raw HTML token list
+     */
+    public List<String> createRawList(int primaryClaim)
+    {
+        boolean[] inPrimaryClaim = primaryClaim >= 0 ? inClaim[primaryClaim] : null;
+        String primaryClaimSpan = primaryClaim >= 0
+                ? "<span class=\"" + claims.get(primaryClaim).getStance() + " noselect\">" : null;
+
+        List<String> rawList = new ArrayList<String>(2 * tokenCount);
+        for (int t = 0; t < tokenCount; t++) {
+            if (spaceBefore[t]) {
+                rawList.add("<span> </span>");
+            }
+
+            // First close any (major) claim spans that are open
+            if (closes(inMajorClaim, t)) {
+                rawList.add("</span>");
+            }
+            boolean primaryCloses = inPrimaryClaim != null && closes(inPrimaryClaim, t);
+            if (primaryCloses) {
+                rawList.add("</span>");
+            }
+            for (int i = primaryCloses ? 1 : 0; i < closingClaims[t]; i++) {
+                rawList.add("</span>");
+            }
+
+            // Now open any new (major) claim spans
+            if (opens(inMajorClaim, t)) {
+                rawList.add("<span class=\"major noselect\">");
+            }
+            boolean primaryOpens = inPrimaryClaim != null && opens(inPrimaryClaim, t);
+            if (primaryOpens) {
+                rawList.add(primaryClaimSpan);
+            }
+            for (int i = primaryOpens ? 1 : 0; i < openingClaims[t]; i++) {
+                rawList.add(CLAIM_SPAN);
+            }
+
+            rawList.add(tokenHTML[t]);
+        }
+
+        if (tokenCount > 0 && inMajorClaim[tokenCount - 1]) {
+            rawList.add("</span>");
+        }
+        // the span of the primary claim is left open, as it always was
+        int open = openClaimsAtEnd;
+        if (inPrimaryClaim != null && tokenCount > 0 && inPrimaryClaim[tokenCount - 1]) {
+            open--;
+        }
+        for (int i = 0; i < open; i++) {
+            rawList.add("</span>");
+        }
+        return rawList;
+    }
+
+    private static boolean opens(boolean[] in, int t)
+    {
+        return in[t] && (t == 0 || !in[t - 1]);
+    }
+
+    private static boolean closes(boolean[] in, int t)
+    {
+        return t > 0 && in[t - 1] && !in[t];
+    }
+
+    private static boolean covers(Annotation span, Token token)
+    {
+        return token.getBegin() >= span.getBegin() && token.getEnd() <= span.getEnd();
+    }
+}
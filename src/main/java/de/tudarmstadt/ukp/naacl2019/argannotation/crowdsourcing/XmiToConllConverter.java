@@ -28,12 +28,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -50,7 +48,7 @@ import de.tudarmstadt.ukp.dkpro.argumentation.types.Support;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 import de.tudarmstadt.ukp.naacl2019.argannotation.types.ReviewBody;
 
 /**
@@ -80,15 +78,14 @@ public class XmiToConllConverter{
     public void process(File inputDir, File outputDir, String annotLevel) throws UIMAException, IOException{
     	annotationType = annotLevel;
         List<File> xmiFiles = new ArrayList<>(
-                FileUtils.listFiles(inputDir, new String[] { "xmi" }, true));
+                StorageFormat.getIntermediateFormat().listFiles(inputDir));
         List<File> faultyFiles = new ArrayList<>();
         System.out.println("We have " + xmiFiles.size() + " files");
         for (File file : xmiFiles) {
         	try{
             JCas jcas = JCasFactory.createJCas();
 
-            CollectionReader reader = CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, file);
+            CollectionReader reader = StorageFormat.getIntermediateFormat().createReader(file);
 			// "fill" the jCas container
             reader.getNext(jcas.getCas());
             createConll(jcas, outputDir);
@@ -120,10 +117,11 @@ public class XmiToConllConverter{
         // Skip indicator for the writing process
         boolean skipthis = false;
 
+        TokenIndex tokenIndex = new TokenIndex(aJCas);
         // HashMap containing TokenID - Annotation
         HashMap<String, ArrayList<String>> tokenAnnotations = new HashMap<String, ArrayList<String>>();
         // First fill the hash map with O annotations
-        for (Token token : getSortedTokenList(aJCas)) {
+        for (Token token : tokenIndex.getTokens()) {
         	ArrayList<String> oList = new ArrayList<String>();
         	oList.add("NONE");
         	oList.add("O");
@@ -139,7 +137,7 @@ public class XmiToConllConverter{
             // Extract the token ids from the property field and add the annotations to the hashmap
             // First token gets the B-Tag:
             boolean isfirst = true;
-            List<Token> mcTokens = getPropsCoveredTokens(aJCas, majorClaim.getProperties());
+            List<Token> mcTokens = getPropsCoveredTokens(tokenIndex, majorClaim.getProperties());
             for (Token token : mcTokens){
         		ArrayList<String> mcList = new ArrayList<String>();
         		mcList.add(Integer.toString(mcIndex));
@@ -152,7 +150,7 @@ public class XmiToConllConverter{
             	tokenAnnotations.put(token.getId(), mcList);
             }
             // If the last element of the claim is a punctuation, set it to O:
-            Token lastMajorClaimToken = getCoveredTokens(aJCas, majorClaim.getBegin(), majorClaim.getEnd()).get(getCoveredTokens(aJCas, majorClaim.getBegin(), majorClaim.getEnd()).size()-1);
+            Token lastMajorClaimToken = tokenIndex.getCoveredTokens(majorClaim.getBegin(), majorClaim.getEnd()).get(tokenIndex.getCoveredTokens(majorClaim.getBegin(), majorClaim.getEnd()).size()-1);
             if(lastMajorClaimToken.getCoveredText().matches("\\p{Punct}")){
             	ArrayList<String> mcList = new ArrayList<String>();
             	mcList.add(Integer.toString(mcIndex));
@@ -180,12 +178,12 @@ public class XmiToConllConverter{
 	                // First token gets the B-Tag:
 	                boolean isfirst = true;
 	                boolean skip_claim = false;
-	                if(getPropsCoveredTokens(aJCas, claim.getProperties()).size()<2){
+	                if(getPropsCoveredTokens(tokenIndex, claim.getProperties()).size()<2){
 	                	System.out.println("Size 1 claim annotation! Skipping "+documentID);
 	                	skip_claim = true;
 	                }
 	                if(!skip_claim){
-	                    for (Token token : getCoveredTokens(aJCas, claim.getBegin(), claim.getEnd())){
+	                    for (Token token : tokenIndex.getCoveredTokens(claim.getBegin(), claim.getEnd())){
 	                		ArrayList<String> cList = new ArrayList<String>();
 	                		cList.add(Integer.toString(cIndex));
 	                    	if (isfirst){
@@ -201,7 +199,7 @@ public class XmiToConllConverter{
 	                    	tokenAnnotations.put(token.getId(), cList);
 	                    }
 	                    // If the last element of the claim is a punctuation, set it to O:
-	                    Token lastClaimToken = getCoveredTokens(aJCas, claim.getBegin(), claim.getEnd()).get(getCoveredTokens(aJCas, claim.getBegin(), claim.getEnd()).size()-1);
+	                    Token lastClaimToken = tokenIndex.getCoveredTokens(claim.getBegin(), claim.getEnd()).get(tokenIndex.getCoveredTokens(claim.getBegin(), claim.getEnd()).size()-1);
 	                    if(lastClaimToken.getCoveredText().matches("\\p{Punct}")){
 	                    	ArrayList<String> cList = new ArrayList<String>();
 	                    	cList.add(Integer.toString(cIndex));
@@ -233,17 +231,14 @@ public class XmiToConllConverter{
 					Premise premise = pIterator.get();
 					int pIndex = premise.getAddress();
 					// Check single token premises and ignore them:
-					if(getCoveredTokens(aJCas,
-							premise.getBegin(), premise.getEnd()).size()<2){
-						System.out.println("We have a single sized premise: " + getCoveredTokens(aJCas,
-							premise.getBegin(), premise.getEnd()).get(0).getCoveredText() );
+					if(tokenIndex.getCoveredTokens(premise.getBegin(), premise.getEnd()).size()<2){
+						System.out.println("We have a single sized premise: " + tokenIndex.getCoveredTokens(premise.getBegin(), premise.getEnd()).get(0).getCoveredText() );
 						pIterator.moveToNext();
 						continue;
 					}
 					// First token gets the B-Tag:
 					boolean isfirst = true;
-					for (Token token : getCoveredTokens(aJCas,
-							premise.getBegin(), premise.getEnd())) {
+					for (Token token : tokenIndex.getCoveredTokens(premise.getBegin(), premise.getEnd())) {
 						ArrayList<String> pList = new ArrayList<String>();
 						pList.add(Integer.toString(pIndex));
 						if (isfirst) {
@@ -260,7 +255,7 @@ public class XmiToConllConverter{
 						tokenAnnotations.put(token.getId(), pList);
 					}
                     // If the last element of the premise is a punctuation, set it to O:
-                    Token lastPremiseToken = getCoveredTokens(aJCas, premise.getBegin(), premise.getEnd()).get(getCoveredTokens(aJCas, premise.getBegin(), premise.getEnd()).size()-1);
+                    Token lastPremiseToken = tokenIndex.getCoveredTokens(premise.getBegin(), premise.getEnd()).get(tokenIndex.getCoveredTokens(premise.getBegin(), premise.getEnd()).size()-1);
                     if(lastPremiseToken.getCoveredText().matches("\\p{Punct}")){
                     	ArrayList<String> pList = new ArrayList<String>();
                     	pList.add(Integer.toString(pIndex));
@@ -281,7 +276,7 @@ public class XmiToConllConverter{
 			System.out.println("We have an overlapping annotation in " + documentID);
 		}
 		if (!skipthis && !overlapping) {
-	        List<Token> sortedList = getSortedTokenList(aJCas);
+	        List<Token> sortedList = tokenIndex.getTokens();
 
 	        // Adding argument relations for claims and premises
 	        // First sort all argument component indicies according to their appearing order in the text:
@@ -338,7 +333,7 @@ public class XmiToConllConverter{
 				// Get the review body:
 				ReviewBody reviewBody = aJCas.getAllIndexedFS(ReviewBody.class).get();
 				// ID of the first token in the review body
-				String reviewBodyBegin = getCoveredTokens(aJCas, reviewBody.getBegin(), reviewBody.getEnd()).get(0).getId();
+				String reviewBodyBegin = tokenIndex.getCoveredTokens(reviewBody.getBegin(), reviewBody.getEnd()).get(0).getId();
 				String lastAnnotation = "O";
 				for (Token token : sortedList) {
 					String text = token.getCoveredText();
@@ -385,53 +380,14 @@ public class XmiToConllConverter{
     }
 
 
-    /**
-     * Returns an array list of tokens which are sorted in the correct order. E.g. : titleToken_0 ,
-     * ... , reviewToken_0, ...
-     */
-    private List<Token> getSortedTokenList(JCas aJCas)
-    {
-        FSIterator<Token> tokenIterator = aJCas.getAllIndexedFS(Token.class);
-        tokenIterator.moveToFirst();
-        List<Token> sortedList = new ArrayList<Token>();
-        // First add the title tokens:
-        while (tokenIterator.hasNext()) {
-            Token token = tokenIterator.get();
-            sortedList.add(token);
-            tokenIterator.moveToNext();
-        }
-        // Then add the review token
-        return sortedList;
-    }
-
     /**
      * Get a list of covered tokens
      * @param args
      * @throws IOException
      * @throws UIMAException
      */
-    private List<Token> getCoveredTokens(JCas aJCas,int beginIndex,int endIndex){
-    	List<Token> coveredTokens = new ArrayList<Token>();
-    	List<Token>sorted = getSortedTokenList(aJCas);
-
-    	for (Token token : sorted){
-    		if(token.getBegin()>= beginIndex && token.getEnd() <= endIndex){
-    			coveredTokens.add(token);
-    		}
-    	}
-
-    	return coveredTokens;
-    }
+    private List<Token> getPropsCoveredTokens(TokenIndex tokenIndex,String props){
 
-    /**
-     * Get a list of covered tokens
-     * @param args
-     * @throws IOException
-     * @throws UIMAException
-     */
-    private List<Token> getPropsCoveredTokens(JCas aJCas,String props){
-
-    	List<Token>sorted = getSortedTokenList(aJCas);
     	String tokenIDs = props.split("Covered_Token=")[1].split("&#10")[0];
     	// FIXME: Cleanwrite this!!!!
     	String splitString = ";";
@@ -441,22 +397,20 @@ public class XmiToConllConverter{
     	String[] tokenIDList = tokenIDs.split(splitString);
     	int beginIndex = 0;
     	int endIndex = 0;
-    	for (Token token : sorted){
-    		if (token.getId().equals(tokenIDList[0].trim())){
-    			beginIndex = token.getBegin();
-    		}
-    		if (token.getId().equals(tokenIDList[tokenIDList.length-1].trim())){
-    			endIndex = token.getEnd();
-    		}
-    		// Special case for premises
-    		if (splitString.equals(";")){
-    			System.out.println(tokenIDs);
-        		if (token.getId().equals(tokenIDList[tokenIDList.length-2].trim())){
-        			endIndex = token.getEnd();
-        		}
-    		}
+    	Token beginToken = tokenIndex.getToken(tokenIDList[0].trim());
+    	if (beginToken != null){
+    		beginIndex = beginToken.getBegin();
+    	}
+    	int endOrdinal = tokenIndex.getOrdinal(tokenIDList[tokenIDList.length-1].trim());
+    	// Special case for premises, the later of the last two tokens ends the span
+    	if (splitString.equals(";")){
+    		System.out.println(tokenIDs);
+    		endOrdinal = Math.max(endOrdinal, tokenIndex.getOrdinal(tokenIDList[tokenIDList.length-2].trim()));
+    	}
+    	if (endOrdinal != -1){
+    		endIndex = tokenIndex.getToken(endOrdinal).getEnd();
     	}
-    	return getCoveredTokens(aJCas,beginIndex,endIndex);
+    	return tokenIndex.getCoveredTokens(beginIndex,endIndex);
     }
 
     // ======================= HELPER FUNCTIONS END =======================
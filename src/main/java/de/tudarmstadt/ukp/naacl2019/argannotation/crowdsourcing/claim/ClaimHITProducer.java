@@ -20,10 +20,8 @@ package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.claim;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.List;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -36,7 +34,9 @@ import org.kohsuke.args4j.Option;
 
 import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.AbstractHITProducer;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.HITId;
 
 /**
  * Creates HITs for Claim annotations
@@ -86,11 +86,8 @@ public class ClaimHITProducer
         hitContainer.majorClaim = majorClaim.getCoveredText();
 
         // Render the template
-        File outputHITFile = new File(outputDir, "hit-claim-review-" + reviewID + ".html");
-        System.out.println("Rendering " + outputHITFile);
-        PrintWriter pw = new PrintWriter(outputHITFile);
-        this.mustache.execute(pw, hitContainer);
-        IOUtils.closeQuietly(pw);
+        writeHIT(new HITId(HITId.CLAIM, reviewID, -1), hitContainer,
+                JCasUtil.select(aJCas, Token.class).size(), outputDir);
     }
 
 	@Override
@@ -112,6 +109,21 @@ public class ClaimHITProducer
 	@Option(name="-s",aliases = { "--sandbox" },usage="use MTurk sandbox")
     private boolean sandbox = false;
 
+	@Option(name="-t",aliases = { "--threads" },metaVar="N",usage="number of threads rendering the HITs")
+    private int threads = 1;
+
+	@Option(name="-b",aliases = { "--bundle" },usage="writes all HITs into hits.zip with a batch CSV hits.csv instead of one HTML file per HIT")
+    private boolean bundle = false;
+
+	@Option(name="-a",aliases = { "--assets" },metaVar="dir",usage="webapp folder (src/main/webapp); its css/js files are published as versioned files to the assets subfolder of the output folder")
+    private File assetDir;
+
+	@Option(name="-u",aliases = { "--incremental" },usage="skips input files whose HITs in the output folder are still up to date, e.g. to resume an interrupted run")
+    private boolean incremental = false;
+
+	@Option(name="-p",aliases = { "--pack" },metaVar="tokens",usage="packs several HITs into packed HITs of at most this many tokens, listed in packs.csv")
+    private int packTokens = 0;
+
     public static void main(String[] args)
         throws IOException, UIMAException
     {
@@ -124,7 +136,11 @@ public class ClaimHITProducer
             // parse the arguments.
             parser.parseArgument(args);
             this.initialize(sandbox, language);
-            this.process(inputDir, outputDir);
+            if (assetDir != null) {
+                this.publishAssets(assetDir, outputDir);
+            }
+            this.setPacking(packTokens);
+            this.process(inputDir, outputDir, threads, bundle, incremental);
         } catch( CmdLineException e ) {
             System.err.println(e.getMessage());
             System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
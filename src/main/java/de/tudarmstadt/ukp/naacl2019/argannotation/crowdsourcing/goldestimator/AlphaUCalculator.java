@@ -18,10 +18,8 @@
 
 package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
@@ -30,12 +28,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedMap;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.collection.CollectionReader;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -48,7 +45,10 @@ import org.kohsuke.args4j.Option;
 
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.AnswerSpan;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.MTurkResultStore;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.TokenIndex;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Calculates inter annotator agreement (Krippendorff's alpha u), and writes
@@ -58,13 +58,11 @@ import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
  */
 public class AlphaUCalculator{
 
-    // HashMap containing the AMT results data
-    protected HashMap<String, HashMap<Integer, List<HashMap<String, String>>>> mTurkMap = new HashMap<String, HashMap<Integer, List<HashMap<String, String>>>>();
-    // List containing the AMT result columns
-    protected List<String> parameters = new ArrayList<String>();
+    // AMT results data, indexed by review ID and HIT number
+    protected MTurkResultStore resultStore;
 
-    // List of all worker ids in the results file
-    protected List<String> allWorkers = new ArrayList<String>();
+    // All worker ids in the results file
+    protected WorkerDictionary allWorkers = new WorkerDictionary();
 
 	@Option(name="-o",aliases = { "--output" },metaVar="dir",usage="output folder", required=true)
 	private File outputDir;
@@ -85,16 +83,6 @@ public class AlphaUCalculator{
 	// TODO: Add annotations as mc, claims, premises to the cas!
 
 	private void initialize() throws ResourceInitializationException{
-        parameters.add("hitid");
-        parameters.add("hittypeid");
-        parameters.add("workerid");
-        parameters.add("Answer.intext");
-        parameters.add("Answer.tokens");
-        parameters.add("annotation");
-        parameters.add("Answer.textinput");
-        parameters.add("assignmentstatus");
-        parameters.add("reject");
-
         try {
             loadMTurkResults();
         }
@@ -110,8 +98,7 @@ public class AlphaUCalculator{
 
 		initialize();
 
-		List<File> xmiFiles = new ArrayList<>(FileUtils.listFiles(inputDir,
-				new String[] { "xmi" }, true));
+		List<File> xmiFiles = new ArrayList<>(StorageFormat.getIntermediateFormat().listFiles(inputDir));
 		List<File> faultyFiles = new ArrayList<>();
 		System.out.println("We have " + xmiFiles.size() + " files");
 		if (annotationType.equals("m")){
@@ -127,8 +114,7 @@ public class AlphaUCalculator{
 			try {
 				JCas jcas = JCasFactory.createJCas();
 
-				CollectionReader reader = CollectionReaderFactory.createReader(
-						XmiReader.class, XmiReader.PARAM_SOURCE_LOCATION, file);
+				CollectionReader reader = StorageFormat.getIntermediateFormat().createReader(file);
 				// "fill" the jCas container
 				reader.getNext(jcas.getCas());
 				if (annotationType.equals("m")) {
@@ -273,27 +259,30 @@ public class AlphaUCalculator{
 
 		// If the current xmi file is contained in the amt results, start
 		// processing!
-		if (mTurkMap.containsKey(id)) {
+		SortedMap<Integer, List<MTurkResultStore.Row>> hits = resultStore.getAcceptedHITs(id);
+		if (!hits.isEmpty()) {
 			// List containing all workers for this review
-			List<String> workers = new ArrayList<String>();
+			WorkerDictionary workers = new WorkerDictionary();
 
 			// Hashmap mapping workerids to their annotations:
 			HashMap<String, List<String>> workerAnnotations = new HashMap<String, List<String>>();
 
+			// Since we can annotate the review title as well, the document
+			// length is the review text
+			// length + review title length
+			TokenIndex tokenIndex = new TokenIndex(aJCas);
+
 			System.out.println("Found ID " + id);
-			for (Integer key : mTurkMap.get(id).keySet()) {
-				List<HashMap<String, String>> mTurkResults = mTurkMap.get(id)
-						.get(key);
+			for (Integer key : hits.keySet()) {
+				List<MTurkResultStore.Row> mTurkResults = hits.get(key);
 
 				// HashMap for storing BIO tagging for all annotators
-				for (HashMap<String, String> entry : mTurkResults) {
+				for (MTurkResultStore.Row entry : mTurkResults) {
 					// Processing single line of the AMT results file
 
 					// Add worker id, if not already in the list of workers
 					String workerID = entry.get("workerid");
-					if (!workers.contains(workerID)) {
-						workers.add(workerID);
-					}
+					workers.add(workerID);
 					// List containing the major claim annotation:
 					List<String> majorClaimTokens = new ArrayList<String>();
 					if (entry.get("Answer.intext").equals("true")
@@ -308,23 +297,25 @@ public class AlphaUCalculator{
 				}
 
 				int numberOfAnnotators = workers.size();
-				// Since we can annotate the review title as well, the document
-				// length is the review text
-				// length + review title length
-				List<Token> sortedTokenList = this.getSortedTokenList(aJCas);
 
 				UnitizingAnnotationStudy study = new UnitizingAnnotationStudy(
-						numberOfAnnotators, sortedTokenList.size());
+						numberOfAnnotators, tokenIndex.size());
 
 				// Iterate over the workers, get every mc annotation, add it to
 				// the study with the according worker index
 				for (String wID : workers) {
 					List<String> thisAnots = workerAnnotations.get(wID);
+					int begin = thisAnots.isEmpty() ? -1 : tokenIndex
+							.getOrdinal(thisAnots.get(0));
+					if (begin == -1) {
+						System.out.println("No annotation from worker: " + wID);
+						continue;
+					}
 					try{
-					study.addUnit(sortedTokenList.indexOf(this.getBeginToken(
-							aJCas, thisAnots.get(0))), thisAnots.size(),
-							workers.indexOf(wID), "X");
+					study.addUnit(begin, thisAnots.size(),
+							workers.getId(wID), "X");
 					}catch(IndexOutOfBoundsException e){
+						// the annotation runs past the end of the document
 						System.out.println("No annotation from worker: " + wID);
 					}
 				}
@@ -353,27 +344,25 @@ public class AlphaUCalculator{
 		}
 		// If the current xmi file is contained in the amt results, start
 		// processing!
-		if (mTurkMap.containsKey(id)) {
+		SortedMap<Integer, List<MTurkResultStore.Row>> hits = resultStore.getAcceptedHITs(id);
+		if (!hits.isEmpty()) {
 			// List containing all workers for this review
-			List<String> workers = new ArrayList<String>();
+			WorkerDictionary workers = new WorkerDictionary();
 
 			// Hashmap mapping workerids to their annotations:
 			HashMap<String, List<String>> workerAnnotations = new HashMap<String, List<String>>();
 
-			for (Integer key : mTurkMap.get(id).keySet()) {
-				List<HashMap<String, String>> mTurkResults = mTurkMap.get(id)
-						.get(key);
+			for (Integer key : hits.keySet()) {
+				List<MTurkResultStore.Row> mTurkResults = hits.get(key);
 				int numberOfFoundMC = 0;
 
 				// HashMap for storing BIO tagging for all annotators
-				for (HashMap<String, String> entry : mTurkResults) {
+				for (MTurkResultStore.Row entry : mTurkResults) {
 					// Processing single line of the AMT results file
 
 					// Add worker id, if not already in the list of workers
 					String workerID = entry.get("workerid");
-					if (!workers.contains(workerID)) {
-						workers.add(workerID);
-					}
+					workers.add(workerID);
 					// List containing the major claim annotation:
 					if (entry.get("Answer.intext").equals("true")
 							&& entry.get("Answer.tokens") != null) {
@@ -412,25 +401,23 @@ public class AlphaUCalculator{
 		}
 		// If the current xmi file is contained in the amt results, start
 		// processing!
-		if (mTurkMap.containsKey(id)) {
+		SortedMap<Integer, List<MTurkResultStore.Row>> hits = resultStore.getAcceptedHITs(id);
+		if (!hits.isEmpty()) {
 			// List containing all workers for this review
-			List<String> workers = new ArrayList<String>();
+			WorkerDictionary workers = new WorkerDictionary();
 
 			// Hashmap mapping workerids to their annotations:
 			HashMap<String, List<String>> workerAnnotations = new HashMap<String, List<String>>();
 
-			for (Integer key : mTurkMap.get(id).keySet()) {
-				List<HashMap<String, String>> mTurkResults = mTurkMap.get(id)
-						.get(key);
+			for (Integer key : hits.keySet()) {
+				List<MTurkResultStore.Row> mTurkResults = hits.get(key);
 				int numberOfFoundMC = 0;
 				// HashMap for storing BIO tagging for all annotators
-				for (HashMap<String, String> entry : mTurkResults) {
+				for (MTurkResultStore.Row entry : mTurkResults) {
 					// Processing single line of the AMT results file
 					// Add worker id, if not already in the list of workers
 					String workerID = entry.get("workerid");
-					if (!workers.contains(workerID)) {
-						workers.add(workerID);
-					}
+					workers.add(workerID);
 					// List containing the major claim annotation:
 					if (entry.get("Answer.intext").equals("true")
 							&& entry.get("Answer.tokens") != null) {
@@ -465,70 +452,62 @@ public class AlphaUCalculator{
 
 		// If the current xmi file is contained in the amt results, start
 		// processing!
-		if (mTurkMap.containsKey(id)) {
+		SortedMap<Integer, List<MTurkResultStore.Row>> hits = resultStore.getAcceptedHITs(id);
+		if (!hits.isEmpty()) {
 			// List containing all workers for this review
-			List<String> workers = new ArrayList<String>();
+			WorkerDictionary workers = new WorkerDictionary();
 
 			// Hashmap mapping workerids to their annotations:
-			HashMap<String, List<List<String>>> workerAnnotations = new HashMap<String, List<List<String>>>();
+			HashMap<String, List<AnswerSpan>> workerAnnotations = new HashMap<String, List<AnswerSpan>>();
+
+			// Since we can annotate the review title as well, the document
+			// length is the review text
+			// length + review title length
+			TokenIndex tokenIndex = new TokenIndex(aJCas);
 
 			System.out.println("Found ID " + id);
-			for (Integer key : mTurkMap.get(id).keySet()) {
-				List<HashMap<String, String>> mTurkResults = mTurkMap.get(id)
-						.get(key);
+			for (Integer key : hits.keySet()) {
+				List<MTurkResultStore.Row> mTurkResults = hits.get(key);
 
-				for (HashMap<String, String> entry : mTurkResults) {
+				for (MTurkResultStore.Row entry : mTurkResults) {
 					// Processing single line of the AMT results file
 
 					// Add worker id, if not already in the list of workers
 					String workerID = entry.get("workerid");
-					if (!workers.contains(workerID)) {
-						workers.add(workerID);
-					}
+					workers.add(workerID);
 
-					List<List<String>> claims = new ArrayList<List<String>>();
+					List<AnswerSpan> claims = new ArrayList<AnswerSpan>();
 					if (entry.get("Answer.intext").equals("true")
 							&& entry.get("Answer.tokens") != null) {
-						for (String claim : entry.get("Answer.tokens").split(
-								"}")) {
-							// Remove all the undefined strings (whitespaces) in
-							// the annotation
-							String tmpClaim = claim.replace("undefined,", "");
-							if (tmpClaim.endsWith(",")) {
-								tmpClaim = tmpClaim.substring(0,
-										tmpClaim.length() - 1);
-							}
-							// Add single claim to the claim list
-							List<String> claimTokens = new ArrayList<String>();
-							for (String claimToken : tmpClaim.split(",")) {
-								claimTokens.add(claimToken);
-							}
-							claims.add(claimTokens);
-						}
-
+						// The parser drops the undefined strings (whitespaces)
+						// in the annotation
+						claims = AnswerSpan.parse(entry.get("Answer.tokens"));
 					}
 					// Add this to the annotation map:
 					workerAnnotations.put(workerID, claims);
 				}
 
 				int numberOfAnnotators = workers.size();
-				// Since we can annotate the review title as well, the document
-				// length is the review text
-				// length + review title length
-				List<Token> sortedTokenList = this.getSortedTokenList(aJCas);
 
 				UnitizingAnnotationStudy study = new UnitizingAnnotationStudy(
-						numberOfAnnotators, sortedTokenList.size());
+						numberOfAnnotators, tokenIndex.size());
 
-				// Iterate over the workers, get every mc annotation, add it to
-				// the study with the according worker index
+				// Iterate over the workers, get every claim annotation, add it
+				// to the study with the according worker index
 				for (String wID : workers) {
-					for (List<String> thisAnots : workerAnnotations.get(wID)) {
+					for (AnswerSpan thisAnots : workerAnnotations.get(wID)) {
+						int begin = tokenIndex.getOrdinal(thisAnots.getTokenType(0),
+								thisAnots.getOffset(0));
+						if (begin == -1) {
+							System.out.println("No annotation from worker: "
+									+ wID);
+							continue;
+						}
 						try {
-							study.addUnit(sortedTokenList.indexOf(this
-									.getBeginToken(aJCas, thisAnots.get(0))),
-									thisAnots.size(), workers.indexOf(wID), "X");
+							study.addUnit(begin, thisAnots.size(),
+									workers.getId(wID), "X");
 						} catch (IndexOutOfBoundsException e) {
+							// the span runs past the end of the document
 							System.out.println("No annotation from worker: "
 									+ wID);
 						}
@@ -611,22 +590,6 @@ public class AlphaUCalculator{
 		return null;
 	}
 
-	/**
-	 * Returns the start token of a major claim annotation
-	 */
-	private Token getBeginToken(JCas aJCas, String tokenID) {
-		FSIterator<Token> tokenIterator = aJCas.getAllIndexedFS(Token.class);
-		tokenIterator.moveToFirst();
-		while (tokenIterator.hasNext()) {
-			Token token = tokenIterator.get();
-			if (token.getId() == tokenID) {
-				return token;
-			}
-			tokenIterator.moveToNext();
-		}
-		return null;
-	}
-
 	/**
 	 * Returns the id of the startToken of an annotation If the annotation was a
 	 * comment, the returned index will be -1.
@@ -693,67 +656,19 @@ public class AlphaUCalculator{
         return sortedList;
     }
 
-    private String removeQuotation(String element)
-    {
-        if (element.contains("\"")) {
-            element = element.substring(1, element.length() - 1);
-        }
-        return element;
-    }
-
     private void loadMTurkResults()
-            throws IOException
-        {
-            BufferedReader br = new BufferedReader(new FileReader(resultFile));
-            String[] headers = br.readLine().split("\t");
-            String line;
-            while ((line = br.readLine()) != null) {
-                HashMap<String, String> innerMap = new HashMap<String, String>();
-                String[] lineElements = line.split("\t");
-                for (int i = 0; i < lineElements.length; i++) {
-                    if (parameters.contains(removeQuotation(headers[i]))) {
-                        innerMap.put(removeQuotation(headers[i]), removeQuotation(lineElements[i]));
-                    }
-                }
-                if (innerMap.get("assignmentstatus").equals("Rejected")
-                        || !innerMap.get("reject").isEmpty()) {
-                    continue;
-                }
-                String documentname = innerMap.get("annotation");
-                String workerID = innerMap.get("workerid");
-                // Add worker to the overall workerlist
-                if(!allWorkers.contains(workerID)){
-                    allWorkers.add(workerID);
-                }
-                Integer number = 0;
-                if(documentname.contains("hit-premise")){
-                	number = Integer.parseInt(documentname.substring(
-                    		documentname.indexOf("hit-premise-")+"hit-premise-".length(),
-                    		documentname.indexOf("-review-")));
-                }
-                documentname = documentname.split("-")[documentname.split("-").length - 1].replace(
-                        ".html", "");
-                List<HashMap<String, String>> tmpList;
-                HashMap<Integer, List<HashMap<String, String>>> tmpMap;
-                if (mTurkMap.containsKey(documentname)) {
-                    tmpMap = mTurkMap.get(documentname);
-                    if(mTurkMap.get(documentname).containsKey(number)){
-                        tmpList = mTurkMap.get(documentname).get(number);
-                    }
-                    else{
-                    	tmpList = new ArrayList<HashMap<String, String>>();
-                    }
-                }
-                else {
-                    tmpList = new ArrayList<HashMap<String, String>>();
-                    tmpMap = new HashMap<Integer, List<HashMap<String, String>>>();
-                }
-                tmpList.add(innerMap);
-                tmpMap.put(number, tmpList);
-                mTurkMap.put(documentname, tmpMap);
+        throws IOException
+    {
+        resultStore = MTurkResultStore.open(resultFile);
+        for (MTurkResultStore.Row row : resultStore) {
+            if (row.isRejected()) {
+                continue;
             }
-            br.close();
+            String workerID = row.get("workerid");
+            // Add worker to the overall workerlist
+            allWorkers.add(workerID);
         }
+    }
 
 
     /*
@@ -32,7 +32,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Reads a folder of converted MTurk results and calculates statistics to each review file. Will do
@@ -60,9 +60,8 @@ public class GoldEstimator
             String thresholdAlpha, String annotationType)
         throws UIMAException, IOException
     {
-        CollectionReaderDescription reader = createReaderDescription(XmiReader.class,
-                XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                XmiReader.INCLUDE_PREFIX + "*.xmi");
+        CollectionReaderDescription reader = StorageFormat.getIntermediateFormat()
+                .createReaderDescription(inputDir);
 
         AnalysisEngineDescription goldStandardCalculator = createEngineDescription(
                 GoldStandardCalculator.class, GoldStandardCalculator.PARAM_THRESHOLD_BINARY, thresholdBinary,
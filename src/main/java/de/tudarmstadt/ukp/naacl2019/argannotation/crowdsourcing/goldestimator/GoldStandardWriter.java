@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
@@ -33,7 +34,6 @@ import java.util.List;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASRuntimeException;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.fit.util.JCasUtil;
@@ -46,12 +46,13 @@ import org.xml.sax.SAXException;
 import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Class for writing the calculated statistics into a statistics file at the output location. Does
  * also a splitting of the files into ones with a given threshold. Also writes the typesystem and
- * the xmi files. This is basically an extension of the
- * de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter
+ * the documents, as XMI or binary CASes depending on the {@link StorageFormat} of the intermediate
+ * steps. This is basically an extension of the de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter
  *
  *
  */
@@ -256,17 +257,7 @@ public class GoldStandardWriter
             throw new AnalysisEngineProcessException(e);
         }
 
-        try (OutputStream docOS = getOutputStream(aJCas, ".xmi")) {
-            XmiCasSerializer.serialize(aJCas.getCas(), docOS);
-
-            if (!typeSystemWritten || typeSystemFile == null) {
-                writeTypeSystem(aJCas);
-                typeSystemWritten = true;
-            }
-        }
-        catch (Exception e) {
-            throw new AnalysisEngineProcessException(e);
-        }
+        writeDocument(aJCas);
     }
 
     private void writeClaimReport(JCas aJCas) throws AnalysisEngineProcessException
@@ -401,8 +392,20 @@ public class GoldStandardWriter
             throw new AnalysisEngineProcessException(e);
         }
 
-        try (OutputStream docOS = getOutputStream(aJCas, ".xmi")) {
-            XmiCasSerializer.serialize(aJCas.getCas(), docOS);
+        writeDocument(aJCas);
+    }
+
+    /**
+     * Writes the document in the storage format of the intermediate steps, so that the next steps
+     * can read it, and the type system.
+     */
+    private void writeDocument(JCas aJCas)
+        throws AnalysisEngineProcessException
+    {
+        StorageFormat format = StorageFormat.getIntermediateFormat();
+        try (OutputStream docOS = new BufferedOutputStream(
+                getOutputStream(aJCas, format.getExtension()))) {
+            format.serialize(aJCas.getCas(), docOS);
 
             if (!typeSystemWritten || typeSystemFile == null) {
                 writeTypeSystem(aJCas);
@@ -412,6 +415,5 @@ public class GoldStandardWriter
         catch (Exception e) {
             throw new AnalysisEngineProcessException(e);
         }
-
     }
 }
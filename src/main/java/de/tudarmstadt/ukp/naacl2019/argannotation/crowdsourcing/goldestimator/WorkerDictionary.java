@@ -0,0 +1,140 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Maps the worker IDs of a batch to dense ints (0, 1, 2, ... in the order the workers were
+ * added), which are the annotator columns of the MACE csv files and the annotator indexes of the
+ * agreement studies. The dictionary is persisted as {@value #FILE_NAME}, one worker ID per line,
+ * so the line number of a worker is its int; the MACE predictors read it to map the competence
+ * estimates back to the workers.
+ *
+ */
+public class WorkerDictionary
+    implements Iterable<String>
+{
+    public static final String FILE_NAME = "workerIDs.txt";
+
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private final List<String> workers = new ArrayList<String>();
+
+    /**
+     * @param workerID
+     *            the worker
+     * @return the int of the worker, who is added if unknown
+     */
+    public int add(String workerID)
+    {
+        Integer id = ids.get(workerID);
+        if (id == null) {
+            id = workers.size();
+            ids.put(workerID, id);
+            workers.add(workerID);
+        }
+        return id;
+    }
+
+    /**
+     * @param workerID
+     *            the worker
+     * @return the int of the worker, or -1 if unknown
+     */
+    public int getId(String workerID)
+    {
+        Integer id = ids.get(workerID);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id
+     *            int of a worker
+     * @return the worker ID
+     */
+    public String getWorker(int id)
+    {
+        return workers.get(id);
+    }
+
+    /**
+     * @return number of workers
+     */
+    public int size()
+    {
+        return workers.size();
+    }
+
+    /**
+     * @return the worker IDs ordered by their ints
+     */
+    public List<String> getWorkers()
+    {
+        return Collections.unmodifiableList(workers);
+    }
+
+    @Override
+    public Iterator<String> iterator()
+    {
+        return getWorkers().iterator();
+    }
+
+    /**
+     * Writes the dictionary to {@value #FILE_NAME} in the given folder.
+     *
+     * @param dir
+     *            the folder
+     * @throws IOException
+     *             I/O exception
+     */
+    public void write(File dir)
+        throws IOException
+    {
+        FileUtils.writeLines(new File(dir, FILE_NAME), "utf-8", workers,
+                System.getProperty("line.separator"));
+    }
+
+    /**
+     * Reads the dictionary from {@value #FILE_NAME} in the given folder.
+     *
+     * @param dir
+     *            the folder
+     * @return the dictionary
+     * @throws IOException
+     *             I/O exception
+     */
+    public static WorkerDictionary read(File dir)
+        throws IOException
+    {
+        WorkerDictionary dictionary = new WorkerDictionary();
+        for (String workerID : FileUtils.readLines(new File(dir, FILE_NAME), "utf-8")) {
+            dictionary.add(workerID);
+        }
+        return dictionary;
+    }
+}
@@ -18,13 +18,11 @@
 
 package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.SortedMap;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
@@ -37,6 +35,8 @@ import org.kohsuke.args4j.Option;
 
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.MTurkResultStore;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.WorkerDictionary;
 
 /**
  * Writes one review to the mace file with the associated tokens and annotators.
@@ -61,13 +61,11 @@ public abstract class MaceFileWriter
     @ConfigurationParameter(name = PARAM_TARGET_LOCATION, mandatory = true)
 	protected String outputLocation;
 
-    // HashMap containing the AMT results data
-    protected HashMap<String, HashMap<Integer, List<HashMap<String, String>>>> mTurkMap = new HashMap<String, HashMap<Integer, List<HashMap<String, String>>>>();
-    // List containing the AMT result columns
-    protected List<String> parameters = new ArrayList<String>();
+    // AMT results data, indexed by review ID and HIT number
+    protected MTurkResultStore resultStore;
 
-    // List of all worker ids in the results file
-    protected List<String> allWorkers = new ArrayList<String>();
+    // All worker ids in the results file, their ints are the annotator columns of the csv files
+    protected WorkerDictionary allWorkers = new WorkerDictionary();
 
     @Option(name="-o",aliases = { "--output" },metaVar="dir",usage="output folder", required=true)
     protected File outputDir;
@@ -85,17 +83,10 @@ public abstract class MaceFileWriter
         super.initialize(ctx);
         sourceLocation = ctx.getConfigParameterValue(PARAM_SOURCE_LOCATION).toString();
         outputLocation = ctx.getConfigParameterValue(PARAM_TARGET_LOCATION).toString();
-        parameters.add("hitid");
-        parameters.add("hittypeid");
-        parameters.add("workerid");
-        parameters.add("Answer.intext");
-        parameters.add("Answer.tokens");
-        parameters.add("annotation");
-        parameters.add("Answer.textinput");
-        parameters.add("assignmentstatus");
-        parameters.add("reject");
         try {
             loadMTurkResults();
+            // Write the list of annotators into a file, that we can get the order later:
+            allWorkers.write(new File(outputLocation));
         }
         catch (IOException e) {
             throw new ResourceInitializationException(e);
@@ -105,69 +96,21 @@ public abstract class MaceFileWriter
     private void loadMTurkResults()
         throws IOException
     {
-        BufferedReader br = new BufferedReader(new FileReader(sourceLocation));
-        String[] headers = br.readLine().split("\t");
-        String line;
-        while ((line = br.readLine()) != null) {
-            HashMap<String, String> innerMap = new HashMap<String, String>();
-            String[] lineElements = line.split("\t");
-            for (int i = 0; i < lineElements.length; i++) {
-                if (parameters.contains(removeQuotation(headers[i]))) {
-                    innerMap.put(removeQuotation(headers[i]), removeQuotation(lineElements[i]));
-                }
-            }
-            if (innerMap.get("assignmentstatus").equals("Rejected")
-                    || !innerMap.get("reject").isEmpty()) {
+        resultStore = MTurkResultStore.open(new File(sourceLocation));
+        for (MTurkResultStore.Row row : resultStore) {
+            if (row.isRejected()) {
                 continue;
             }
-            String documentname = innerMap.get("annotation");
-            String workerID = innerMap.get("workerid");
+            String workerID = row.get("workerid");
             // Add worker to the overall workerlist
-            if(!allWorkers.contains(workerID)){
-                allWorkers.add(workerID);
-            }
-            Integer number = 0;
-            if(documentname.contains("hit-premise")){
-            	number = Integer.parseInt(documentname.substring(
-                		documentname.indexOf("hit-premise-")+"hit-premise-".length(),
-                		documentname.indexOf("-review-")));
-            }
-            documentname = documentname.split("-")[documentname.split("-").length - 1].replace(
-                    ".html", "");
-            List<HashMap<String, String>> tmpList;
-            HashMap<Integer, List<HashMap<String, String>>> tmpMap;
-            if (mTurkMap.containsKey(documentname)) {
-                tmpMap = mTurkMap.get(documentname);
-                if(mTurkMap.get(documentname).containsKey(number)){
-                    tmpList = mTurkMap.get(documentname).get(number);
-                }
-                else{
-                	tmpList = new ArrayList<HashMap<String, String>>();
-                }
-            }
-            else {
-                tmpList = new ArrayList<HashMap<String, String>>();
-                tmpMap = new HashMap<Integer, List<HashMap<String, String>>>();
-            }
-            tmpList.add(innerMap);
-            tmpMap.put(number, tmpList);
-            mTurkMap.put(documentname, tmpMap);
+            allWorkers.add(workerID);
         }
-        br.close();
     }
 
     @Override
     public abstract void process(JCas aJCas)
         throws AnalysisEngineProcessException;
 
-    private String removeQuotation(String element)
-    {
-        if (element.contains("\"")) {
-            element = element.substring(1, element.length() - 1);
-        }
-        return element;
-    }
-
     /**
      * Returns an array list of tokens which are sorted in the correct order.
      */
@@ -27,14 +27,11 @@ import java.io.IOException;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReaderDescription;
-import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.claim.MaceClaimPremiseFileWriter;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.claim.MaceClaimPremisePredictor;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.claim.MaceClaimResultAnnotator;
@@ -42,6 +39,7 @@ import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.ma
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.majorclaim.MaceMajorClaimPredictor;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.majorclaim.MaceMajorClaimResultAnnotator;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.premise.MacePremiseResultAnnotator;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 public class MaceGoldEstimator
 {
@@ -71,9 +69,7 @@ public class MaceGoldEstimator
         CollectionReaderDescription reader;
 
         // Reader for XMI files
-        reader = createReaderDescription(XmiReader.class,
-                XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                XmiReader.INCLUDE_PREFIX + "*.xmi");
+        reader = StorageFormat.getIntermediateFormat().createReaderDescription(inputDir);
 
         // TODO: This code could be greatly simplified, though it will require
         // creation of an abstract base class for MaceMajorClaimFileWriter and
@@ -103,9 +99,7 @@ public class MaceGoldEstimator
                     maceWorkingFolder);
 
             SimplePipeline.runPipeline(reader, maceResultAnnotator,
-                    AnalysisEngineFactory.createEngineDescription(
-                            XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION,
-                            outputDir, XmiWriter.PARAM_OVERWRITE, true));
+                    StorageFormat.getIntermediateFormat().createWriterDescription(outputDir));
             break;
 
         case 'c':
@@ -128,9 +122,7 @@ public class MaceGoldEstimator
                     maceWorkingFolder);
 
             SimplePipeline.runPipeline(reader, maceResultAnnotator,
-                    AnalysisEngineFactory.createEngineDescription(
-                            XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION,
-                            outputDir, XmiWriter.PARAM_OVERWRITE, true));
+                    StorageFormat.getIntermediateFormat().createWriterDescription(outputDir));
             break;
 
         case 'p':
@@ -153,9 +145,7 @@ public class MaceGoldEstimator
                     maceWorkingFolder);
 
             SimplePipeline.runPipeline(reader, maceResultAnnotator,
-                    AnalysisEngineFactory.createEngineDescription(
-                            XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION,
-                            outputDir, XmiWriter.PARAM_OVERWRITE, true));
+                    StorageFormat.getIntermediateFormat().createWriterDescription(outputDir));
             break;
 
         default:
@@ -22,14 +22,13 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SortedMap;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -37,9 +36,12 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.AnswerSpan;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.HITId;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.MTurkResultStore;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.TokenIndex;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.MaceFileWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Writes one review to the mace file with the associated tokens and annotators.
@@ -62,17 +64,16 @@ public class MaceClaimPremiseFileWriter
 
 
         // If the current xmi file is contained in the amt results, start processing!
-        if (mTurkMap.containsKey(id)) {
-        	HashMap<Integer, List<HashMap<String, String>>> outerMap = mTurkMap.get(id);
+        SortedMap<Integer, List<MTurkResultStore.Row>> outerMap = resultStore.getAcceptedHITs(id);
+        if (!outerMap.isEmpty()) {
             System.out.println("FOUND ID " + id);
+            // Tokens of the review, since we have title and review token, we have to use their order!
+            TokenIndex tokenIndex = new TokenIndex(aJCas);
             for(Integer key: outerMap.keySet()){
-            	List<HashMap<String, String>> mTurkResults = outerMap.get(key);
-	            // List of sorted tokens of the review, since we have title and review token, we have to use this list!
-	            List<Token> sortedTokens = new ArrayList<Token>();
-	            sortedTokens = getSortedTokenList(aJCas);
+            	List<MTurkResultStore.Row> mTurkResults = outerMap.get(key);
 
-	            // HashMap for storing BIO tagging for all annotators
-	            HashMap<String, List<String>> annotations = new HashMap<String, List<String>>();
+	            // BIO tagging for all annotators, indexed by the int of the worker
+	            String[][] annotations = new String[allWorkers.size()][];
 
 	            /*
 	             * Claims are annotated in the following format:
@@ -83,119 +84,72 @@ public class MaceClaimPremiseFileWriter
 	             */
 
 
-	            for (HashMap<String, String> entry : mTurkResults) {
+	            for (MTurkResultStore.Row entry : mTurkResults) {
 	                // Processing single line of the AMT results file
-	                                // HashMap containing the mapping tokenID, BIO tag for the annotations
-	                HashMap<String, String> bioTagging = new HashMap<String,String>();
 	                String workerID = entry.get("workerid");
 
-	                // List containing all the claims
-	                List<String> claims = new ArrayList<String>();
-	                for (String claim : entry.get("Answer.tokens").split("}")) {
-	                    // Remove all the undefined strings (whitespaces) in the annotation
-	                	String tmpClaim = claim.replace("undefined,", "");
-	                	if(tmpClaim.endsWith(",")){
-	                		tmpClaim = tmpClaim.substring(0, tmpClaim.length()-1);
-	                	}
-	                    claims.add(claim.replace("undefined,", ""));
-	                }
-	                for (String claimString : claims) {
-	                    String stance = "";
+	                // The final BIO annotation for one worker, O unless a claim covers the token
+	                String[] bioAnnotation = new String[tokenIndex.size()];
+	                Arrays.fill(bioAnnotation, "O");
+	                for (AnswerSpan claim : AnswerSpan.parse(entry.get("Answer.tokens"))) {
 	                    // Set if we have a supporting or an attacking claim
-	                    if (claimString.contains("because")) {
-	                        stance = "support";
+	                    String beginTag;
+	                    String insideTag;
+	                    if (claim.getStance() == AnswerSpan.Stance.SUPPORT) {
+	                        beginTag = "B-S";
+	                        insideTag = "I-S";
 	                    }
-	                    else if (claimString.contains("but")) {
-	                        stance = "attack";
+	                    else if (claim.getStance() == AnswerSpan.Stance.ATTACK) {
+	                        beginTag = "B-A";
+	                        insideTag = "I-A";
 	                    }
-	                    // Handle the closing bracket ] case getting split too...
-	                    if (stance.isEmpty()) {
+	                    else {
 	                        continue;
 	                    }
-	                    // Ignore elements which contain the single ']' element due to the splitting beforehand
-	                    if (claimString.length()>1) {
-	                        List<String> tokens = new ArrayList<String>();
-	                        // The first part of the claim string contains its type ("but" or "because")
-	                        for (String token : claimString.split("\\{")[1].split(",")) {
-	                            tokens.add(token);
-	                            //System.out.println(token);
-	                        }
-	                        // For all claim annotations set the appropriate annotation tag
-	                        if(stance.equals("attack")){
-	                            // Set the B tag
-	                            bioTagging.put(tokens.get(0), "B-A");
-	                            for (String token : tokens.subList(1, tokens.size())){
-	                                // Set the I tag
-	                                bioTagging.put(token, "I-A");
-	                            }
-	                        }else if(stance.equals("support")){
-	                            bioTagging.put(tokens.get(0), "B-S");
-	                            for (String token : tokens.subList(1, tokens.size())){
-	                                bioTagging.put(token, "I-S");
-	                            }
+	                    // For all claim annotations set the appropriate annotation tag
+	                    for (int i = 0; i < claim.size(); i++) {
+	                        int ordinal = tokenIndex.getOrdinal(claim.getTokenType(i),
+	                                claim.getOffset(i));
+	                        if (ordinal != -1) {
+	                            bioAnnotation[ordinal] = i == 0 ? beginTag : insideTag;
 	                        }
 	                    }
 	                }
-	                // List containing the final BIO annotation for one worker
-	                List<String> bioAnnotation = new ArrayList<String>();
-	                for(Token token : sortedTokens){
-	                    if(bioTagging.containsKey(token.getId())){
-	                    	//System.out.println(bioTagging.get(token.getId()));
-	                        bioAnnotation.add(bioTagging.get(token.getId()));
-	                    }else{
-	                        bioAnnotation.add("O");
-	                    }
-	                }
 	                // Add this annotation to the overall annotation list
-	                annotations.put(workerID, bioAnnotation);
+	                annotations[allWorkers.getId(workerID)] = bioAnnotation;
 	            }
 	            String annotation = outerMap.get(key).get(0).get("annotation");
 	            String path = id;
-	            if(annotation.contains("hit-premise")){
+	            if(HITId.parse(annotation).getStep().equals(HITId.PREMISE)){
 	            	path +="-"+key;
 	            }
 
 		            System.out.println("Writing mace csv to: " + outputLocation + "/" + path + ".csv");
 		            try (Writer writer = new BufferedWriter(new FileWriter(outputLocation + "/" + path + ".csv"))) {
 		                // Iterate over the tokens to get the index of the list
-		                for(int i=0;i<sortedTokens.size();i++){
-		                    String singleLine = "";
-		                    for(String worker : allWorkers){
-		                        if(i>=sortedTokens.size()){
-		                            System.out.println("Bad indexing! " + i);
-		                            continue;
+		                for(int i=0;i<tokenIndex.size();i++){
+		                    StringBuilder singleLine = new StringBuilder();
+		                    for(int worker=0;worker<annotations.length;worker++){
+		                        if(worker>0){
+		                            singleLine.append(',');
 		                        }
-		                        // If we have an annotation for this worker id, we add the tag, else
-		                        if(annotations.containsKey(worker)){
-		                            if(i>= annotations.get(worker).size()){
-		                                System.out.println("Bad worker indexing! " + i + " Worker Size: " + annotations.get(worker).size() + " Tokens: " + sortedTokens.size() );
+		                        // If we have an annotation for this worker, we add the tag, else the column stays empty
+		                        if(annotations[worker]!=null){
+		                            if(i>= annotations[worker].length){
+		                                System.out.println("Bad worker indexing! " + i + " Worker Size: " + annotations[worker].length + " Tokens: " + tokenIndex.size() );
+		                                continue;
 		                            }
-		                            singleLine += annotations.get(worker).get(i);
+		                            singleLine.append(annotations[worker][i]);
 		                        }
-		                        singleLine += ",";
 		                    }
-		                    // Remove last comma in the line
-		                    singleLine = singleLine.substring(0,singleLine.length()-1);
-		                    writer.write(singleLine);
+		                    writer.write(singleLine.toString());
 		                    writer.write(System.getProperty("line.separator"));
 		                }
 		                writer.close();
-		                // Write the list of annotators into a file, that we can get the order later:
 		            }
 		            catch (IOException e) {
 		                throw new AnalysisEngineProcessException(e);
 		            }
-	            try (Writer writer = new BufferedWriter(new FileWriter(outputLocation + "/" +  "workerIDs.txt"))) {
-	                for(String worker : allWorkers){
-	                    writer.write(worker);
-	                    writer.write(System.getProperty("line.separator"));
-	                }
-	                writer.close();
-	                // Write the list of annotators into a file, that we can get the order later:
-	            }
-	            catch (IOException e) {
-	                throw new AnalysisEngineProcessException(e);
-	            }
 	        }
         }
     }
@@ -213,9 +167,8 @@ public class MaceClaimPremiseFileWriter
 		try {
             // parse the arguments.
             parser.parseArgument(args);
-            SimplePipeline.runPipeline(CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                    XmiReader.INCLUDE_PREFIX + "*.xmi"), AnalysisEngineFactory.createEngineDescription(
+            SimplePipeline.runPipeline(StorageFormat.getIntermediateFormat().createReader(inputDir),
+                    AnalysisEngineFactory.createEngineDescription(
                     MaceClaimPremiseFileWriter.class, MaceClaimPremiseFileWriter.PARAM_SOURCE_LOCATION,
                     resultFile, MaceClaimPremiseFileWriter.PARAM_TARGET_LOCATION,
                     outputDir));
@@ -20,8 +20,8 @@ package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.m
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.SortedMap;
 import java.util.NoSuchElementException;
 
 import org.apache.uima.UIMAException;
@@ -29,7 +29,6 @@ import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -40,9 +39,9 @@ import de.tudarmstadt.ukp.dkpro.argumentation.types.Attack;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Claim;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Support;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.MTurkResultStore;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.MaceFileWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Writes one review to the mace file with the associated tokens and annotators.
@@ -88,12 +87,12 @@ public class NonsenseClaimFilter
 
 
         // If the current xmi file is contained in the amt results, start processing!
-        if (mTurkMap.containsKey(id)) {
-        	HashMap<Integer, List<HashMap<String, String>>> outerMap = mTurkMap.get(id);
+        SortedMap<Integer, List<MTurkResultStore.Row>> outerMap = resultStore.getAcceptedHITs(id);
+        if (!outerMap.isEmpty()) {
             //System.out.println("FOUND ID " + id);
             int claimIndex = 0; 			// Claim ndex for removal
             for(Integer key: outerMap.keySet()){
-            	List<HashMap<String, String>> mTurkResults = outerMap.get(key);
+            	List<MTurkResultStore.Row> mTurkResults = outerMap.get(key);
 
 	            /*
 	             * Claims are annotated in the following format:
@@ -105,7 +104,7 @@ public class NonsenseClaimFilter
 	            // Number of nonsense annotations for filtering nonsense claims
 	            int numNonsense = 0;
 
-	            for (HashMap<String, String> entry : mTurkResults) {
+	            for (MTurkResultStore.Row entry : mTurkResults) {
 
 	                String nonsense = entry.get("Answer.intext");
 	                if(nonsense.contains("nonsense") || nonsense.contains("false")){
@@ -208,14 +207,12 @@ public class NonsenseClaimFilter
 		try {
             // parse the arguments.
             parser.parseArgument(args);
-            SimplePipeline.runPipeline(CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                    XmiReader.INCLUDE_PREFIX + "*.xmi"), AnalysisEngineFactory.createEngineDescription(
+            SimplePipeline.runPipeline(StorageFormat.getIntermediateFormat().createReader(inputDir),
+                    AnalysisEngineFactory.createEngineDescription(
                     NonsenseClaimFilter.class, NonsenseClaimFilter.PARAM_SOURCE_LOCATION,
                     resultFile, NonsenseClaimFilter.PARAM_TARGET_LOCATION,
-                    outputDir),AnalysisEngineFactory.createEngineDescription(
-                            XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION, outputDir,
-                            XmiWriter.PARAM_OVERWRITE, true));
+                    outputDir),
+                    StorageFormat.getIntermediateFormat().createWriterDescription(outputDir));
         } catch( CmdLineException e ) {
             System.err.println(e.getMessage());
             System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
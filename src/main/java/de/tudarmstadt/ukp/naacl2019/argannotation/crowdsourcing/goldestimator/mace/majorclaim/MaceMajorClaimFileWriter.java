@@ -23,13 +23,12 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.SortedMap;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -38,8 +37,9 @@ import org.kohsuke.args4j.CmdLineParser;
 
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.MTurkResultStore;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.MaceFileWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Writes one review to the mace file with the associated tokens and annotators.
@@ -58,19 +58,20 @@ public class MaceMajorClaimFileWriter
             id = meta.getDocumentId();
         }
         // If the current xmi file is contained in the amt results, start processing!
-        if (mTurkMap.containsKey(id)) {
+        SortedMap<Integer, List<MTurkResultStore.Row>> outerMap = resultStore.getAcceptedHITs(id);
+        if (!outerMap.isEmpty()) {
             System.out.println("Found ID " + id);
-            for(Integer key: mTurkMap.get(id).keySet()){
-            	 List<HashMap<String, String>> mTurkResults = mTurkMap.get(id).get(key);
+            for(Integer key: outerMap.keySet()){
+            	 List<MTurkResultStore.Row> mTurkResults = outerMap.get(key);
 
 	            // List of sorted tokens of the review, since we have title and review token, we have to use this list!
 	            List<Token> sortedTokens = new ArrayList<Token>();
 	            sortedTokens = getSortedTokenList(aJCas);
 
-	            // HashMap for storing BIO tagging for all annotators
-	            HashMap<String, List<String>> annotations = new HashMap<String, List<String>>();
+	            // BIO tagging for all annotators, indexed by the int of the worker
+	            String[][] annotations = new String[allWorkers.size()][];
 
-	            for (HashMap<String, String> entry : mTurkResults) {
+	            for (MTurkResultStore.Row entry : mTurkResults) {
 	                // Processing single line of the AMT results file
 	                String workerID = entry.get("workerid");
 	                // List containing all the claims
@@ -97,7 +98,7 @@ public class MaceMajorClaimFileWriter
 	                    }
 	                }
 	                // Add this annotation to the overall annotation list
-	                annotations.put(workerID, bioAnnotation);
+	                annotations[allWorkers.getId(workerID)] = bioAnnotation.toArray(new String[bioAnnotation.size()]);
 	            }
 	            // Start writing the MACE format file:
 	            String docid = id;
@@ -105,39 +106,24 @@ public class MaceMajorClaimFileWriter
 	            try (Writer writer = new BufferedWriter(new FileWriter(outputLocation + "/" + id + ".csv"))) {
 	                // Iterate over the tokens to get the index of the list
 	                for(int i=0;i<sortedTokens.size();i++){
-	                    String singleLine = "";
-	                    for(String worker : allWorkers){
-	                        if(i>=sortedTokens.size()){
-	                            System.out.println("Bad indexing! " + i);
-	                            continue;
+	                    StringBuilder singleLine = new StringBuilder();
+	                    for(int worker=0;worker<annotations.length;worker++){
+	                        if(worker>0){
+	                            singleLine.append(',');
 	                        }
-	                        // If we have an annotation for this worker id, we add the tag, else
-	                        if(annotations.containsKey(worker)){
-	                            if(i>= annotations.get(worker).size()){
-	                                System.out.println("Bad worker indexing! " + i + " Worker Size: " + annotations.get(worker).size() + " Tokens: " + sortedTokens.size() );
+	                        // If we have an annotation for this worker, we add the tag, else the column stays empty
+	                        if(annotations[worker]!=null){
+	                            if(i>= annotations[worker].length){
+	                                System.out.println("Bad worker indexing! " + i + " Worker Size: " + annotations[worker].length + " Tokens: " + sortedTokens.size() );
+	                                continue;
 	                            }
-	                            singleLine += annotations.get(worker).get(i);
+	                            singleLine.append(annotations[worker][i]);
 	                        }
-	                        singleLine += ",";
 	                    }
-	                    // Remove last comma in the line
-	                    singleLine = singleLine.substring(0,singleLine.length()-1);
-	                    writer.write(singleLine);
+	                    writer.write(singleLine.toString());
 	                    writer.write(System.getProperty("line.separator"));
 	                }
 	                writer.close();
-	                // Write the list of annotators into a file, that we can get the order later:
-	            }
-	            catch (IOException e) {
-	                throw new AnalysisEngineProcessException(e);
-	            }
-	            try (Writer writer = new BufferedWriter(new FileWriter(outputLocation + "/" +  "workerIDs.txt"))) {
-	                for(String worker : allWorkers){
-	                    writer.write(worker);
-	                    writer.write(System.getProperty("line.separator"));
-	                }
-	                writer.close();
-	                // Write the list of annotators into a file, that we can get the order later:
 	            }
 	            catch (IOException e) {
 	                throw new AnalysisEngineProcessException(e);
@@ -159,9 +145,8 @@ public class MaceMajorClaimFileWriter
 		try {
             // parse the arguments.
             parser.parseArgument(args);
-            SimplePipeline.runPipeline(CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                    XmiReader.INCLUDE_PREFIX + "*.xmi"), AnalysisEngineFactory.createEngineDescription(
+            SimplePipeline.runPipeline(StorageFormat.getIntermediateFormat().createReader(inputDir),
+                    AnalysisEngineFactory.createEngineDescription(
                     MaceMajorClaimFileWriter.class, MaceMajorClaimFileWriter.PARAM_SOURCE_LOCATION,
                     resultFile, MaceMajorClaimFileWriter.PARAM_TARGET_LOCATION,
                     outputDir));
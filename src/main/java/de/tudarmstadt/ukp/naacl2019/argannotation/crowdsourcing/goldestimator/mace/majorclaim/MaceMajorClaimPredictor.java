@@ -36,6 +36,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.WorkerDictionary;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.MACE;
 
 public class MaceMajorClaimPredictor
@@ -201,8 +202,7 @@ public class MaceMajorClaimPredictor
 
             String competenceRaw = FileUtils.readFileToString(outputCompetenceFile, "utf-8");
             String[] competence = competenceRaw.split("\t");
-            List<String> workerIDs = FileUtils.readLines(
-                    new File(inputDir + "/" + "workerIDs.txt"), "utf-8");
+            WorkerDictionary workerIDs = WorkerDictionary.read(inputDir);
             if (competence.length != workerIDs.size()) {
                 throw new IllegalStateException("Expected " + workerIDs.size()
                         + " competence number, got " + competence.length);
@@ -210,7 +210,7 @@ public class MaceMajorClaimPredictor
             // Write the competence file:
             bw = new BufferedWriter(new FileWriter(new File(outputDir.getAbsoluteFile() + "/" + "overallWorkerCompetence.csv")));
             for(int i=0;i<workerIDs.size();i++){
-                bw.write(workerIDs.get(i) + "," + competence[i] + System.getProperty("line.separator"));
+                bw.write(workerIDs.getWorker(i) + "," + competence[i] + System.getProperty("line.separator"));
             }
             bw.close();
         }
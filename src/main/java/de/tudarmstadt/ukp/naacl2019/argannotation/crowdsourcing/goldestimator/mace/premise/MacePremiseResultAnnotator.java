@@ -34,7 +34,6 @@ import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -49,10 +48,9 @@ import de.tudarmstadt.ukp.dkpro.argumentation.types.Premise;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Support;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.MaceResultAnnotator;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.goldestimator.mace.claim.MaceClaimPremiseFileWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 public class MacePremiseResultAnnotator
     extends MaceResultAnnotator
@@ -205,13 +203,11 @@ public class MacePremiseResultAnnotator
 		try {
             // parse the arguments.
             parser.parseArgument(args);
-            SimplePipeline.runPipeline(CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                    XmiReader.INCLUDE_PREFIX + "*.xmi"), AnalysisEngineFactory.createEngineDescription(
+            SimplePipeline.runPipeline(StorageFormat.getIntermediateFormat().createReader(inputDir),
+                    AnalysisEngineFactory.createEngineDescription(
                     MacePremiseResultAnnotator.class, MaceClaimPremiseFileWriter.PARAM_SOURCE_LOCATION,
-                    resultFile), AnalysisEngineFactory.createEngineDescription(
-                    XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION, outputDir,
-                    XmiWriter.PARAM_OVERWRITE, true));
+                    resultFile),
+                    StorageFormat.getIntermediateFormat().createWriterDescription(outputDir));
         } catch( CmdLineException e ) {
             System.err.println(e.getMessage());
             System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
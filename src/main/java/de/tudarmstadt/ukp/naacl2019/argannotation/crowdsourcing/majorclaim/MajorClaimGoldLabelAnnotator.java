@@ -25,10 +25,8 @@ import java.util.List;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
-import org.apache.uima.fit.factory.CollectionReaderFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -41,33 +39,13 @@ import org.kohsuke.args4j.Option;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.ArgumentUnitUtils;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.TokenIndex;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 public class MajorClaimGoldLabelAnnotator
     extends JCasAnnotator_ImplBase
 {
 
-    /**
-     * Returns an array list of tokens which are sorted in the correct order, which means we first
-     * get a list of all the tokens
-     */
-    private List<Token> getSortedTokenList(JCas aJCas)
-    {
-        FSIterator<Token> tokenIterator = aJCas.getAllIndexedFS(Token.class);
-        tokenIterator.moveToFirst();
-        List<Token> sortedList = new ArrayList<Token>();
-        // First add the title tokens:
-        tokenIterator.moveToFirst();
-        while (tokenIterator.hasNext()) {
-            Token token = tokenIterator.get();
-            sortedList.add(token);
-            tokenIterator.moveToNext();
-        }
-        // Then add the review token
-        return sortedList;
-    }
-
     private boolean hasGoldStandard(JCas aJCas)
     {
         List<GoldEstimation> goldEstimations = new ArrayList<>(JCasUtil.select(aJCas,
@@ -95,23 +73,15 @@ public class MajorClaimGoldLabelAnnotator
         if (this.hasGoldStandard(aJCas)) {
             String startTokenID = goldStandard.getStartTokenID();
             String endTokenID = goldStandard.getEndTokenID();
-            List<Token> tokens = this.getSortedTokenList(aJCas);
-            Token startToken = new Token(aJCas);
-            Token endToken = new Token(aJCas);
+            TokenIndex tokenIndex = new TokenIndex(aJCas);
             // Set the appropriate start and end token
-            for (Token tk : tokens) {
-                if (tk.getId().equals(startTokenID)) {
-                    startToken = tk;
-                }
-                if (tk.getId().equals(endTokenID)) {
-                    endToken = tk;
-                }
-            }
-            List<Token> coveredToken = tokens.subList(tokens.indexOf(startToken),
-                    tokens.indexOf(endToken)+1);
-            String coveredTokenIDs = "";
+            int startOrdinal = tokenIndex.getOrdinal(startTokenID);
+            int endOrdinal = tokenIndex.getOrdinal(endTokenID);
+            Token startToken = tokenIndex.getToken(startOrdinal);
+            List<Token> coveredToken = tokenIndex.getTokens(startOrdinal, endOrdinal + 1);
+            StringBuilder coveredTokenIDs = new StringBuilder();
             for (Token tk : coveredToken) {
-                coveredTokenIDs += tk.getId() + ";";
+                coveredTokenIDs.append(tk.getId()).append(";");
             }
 
             // For the major claims, we set the begin, the end, and the list of tokenIDs for
@@ -119,7 +89,7 @@ public class MajorClaimGoldLabelAnnotator
             MajorClaim majorClaim = new MajorClaim(aJCas);
             majorClaim.setBegin(startToken.getBegin());
             majorClaim.setEnd(startToken.getEnd());
-            ArgumentUnitUtils.setProperty(majorClaim, "Covered_Token", coveredTokenIDs);
+            ArgumentUnitUtils.setProperty(majorClaim, "Covered_Token", coveredTokenIDs.toString());
             majorClaim.addToIndexes();
         }
         // remove gold annotations from the xmi and only keep the major claim
@@ -163,12 +133,9 @@ public class MajorClaimGoldLabelAnnotator
 		try {
             // parse the arguments.
             parser.parseArgument(args);
-            SimplePipeline.runPipeline(CollectionReaderFactory.createReader(XmiReader.class,
-                    XmiReader.PARAM_SOURCE_LOCATION, inputDir, XmiReader.PARAM_PATTERNS,
-                    XmiReader.INCLUDE_PREFIX + "*.xmi"), AnalysisEngineFactory
-                    .createEngineDescription(MajorClaimGoldLabelAnnotator.class), AnalysisEngineFactory
-                    .createEngineDescription(XmiWriter.class, XmiWriter.PARAM_OVERWRITE, true,
-                            XmiWriter.PARAM_TARGET_LOCATION, outputDir));
+            SimplePipeline.runPipeline(StorageFormat.getIntermediateFormat().createReader(inputDir),
+                    AnalysisEngineFactory.createEngineDescription(MajorClaimGoldLabelAnnotator.class),
+                    StorageFormat.getIntermediateFormat().createWriterDescription(outputDir));
         } catch( CmdLineException e ) {
             System.err.println(e.getMessage());
             System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
@@ -0,0 +1,285 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.premise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import de.tudarmstadt.ukp.dkpro.argumentation.types.Claim;
+import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.TokenLayout;
+import de.tudarmstadt.ukp.naacl2019.argannotation.types.ReviewBody;
+import de.tudarmstadt.ukp.naacl2019.argannotation.types.ReviewTitle;
+
+/**
+ * Checks and measures the creation of the premise HIT token lists on synthetic reviews with many
+ * claims. For each claim as primary claim, the lists of the {@link TokenLayout} (laid out once
+ * per review) must be identical to the lists created from scratch as done before.
+ *
+ */
+public class PremiseHITBenchmark
+{
+	@Option(name="-d",aliases = { "--documents" },metaVar="N",usage="number of synthetic reviews")
+	private int documents = 200;
+
+	@Option(name="-c",aliases = { "--claims" },metaVar="N",usage="number of claims per review")
+	private int claimCount = 15;
+
+	@Option(name="-w",aliases = { "--words" },metaVar="N",usage="number of words per sentence")
+	private int words = 20;
+
+	@Option(name="-r",aliases = { "--rounds" },metaVar="N",usage="number of measured rounds")
+	private int rounds = 5;
+
+	private static final Pattern PUNCTUATION = Pattern.compile("\\p{Punct}");
+
+	public void runBenchmark()
+			throws UIMAException
+	{
+		Random random = new Random(0);
+		List<JCas> reviews = new ArrayList<JCas>();
+		for (int d = 0; d < documents; d++) {
+			reviews.add(createReview(random));
+		}
+		System.out.println("Created " + documents + " reviews with " + claimCount
+				+ " claims each");
+
+		int mismatches = 0;
+		for (JCas review : reviews) {
+			if (!createLegacy(review).equals(createWithLayout(review))) {
+				mismatches++;
+			}
+		}
+		System.out.println(mismatches + " of " + documents + " reviews differ");
+
+		long hits = (long) documents * claimCount;
+		for (int round = 1; round <= rounds; round++) {
+			long start = System.nanoTime();
+			for (JCas review : reviews) {
+				createLegacy(review);
+			}
+			long legacyTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (JCas review : reviews) {
+				createWithLayout(review);
+			}
+			long layoutTime = System.nanoTime() - start;
+
+			System.out.println("Round " + round + ": per claim " + hitsPerSecond(hits, legacyTime)
+					+ " HITs/sec, token layout " + hitsPerSecond(hits, layoutTime) + " HITs/sec");
+		}
+	}
+
+	/**
+	 * A review with a title sentence, a body of one sentence per claim plus one for the major
+	 * claim, and one token per word or punctuation mark.
+	 */
+	private JCas createReview(Random random)
+			throws UIMAException
+	{
+		JCas jcas = JCasFactory.createJCas();
+		StringBuilder text = new StringBuilder();
+		List<int[]> sentences = new ArrayList<int[]>();
+		for (int s = 0; s < claimCount + 2; s++) {
+			int begin = text.length();
+			for (int w = 0; w < words; w++) {
+				if (w > 0) {
+					text.append(' ');
+				}
+				int length = 2 + random.nextInt(8);
+				for (int c = 0; c < length; c++) {
+					text.append((char) ('a' + random.nextInt(26)));
+				}
+				if (random.nextInt(10) == 0) {
+					text.append(',');
+				}
+			}
+			text.append('.');
+			sentences.add(new int[] { begin, text.length() });
+			text.append(' ');
+		}
+		jcas.setDocumentText(text.toString());
+
+		int id = 0;
+		Matcher matcher = Pattern.compile("\\w+|\\p{Punct}")
+				.matcher(jcas.getDocumentText());
+		while (matcher.find()) {
+			Token token = new Token(jcas, matcher.start(), matcher.end());
+			token.setId(Integer.toString(id++));
+			token.addToIndexes();
+		}
+
+		new ReviewTitle(jcas, sentences.get(0)[0], sentences.get(0)[1]).addToIndexes();
+		new ReviewBody(jcas, sentences.get(1)[0], sentences.get(sentences.size() - 1)[1])
+				.addToIndexes();
+		new MajorClaim(jcas, sentences.get(1)[0], sentences.get(1)[1]).addToIndexes();
+		for (int s = 2; s < sentences.size(); s++) {
+			// claims cover parts of the sentences
+			int[] sentence = sentences.get(s);
+			Claim claim = new Claim(jcas, sentence[0], sentence[0]
+					+ (sentence[1] - sentence[0]) * (1 + random.nextInt(3)) / 3);
+			claim.setStance(random.nextBoolean() ? "For" : "Against");
+			claim.addToIndexes();
+		}
+		return jcas;
+	}
+
+	private static List<List<String>> createWithLayout(JCas jcas)
+	{
+		MajorClaim majorClaim = JCasUtil.selectSingle(jcas, MajorClaim.class);
+		List<Claim> claims = new ArrayList<Claim>(JCasUtil.select(jcas, Claim.class));
+		TokenLayout textLayout = new TokenLayout(JCasUtil.selectSingle(jcas, ReviewBody.class),
+				majorClaim, claims);
+		TokenLayout titleLayout = new TokenLayout(JCasUtil.selectSingle(jcas, ReviewTitle.class),
+				majorClaim, claims);
+		List<List<String>> lists = new ArrayList<List<String>>();
+		for (int i = 0; i < claims.size(); i++) {
+			lists.add(textLayout.createRawList(i));
+			lists.add(titleLayout.createRawList(i));
+		}
+		return lists;
+	}
+
+	/**
+	 * The lists as created before the {@link TokenLayout} was introduced
+	 */
+	private static List<List<String>> createLegacy(JCas jcas)
+	{
+		MajorClaim majorClaim = JCasUtil.selectSingle(jcas, MajorClaim.class);
+		List<Claim> claims = new ArrayList<Claim>(JCasUtil.select(jcas, Claim.class));
+		List<List<String>> lists = new ArrayList<List<String>>();
+		for (Claim claim : claims) {
+			List<Claim> tmpClaims = new ArrayList<Claim>(claims);
+			tmpClaims.remove(claim);
+			lists.add(createRawListLegacy(JCasUtil.selectSingle(jcas, ReviewBody.class),
+					majorClaim, claim, tmpClaims));
+			lists.add(createRawListLegacy(JCasUtil.selectSingle(jcas, ReviewTitle.class),
+					majorClaim, claim, tmpClaims));
+		}
+		return lists;
+	}
+
+	private static List<String> createRawListLegacy(Annotation annotation, MajorClaim majorClaim,
+			Claim primaryClaim, List<Claim> claims)
+	{
+		List<String> rawList = new ArrayList<String>();
+		int previousTokenEndOffset = 0;
+		boolean inMajorClaim = false;
+		boolean inPrimaryClaim = false;
+		List<Token> majorClaimTokens = JCasUtil.selectCovered(Token.class, majorClaim);
+		List<Token> primaryClaimTokens = JCasUtil.selectCovered(Token.class, primaryClaim);
+		List<List<Token>> claimTokens = new ArrayList<List<Token>>();
+		for (Claim claim : claims) {
+			claimTokens.add(JCasUtil.selectCovered(Token.class, claim));
+		}
+		boolean[] inClaim = new boolean[claimTokens.size()];
+
+		for (Token token : JCasUtil.selectCovered(Token.class, annotation)) {
+			if (token.getBegin() > previousTokenEndOffset) {
+				rawList.add("<span> </span>");
+			}
+			previousTokenEndOffset = token.getEnd();
+			String tokenText = token.getCoveredText();
+			String tokenClass = PUNCTUATION.matcher(tokenText).matches() ? "punct" : "token";
+
+			if (inMajorClaim && !majorClaimTokens.contains(token)) {
+				rawList.add("</span>");
+				inMajorClaim = false;
+			}
+			if (inPrimaryClaim && !primaryClaimTokens.contains(token)) {
+				rawList.add("</span>");
+				inPrimaryClaim = false;
+			}
+			for (int i = 0; i < claimTokens.size(); i++) {
+				if (inClaim[i] && !claimTokens.get(i).contains(token)) {
+					rawList.add("</span>");
+					inClaim[i] = false;
+				}
+			}
+
+			if (!inMajorClaim && majorClaimTokens.contains(token)) {
+				rawList.add("<span class=\"major noselect\">");
+				inMajorClaim = true;
+			}
+			if (!inPrimaryClaim && primaryClaimTokens.contains(token)) {
+				rawList.add("<span class=\"" + primaryClaim.getStance() + " noselect\">");
+				inPrimaryClaim = true;
+			}
+			for (int i = 0; i < claimTokens.size(); i++) {
+				if (!inClaim[i] && claimTokens.get(i).contains(token)) {
+					rawList.add("<span class=\"major noselect\">");
+					inClaim[i] = true;
+				}
+			}
+
+			rawList.add("<span class=" + tokenClass + " id=" + token.getId() + ">" + tokenText
+					+ "</span>");
+		}
+
+		if (inMajorClaim) {
+			rawList.add("</span>");
+		}
+		for (int i = 0; i < claimTokens.size(); i++) {
+			if (inClaim[i]) {
+				rawList.add("</span>");
+			}
+		}
+		return rawList;
+	}
+
+	private static long hitsPerSecond(long hits, long nanos)
+	{
+		return Math.round(hits / (nanos / 1e9));
+	}
+
+	public static void main(String[] args)
+			throws UIMAException
+	{
+		new PremiseHITBenchmark().doMain(args);
+	}
+
+	private void doMain(String[] args) throws UIMAException {
+		CmdLineParser parser = new CmdLineParser(this);
+		try {
+            // parse the arguments.
+            parser.parseArgument(args);
+            runBenchmark();
+        } catch( CmdLineException e ) {
+            System.err.println(e.getMessage());
+            System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
+            parser.printUsage(System.err);
+            System.err.println();
+            return;
+        }
+	}
+}
@@ -20,11 +20,8 @@ package de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.premise;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.List;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.uima.UIMAException;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -38,7 +35,10 @@ import org.kohsuke.args4j.Option;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.Claim;
 import de.tudarmstadt.ukp.dkpro.argumentation.types.MajorClaim;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.AbstractHITProducer;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.HITId;
+import de.tudarmstadt.ukp.naacl2019.argannotation.crowdsourcing.TokenLayout;
 
 /**
  * Creates HITs for Claim annotations
@@ -89,20 +89,19 @@ public class PremiseHITProducer
         // but we don't care as it's not (currently) used at the moment.
         hitContainer.majorClaim = majorClaim.getCoveredText();
 
-        int i=0;
-        for(Claim claim: claims){
-        	List<Claim> tmpClaims = new ArrayList<Claim>(claims);
-        	tmpClaims.remove(claim);
-            List<String> rawTextList = createRawList(JCasUtil.selectSingle(aJCas, ReviewBody.class), majorClaim, claim, tmpClaims);
-            List<String> rawTitleList = createRawList(JCasUtil.selectSingle(aJCas, ReviewTitle.class), majorClaim, claim, tmpClaims);
-            hitContainer.rawHTMLTokens = rawTextList;
-            hitContainer.reviewTitle = rawTitleList;
-            hitContainer.claim = claim.getCoveredText();
-        	File outputHITFile = new File(outputDir, "hit-premise-"+ i++ +"-review-" + reviewID + ".html");
-            System.out.println("Rendering " + outputHITFile);
-            PrintWriter pw = new PrintWriter(outputHITFile);
-            this.mustache.execute(pw, hitContainer);
-            IOUtils.closeQuietly(pw);
+        // The tokens and span boundaries are laid out once, each HIT only changes the primary
+        // claim
+        TokenLayout textLayout = new TokenLayout(JCasUtil.selectSingle(aJCas, ReviewBody.class),
+                majorClaim, claims);
+        TokenLayout titleLayout = new TokenLayout(JCasUtil.selectSingle(aJCas, ReviewTitle.class),
+                majorClaim, claims);
+
+        int tokens = JCasUtil.select(aJCas, Token.class).size();
+        for (int i = 0; i < claims.size(); i++) {
+            hitContainer.rawHTMLTokens = textLayout.createRawList(i);
+            hitContainer.reviewTitle = titleLayout.createRawList(i);
+            hitContainer.claim = claims.get(i).getCoveredText();
+            writeHIT(new HITId(HITId.PREMISE, reviewID, i), hitContainer, tokens, outputDir);
         }
     }
 
@@ -124,6 +123,21 @@ public class PremiseHITProducer
 	@Option(name="-s",aliases = { "--sandbox" },usage="use MTurk sandbox")
     private boolean sandbox = false;
 
+	@Option(name="-t",aliases = { "--threads" },metaVar="N",usage="number of threads rendering the HITs")
+    private int threads = 1;
+
+	@Option(name="-b",aliases = { "--bundle" },usage="writes all HITs into hits.zip with a batch CSV hits.csv instead of one HTML file per HIT")
+    private boolean bundle = false;
+
+	@Option(name="-a",aliases = { "--assets" },metaVar="dir",usage="webapp folder (src/main/webapp); its css/js files are published as versioned files to the assets subfolder of the output folder")
+    private File assetDir;
+
+	@Option(name="-u",aliases = { "--incremental" },usage="skips input files whose HITs in the output folder are still up to date, e.g. to resume an interrupted run")
+    private boolean incremental = false;
+
+	@Option(name="-p",aliases = { "--pack" },metaVar="tokens",usage="packs several HITs into packed HITs of at most this many tokens, listed in packs.csv")
+    private int packTokens = 0;
+
     public static void main(String[] args)
         throws IOException, UIMAException
     {
@@ -136,7 +150,11 @@ public class PremiseHITProducer
             // parse the arguments.
             parser.parseArgument(args);
             this.initialize(sandbox, language);
-            this.process(inputDir, outputDir);
+            if (assetDir != null) {
+                this.publishAssets(assetDir, outputDir);
+            }
+            this.setPacking(packTokens);
+            this.process(inputDir, outputDir, threads, bundle, incremental);
         } catch( CmdLineException e ) {
             System.err.println(e.getMessage());
             System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
@@ -0,0 +1,138 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.XMLInputSource;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+
+/**
+ * Reads CASes written by the {@link BinaryCasWriter} in compressed binary form 6. The type system
+ * the files were written with is taken from the TypeSystem.xml in the folder of each file or in
+ * the closest parent folder (the files may be in ASIN subfolders). Single files, e.g. documents
+ * looked up by their ID, are read with {@link #readCas(CAS, File)}.
+ *
+ */
+public class BinaryCasReader
+    extends ResourceCollectionReaderBase
+{
+    // type systems by folder, shared by all readers; a type system is loaded again when its
+    // TypeSystem.xml changes
+    private static final Map<File, LoadedTypeSystem> TYPE_SYSTEMS = new HashMap<>();
+
+    @Override
+    public void getNext(CAS aCAS)
+        throws IOException, CollectionException
+    {
+        Resource res = nextFile();
+        TypeSystem sourceTypeSystem = getTypeSystem(new File(res.getResolvedUri()).getParentFile());
+        try (InputStream is = new BufferedInputStream(CompressionUtils.getInputStream(
+                res.getLocation(), res.getInputStream()))) {
+            Serialization.deserializeCAS(aCAS, is, sourceTypeSystem, null);
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new CollectionException(e);
+        }
+    }
+
+    /**
+     * Reads a single file written by the {@link BinaryCasWriter}
+     *
+     * @param aCAS
+     *            the CAS to fill
+     * @param file
+     *            the file
+     * @throws IOException
+     *             I/O exception
+     */
+    public static void readCas(CAS aCAS, File file)
+        throws IOException
+    {
+        TypeSystem sourceTypeSystem = getTypeSystem(file.getAbsoluteFile().getParentFile());
+        try (InputStream is = new BufferedInputStream(CompressionUtils.getInputStream(
+                file.getPath(), new FileInputStream(file)))) {
+            Serialization.deserializeCAS(aCAS, is, sourceTypeSystem, null);
+        }
+    }
+
+    private static synchronized TypeSystem getTypeSystem(File folder)
+        throws IOException
+    {
+        LoadedTypeSystem loaded = TYPE_SYSTEMS.get(folder);
+        if (loaded != null && loaded.file.lastModified() == loaded.lastModified) {
+            return loaded.typeSystem;
+        }
+        File dir = folder;
+        while (dir != null && !new File(dir, "TypeSystem.xml").exists()) {
+            dir = dir.getParentFile();
+        }
+        if (dir == null) {
+            throw new FileNotFoundException("No TypeSystem.xml found for " + folder);
+        }
+        File file = new File(dir, "TypeSystem.xml");
+        long lastModified = file.lastModified();
+        TypeSystem typeSystem;
+        try {
+            TypeSystemDescription description = UIMAFramework.getXMLParser()
+                    .parseTypeSystemDescription(new XMLInputSource(file));
+            typeSystem = CasCreationUtils.createCas(description, null, null).getTypeSystem();
+        }
+        catch (InvalidXMLException | ResourceInitializationException e) {
+            throw new IOException(e);
+        }
+        TYPE_SYSTEMS.put(folder, new LoadedTypeSystem(file, lastModified, typeSystem));
+        return typeSystem;
+    }
+
+    private static class LoadedTypeSystem
+    {
+        private final File file;
+        private final long lastModified;
+        private final TypeSystem typeSystem;
+
+        private LoadedTypeSystem(File file, long lastModified, TypeSystem typeSystem)
+        {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.typeSystem = typeSystem;
+        }
+    }
+}
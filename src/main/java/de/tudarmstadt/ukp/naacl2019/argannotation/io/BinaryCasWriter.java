@@ -0,0 +1,111 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.io;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.TypeCapability;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.TypeSystemUtil;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+
+/**
+ * Writes each CAS in UIMA's compressed binary form 6. The type system is not embedded in the
+ * files, but written once as TypeSystem.xml to the output path, as the XmiWriter does; the
+ * {@link BinaryCasReader} needs it to read the files again.
+ *
+ */
+@TypeCapability(inputs = { "de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData" })
+public class BinaryCasWriter
+    extends JCasFileWriter_ImplBase
+{
+    /**
+     * Location to write the type system to. If this is not set, a file called TypeSystem.xml will
+     * be written to the output path.
+     */
+    public static final String PARAM_TYPE_SYSTEM_FILE = "typeSystemFile";
+    @ConfigurationParameter(name = PARAM_TYPE_SYSTEM_FILE, mandatory = false)
+    private File typeSystemFile;
+
+    private boolean typeSystemWritten;
+
+    @Override
+    public void initialize(UimaContext aContext)
+        throws ResourceInitializationException
+    {
+        super.initialize(aContext);
+        typeSystemWritten = false;
+    }
+
+    @Override
+    public void process(JCas aJCas)
+        throws AnalysisEngineProcessException
+    {
+        OutputStream docOS = null;
+        try {
+            docOS = new BufferedOutputStream(getOutputStream(aJCas,
+                    StorageFormat.BINARY.getExtension()));
+            // form 6: with the type system, so that it can be read into a different one
+            Serialization.serializeWithCompression(aJCas.getCas(), docOS,
+                    aJCas.getTypeSystem());
+
+            if (!typeSystemWritten) {
+                writeTypeSystem(aJCas);
+                typeSystemWritten = true;
+            }
+        }
+        catch (Exception e) {
+            throw new AnalysisEngineProcessException(new Exception("Unable to write "
+                    + DocumentMetaData.get(aJCas).getDocumentId(), e));
+        }
+        finally {
+            closeQuietly(docOS);
+        }
+    }
+
+    private void writeTypeSystem(JCas aJCas)
+        throws Exception
+    {
+        OutputStream typeOS = null;
+        try {
+            if (typeSystemFile != null) {
+                typeOS = CompressionUtils.getOutputStream(typeSystemFile);
+            }
+            else {
+                typeOS = getOutputStream("TypeSystem", ".xml");
+            }
+            TypeSystemUtil.typeSystem2TypeSystemDescription(aJCas.getTypeSystem()).toXML(typeOS);
+        }
+        finally {
+            closeQuietly(typeOS);
+        }
+    }
+}
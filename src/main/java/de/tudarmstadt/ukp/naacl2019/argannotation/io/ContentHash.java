@@ -0,0 +1,101 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-1 hashes of file contents and texts as lower-case hex strings, used to recognize inputs
+ * that did not change between runs (the HIT manifest, the tokenization cache and the HIT
+ * assets).
+ *
+ */
+public class ContentHash
+{
+    private ContentHash()
+    {
+    }
+
+    /**
+     * @param in
+     *            the content, read to the end but not closed
+     * @return the hash of the content
+     * @throws IOException
+     *             I/O exception
+     */
+    public static String hash(InputStream in)
+        throws IOException
+    {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param content
+     *            the content
+     * @return the hash of the content
+     */
+    public static String hash(byte[] content)
+    {
+        return toHex(newDigest().digest(content));
+    }
+
+    /**
+     * @param texts
+     *            the texts
+     * @return the hash of the UTF-8 encoding of the texts, one after the other
+     */
+    public static String hash(String... texts)
+    {
+        MessageDigest digest = newDigest();
+        for (String text : texts) {
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.pipeline.JCasIterable;
+import org.apache.uima.jcas.JCas;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.xml.sax.SAXException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+
+/**
+ * Compares the {@link StorageFormat}s on the XMI files of a pipeline step (e.g. data/xmi_stripped,
+ * 983 documents). The documents are scaled up synthetically by writing each of them several
+ * times, then the write time, read time and disk size of XMI and of compressed binary CASes are
+ * reported.
+ *
+ */
+public class StorageBenchmark
+{
+	@Option(name="-i",aliases = { "--input" },metaVar="dir",usage="folder with xmi files")
+	private File inputDir = new File("data/xmi_stripped");
+
+	@Option(name="-o",aliases = { "--output" },metaVar="dir",usage="temporary folder for the written files, deleted afterwards")
+	private File outputDir = new File("target/storage-benchmark");
+
+	@Option(name="-s",aliases = { "--scale" },metaVar="N",usage="number of copies written of each document")
+	private int scale = 10;
+
+	public void runBenchmark()
+			throws IOException, UIMAException, SAXException
+	{
+		// keep the documents in memory, each in its own CAS
+		List<JCas> documents = new ArrayList<JCas>();
+		List<String> ids = new ArrayList<String>();
+		for (JCas jcas : new JCasIterable(StorageFormat.XMI.createReaderDescription(inputDir))) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Serialization.serializeWithCompression(jcas.getCas(), bytes, jcas.getTypeSystem());
+			JCas copy = JCasFactory.createJCas();
+			Serialization.deserializeCAS(copy.getCas(),
+					new ByteArrayInputStream(bytes.toByteArray()), jcas.getTypeSystem(), null);
+			documents.add(copy);
+			ids.add(DocumentMetaData.get(jcas).getDocumentId());
+		}
+		System.out.println("Loaded " + documents.size() + " documents from " + inputDir
+				+ ", writing " + scale + " copies of each");
+
+		for (StorageFormat format : StorageFormat.values()) {
+			File dir = new File(outputDir, format.name().toLowerCase());
+			FileUtils.deleteQuietly(dir);
+			dir.mkdirs();
+
+			long start = System.nanoTime();
+			for (int copy = 0; copy < scale; copy++) {
+				for (int d = 0; d < documents.size(); d++) {
+					File file = new File(dir, ids.get(d) + "_" + copy + format.getExtension());
+					try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+						format.serialize(documents.get(d).getCas(), os);
+					}
+				}
+			}
+			long writeTime = System.nanoTime() - start;
+
+			CAS cas = JCasFactory.createJCas().getCas();
+			start = System.nanoTime();
+			int count = 0;
+			for (File file : format.listFiles(dir)) {
+				cas.reset();
+				try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+					read(format, cas, is);
+				}
+				count++;
+			}
+			long readTime = System.nanoTime() - start;
+
+			long size = 0;
+			for (File file : format.listFiles(dir)) {
+				size += Files.size(file.toPath());
+			}
+			System.out.println(format + ": " + count + " files, write "
+					+ millis(writeTime) + " ms, read " + millis(readTime) + " ms, "
+					+ (size / 1024) + " KB (" + (size / count) + " bytes/document)");
+			FileUtils.deleteQuietly(dir);
+		}
+	}
+
+	private static void read(StorageFormat format, CAS cas, InputStream is)
+			throws IOException, SAXException
+	{
+		if (format == StorageFormat.BINARY) {
+			// the files were written with the same type system
+			Serialization.deserializeCAS(cas, is, cas.getTypeSystem(), null);
+		}
+		else {
+			XmiCasDeserializer.deserialize(is, cas);
+		}
+	}
+
+	private static long millis(long nanos)
+	{
+		return Math.round(nanos / 1e6);
+	}
+
+	public static void main(String[] args)
+			throws IOException, UIMAException, SAXException
+	{
+		new StorageBenchmark().doMain(args);
+	}
+
+	private void doMain(String[] args) throws IOException, UIMAException, SAXException {
+		CmdLineParser parser = new CmdLineParser(this);
+		try {
+            // parse the arguments.
+            parser.parseArgument(args);
+            runBenchmark();
+        } catch( CmdLineException e ) {
+            System.err.println(e.getMessage());
+            System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
+            parser.printUsage(System.err);
+            System.err.println();
+            return;
+        }
+	}
+}
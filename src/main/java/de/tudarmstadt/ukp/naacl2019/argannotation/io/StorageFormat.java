@@ -0,0 +1,248 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.util.CasIOUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.xml.sax.SAXException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
+import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
+
+/**
+ * Storage format of the CASes passed between the pipeline steps. XMI is the default and remains
+ * the format of the final export (the converters); the intermediate steps can be switched to
+ * compressed binary CASes (UIMA form 6), which are much faster to read and write, by setting the
+ * system property {@value #PROPERTY} to "binary", e.g.
+ *
+ * <pre>
+ * java -Dargannotation.storage=binary ...
+ * </pre>
+ *
+ * All steps of a run have to use the same format. This includes the steps that write their own
+ * files (e.g. the gold standard) and those that look up single documents by their ID (e.g. the
+ * converters and the HTML export), which use {@link #getFile(File, String)} and
+ * {@link #readJCas(JCas, File)}.
+ *
+ */
+public enum StorageFormat
+{
+    XMI(".xmi"), BINARY(".bcas");
+
+    /**
+     * System property selecting the format of the intermediate steps: "xmi" or "binary"
+     */
+    public static final String PROPERTY = "argannotation.storage";
+
+    private final String extension;
+
+    private StorageFormat(String extension)
+    {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the file extension including the dot, e.g. ".xmi"
+     */
+    public String getExtension()
+    {
+        return extension;
+    }
+
+    /**
+     * @return the format of the intermediate steps, as selected by the system property
+     *         {@value #PROPERTY}
+     */
+    public static StorageFormat getIntermediateFormat()
+    {
+        return valueOf(System.getProperty(PROPERTY, "xmi").trim().toUpperCase());
+    }
+
+    /**
+     * Reader for all files of this format in the given folder (and its subfolders), or for the
+     * given single file.
+     *
+     * @param sourceLocation
+     *            folder or file
+     * @return the reader description
+     * @throws ResourceInitializationException
+     *             exception
+     */
+    public CollectionReaderDescription createReaderDescription(File sourceLocation)
+        throws ResourceInitializationException
+    {
+        return CollectionReaderFactory.createReaderDescription(getReaderClass(),
+                getReaderParameters(sourceLocation));
+    }
+
+    /**
+     * @see #createReaderDescription(File)
+     */
+    public CollectionReader createReader(File sourceLocation)
+        throws ResourceInitializationException
+    {
+        return CollectionReaderFactory.createReader(getReaderClass(),
+                getReaderParameters(sourceLocation));
+    }
+
+    /**
+     * Writer overwriting existing files in the target location; the type system is written to
+     * TypeSystem.xml in the target location.
+     *
+     * @param targetLocation
+     *            output folder
+     * @param additionalParameters
+     *            further parameters of the writer, e.g. the type system file
+     * @return the writer description
+     * @throws ResourceInitializationException
+     *             exception
+     */
+    public AnalysisEngineDescription createWriterDescription(File targetLocation,
+            Object... additionalParameters)
+        throws ResourceInitializationException
+    {
+        List<Object> parameters = new ArrayList<Object>(Arrays.<Object> asList(
+                XmiWriter.PARAM_TARGET_LOCATION, targetLocation, XmiWriter.PARAM_OVERWRITE, true));
+        parameters.addAll(Arrays.asList(additionalParameters));
+        if (this == BINARY) {
+            return AnalysisEngineFactory.createEngineDescription(BinaryCasWriter.class,
+                    parameters.toArray());
+        }
+        return AnalysisEngineFactory.createEngineDescription(XmiWriter.class,
+                parameters.toArray());
+    }
+
+    /**
+     * @param dir
+     *            folder
+     * @param documentId
+     *            document ID
+     * @return the file of the document in this format directly in the folder
+     */
+    public File getFile(File dir, String documentId)
+    {
+        return new File(dir, documentId + extension);
+    }
+
+    /**
+     * @param fileName
+     *            file name or document ID
+     * @return the document ID, i.e. the name without the extension of any format
+     */
+    public static String getDocumentId(String fileName)
+    {
+        for (StorageFormat format : values()) {
+            if (fileName.endsWith(format.extension)) {
+                return fileName.substring(0, fileName.length() - format.extension.length());
+            }
+        }
+        return fileName;
+    }
+
+    /**
+     * Reads a single file of this format, as the reader does. Binary files are read with the
+     * TypeSystem.xml of their folder or the closest parent folder.
+     *
+     * @param aJCas
+     *            the CAS to fill
+     * @param file
+     *            file of this format
+     * @throws IOException
+     *             I/O exception
+     */
+    public void readJCas(JCas aJCas, File file)
+        throws IOException
+    {
+        if (this == BINARY) {
+            BinaryCasReader.readCas(aJCas.getCas(), file);
+        }
+        else {
+            CasIOUtil.readJCas(aJCas, file);
+        }
+    }
+
+    /**
+     * Writes a CAS in this format, as the writer does; the type system is not written.
+     *
+     * @param cas
+     *            the CAS
+     * @param out
+     *            output stream, left open
+     * @throws IOException
+     *             I/O exception
+     * @throws SAXException
+     *             XMI serialization exception
+     */
+    public void serialize(CAS cas, OutputStream out)
+        throws IOException, SAXException
+    {
+        if (this == BINARY) {
+            // form 6, read with the TypeSystem.xml of the output folder
+            Serialization.serializeWithCompression(cas, out, cas.getTypeSystem());
+        }
+        else {
+            XmiCasSerializer.serialize(cas, out);
+        }
+    }
+
+    /**
+     * @param dir
+     *            folder
+     * @return all files of this format in the folder and its subfolders
+     */
+    public Collection<File> listFiles(File dir)
+    {
+        return FileUtils.listFiles(dir, new String[] { extension.substring(1) }, true);
+    }
+
+    private Class<? extends ResourceCollectionReaderBase> getReaderClass()
+    {
+        return this == BINARY ? BinaryCasReader.class : XmiReader.class;
+    }
+
+    private Object[] getReaderParameters(File sourceLocation)
+    {
+        if (sourceLocation.isFile()) {
+            return new Object[] { ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION,
+                    sourceLocation };
+        }
+        return new Object[] { ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, sourceLocation,
+                ResourceCollectionReaderBase.PARAM_PATTERNS,
+                ResourceCollectionReaderBase.INCLUDE_PREFIX + "**/*" + extension };
+    }
+}
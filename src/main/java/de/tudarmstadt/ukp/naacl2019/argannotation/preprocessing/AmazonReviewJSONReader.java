@@ -19,15 +19,25 @@
 package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UimaContext;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
 import de.tudarmstadt.ukp.naacl2019.argannotation.types.ProductReviewMetaData;
 import de.tudarmstadt.ukp.naacl2019.argannotation.types.ReviewBody;
 import de.tudarmstadt.ukp.naacl2019.argannotation.types.ReviewTitle;
@@ -42,48 +52,333 @@ import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
 /**
  * UIMA reader for Amazon reviews in JSON format
  *
+ * By default, only the first line of each resource is read, i.e. the data has to be split into
+ * one file per review first. In multi-record mode, each resource is streamed line by line and
+ * one CAS is emitted per review, so the McAuley dumps (e.g. aggressive_dedup.json.gz or
+ * reviews_*.json.gz) can be read directly.
+ *
+ * The collection can be partitioned over several readers. The resources are partitioned, also
+ * in multi-record mode, so that each resource is only opened and decompressed by one reader; a
+ * single dump is better read by one reader feeding several pipelines, as the
+ * {@link Step02DataAnnotator} does.
+ *
  */
 public class AmazonReviewJSONReader
         extends ResourceCollectionReaderBase
 {
+    /**
+     * Read every line of a resource as a separate review instead of only the first one.
+     */
+    public static final String PARAM_MULTI_RECORD = "multiRecord";
+    @ConfigurationParameter(name = PARAM_MULTI_RECORD, mandatory = true, defaultValue = "false")
+    private boolean multiRecord;
+
+    /**
+     * Optional file containing one review ID (asin_reviewerID_unixReviewTime) per line. In
+     * multi-record mode, only the listed reviews are read.
+     */
+    public static final String PARAM_ID_ALLOWLIST = "idAllowlist";
+    @ConfigurationParameter(name = PARAM_ID_ALLOWLIST, mandatory = false)
+    private File idAllowlist;
+
+    /**
+     * Optional class names of {@link ReviewRecordFilter}s. In multi-record mode, a line is only
+     * read if all filters accept it. The filters are applied before the line is bound.
+     */
+    public static final String PARAM_RECORD_FILTERS = "recordFilters";
+    @ConfigurationParameter(name = PARAM_RECORD_FILTERS, mandatory = false)
+    private String[] recordFilterClasses;
+
+    /**
+     * Number of readers the collection is partitioned over. Each reader only emits the reviews of
+     * its own partition, so several pipelines can process the collection in parallel.
+     */
+    public static final String PARAM_PARTITION_COUNT = "partitionCount";
+    @ConfigurationParameter(name = PARAM_PARTITION_COUNT, mandatory = true, defaultValue = "1")
+    private int partitionCount;
+
+    /**
+     * Partition to be read by this reader, between 0 and partitionCount - 1. The resources are
+     * assigned to the partitions round-robin.
+     */
+    public static final String PARAM_PARTITION_INDEX = "partitionIndex";
+    @ConfigurationParameter(name = PARAM_PARTITION_INDEX, mandatory = true, defaultValue = "0")
+    private int partitionIndex;
+
+    /**
+     * Optional output folder of a previous run. If given together with PARAM_CACHE_MODEL, reviews
+     * whose XMI in this folder is still valid according to the {@link TokenizationCache} are
+     * skipped.
+     */
+    public static final String PARAM_CACHE_DIRECTORY = "cacheDirectory";
+    @ConfigurationParameter(name = PARAM_CACHE_DIRECTORY, mandatory = false)
+    private File cacheDirectory;
+
+    /**
+     * The tokenizer model used for the cached XMI files
+     */
+    public static final String PARAM_CACHE_MODEL = "cacheModel";
+    @ConfigurationParameter(name = PARAM_CACHE_MODEL, mandatory = false)
+    private File cacheModel;
+
+    private Set<String> allowedIDs;
+    private List<ReviewRecordFilter> recordFilters;
+
+    private final Gson gson = new Gson();
+
+    private TokenizationCache cache;
+    private long skippedReviews = 0;
+
+    // The next review to be emitted
+    private Review pendingReview;
+
+    // Multi-record state: the resource we are currently streaming and the next accepted line
+    private BufferedReader currentReader;
+    private String pendingRecord;
+
+    // Partitioning state: number of resources seen and the next resource of our partition
+    private long partitionPosition = 0;
+    private Resource pendingResource;
+
+    @Override
+    public void initialize(UimaContext aContext)
+        throws ResourceInitializationException
+    {
+        super.initialize(aContext);
+
+        if (partitionCount < 1 || partitionIndex < 0 || partitionIndex >= partitionCount) {
+            throw new ResourceInitializationException(new IllegalArgumentException(
+                    "Invalid partition " + partitionIndex + " of " + partitionCount));
+        }
+
+        if (idAllowlist != null) {
+            try {
+                allowedIDs = new HashSet<String>();
+                for (String id : FileUtils.readLines(idAllowlist, "utf-8")) {
+                    if (!id.trim().isEmpty()) {
+                        allowedIDs.add(id.trim().replace(".xmi", ""));
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new ResourceInitializationException(e);
+            }
+        }
+
+        if (cacheDirectory != null && cacheModel != null) {
+            try {
+                cache = new TokenizationCache(cacheDirectory, cacheModel);
+            }
+            catch (IOException e) {
+                throw new ResourceInitializationException(e);
+            }
+        }
+
+        recordFilters = new ArrayList<ReviewRecordFilter>();
+        if (recordFilterClasses != null) {
+            for (String filterClass : recordFilterClasses) {
+                try {
+                    recordFilters.add((ReviewRecordFilter) Class.forName(filterClass).newInstance());
+                }
+                catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new ResourceInitializationException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+            throws IOException, CollectionException
+    {
+        return fillPendingReview();
+    }
+
     @Override
     public void getNext(CAS aCAS)
             throws IOException, CollectionException
     {
-    	JCas jcas;
-        try {
-          jcas = aCAS.getJCas();
-        } catch (CASException e) {
-          throw new CollectionException(e);
+        if (!fillPendingReview()) {
+            throw new CollectionException(new IllegalStateException("No more reviews"));
         }
-        Resource res = nextFile();
+        Review review = pendingReview;
+        pendingReview = null;
 
-        InputStream is = CompressionUtils.getInputStream(res.getLocation(), res.getInputStream());
-        BufferedReader br = new BufferedReader(new InputStreamReader(is));
         // load JSON to JCas text
+        fillCas(aCAS, review);
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (currentReader != null) {
+            currentReader.close();
+            currentReader = null;
+        }
+        if (cache != null) {
+            System.out.println("Skipped " + skippedReviews + " unchanged reviews");
+        }
+        super.close();
+    }
+
+    /**
+     * Binds the next review, skipping the reviews whose cached XMI is still valid.
+     *
+     * @return true, if there is another review to be read
+     */
+    private boolean fillPendingReview()
+            throws IOException
+    {
+        while (pendingReview == null) {
+            String line = nextLine();
+            if (line == null) {
+                return false;
+            }
+            Review review = gson.fromJson(line, Review.class);
+            if (cache != null && cache.isValid(getDocumentId(review), getDocumentText(review))) {
+                skippedReviews++;
+                continue;
+            }
+            pendingReview = review;
+        }
+        return true;
+    }
+
+    /**
+     * @return the next line to be read, or null if there is none
+     */
+    private String nextLine()
+            throws IOException
+    {
+        if (multiRecord) {
+            if (!fillPendingRecord()) {
+                return null;
+            }
+            String line = pendingRecord;
+            pendingRecord = null;
+            return line;
+        }
+        if (!fillPendingResource()) {
+            return null;
+        }
+        Resource res = pendingResource;
+        pendingResource = null;
+
+        InputStream is = CompressionUtils.getInputStream(res.getLocation(), res.getInputStream());
+        BufferedReader br = new BufferedReader(new InputStreamReader(is, "utf-8"));
         // NOTE: Assume we read files using the json format of: http://jmcauley.ucsd.edu/data/amazon/
-        Gson gson = new Gson();
         String line = br.readLine();
-    	// close
+        // close
         IOUtils.closeQuietly(is);
+        return line;
+    }
+
+    /**
+     * Skips the resources of other partitions.
+     *
+     * @return true, if there is another resource in our partition
+     */
+    private boolean fillPendingResource()
+            throws IOException
+    {
+        while (pendingResource == null) {
+            if (!super.hasNext()) {
+                return false;
+            }
+            Resource res = nextFile();
+            if (inPartition()) {
+                pendingResource = res;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Round-robin assignment of the resources to the partitions.
+     */
+    private boolean inPartition()
+    {
+        return partitionPosition++ % partitionCount == partitionIndex;
+    }
+
+    /**
+     * Reads ahead until the next line that passes the allowlist and the record filters, opening
+     * the next resource whenever the current one is exhausted.
+     *
+     * @return true, if there is another review to be read
+     */
+    private boolean fillPendingRecord()
+            throws IOException
+    {
+        while (pendingRecord == null) {
+            if (currentReader == null) {
+                if (!fillPendingResource()) {
+                    return false;
+                }
+                Resource res = pendingResource;
+                pendingResource = null;
+                InputStream is = CompressionUtils.getInputStream(res.getLocation(),
+                        res.getInputStream());
+                currentReader = new BufferedReader(new InputStreamReader(is, "utf-8"));
+            }
+            String line = currentReader.readLine();
+            if (line == null) {
+                currentReader.close();
+                currentReader = null;
+            }
+            else if (!line.trim().isEmpty() && accept(line)) {
+                pendingRecord = line;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a raw line against the ID allowlist and the record filters without binding it.
+     */
+    private boolean accept(String line)
+    {
+        if (allowedIDs != null && !allowedIDs.contains(RawFieldExtractor.extractReviewID(line))) {
+            return false;
+        }
+        for (ReviewRecordFilter filter : recordFilters) {
+            if (!filter.accept(line)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fillCas(CAS aCAS, Review review)
+            throws CollectionException
+    {
+    	JCas jcas;
+        try {
+          jcas = aCAS.getJCas();
+        } catch (CASException e) {
+          throw new CollectionException(e);
+        }
 
-        Review review = gson.fromJson(line, Review.class);
         String reviewTitle = HtmlEscape.unescapeHtml(review.getSummary());
-        jcas.setDocumentText(reviewTitle + "\n\n" +  HtmlEscape.unescapeHtml(review.getReviewText()));
+        jcas.setDocumentText(getDocumentText(review));
+
+        Product product = review.getProduct();
+        String asin = getAsin(review);
 
         // set all metadata
         try {
             DocumentMetaData metaData = DocumentMetaData.create(jcas);
-            // an unique review id is not given in the used data. So we use asin_reviewerID_unixReviewTime
-            String id = review.getProduct().getAsin()+"_"+review.getReviewerID()+"_"+review.getUnixReviewTime();
-            metaData.setDocumentId(id);
+            metaData.setDocumentId(getDocumentId(review));
             metaData.setDocumentTitle(reviewTitle);
             ProductReviewMetaData reviewMetaData = new ProductReviewMetaData(aCAS.getJCas());
             reviewMetaData.addToIndexes();
-            reviewMetaData.setProductID(review.getProduct().getAsin());
+            reviewMetaData.setProductID(asin);
             reviewMetaData.setReviewerID(review.getReviewerID());
             //reviewMetaData.setReviewTitle(reviewTitle);
-            reviewMetaData.setProductName(HtmlEscape.unescapeHtml(review.getProduct().getTitle()));
+            if (product != null) {
+                reviewMetaData.setProductName(HtmlEscape.unescapeHtml(product.getTitle()));
+            }
             reviewMetaData.setStarRating(review.getOverall());
             reviewMetaData.setHelpfulness("["+review.getHelpful()[0].toString()+ " "
                                             + review.getHelpful()[1].toString()+"]");
@@ -104,4 +399,21 @@ public class AmazonReviewJSONReader
         }
     }
 
+    private static String getDocumentText(Review review)
+    {
+        return HtmlEscape.unescapeHtml(review.getSummary()) + "\n\n"
+                + HtmlEscape.unescapeHtml(review.getReviewText());
+    }
+
+    private static String getDocumentId(Review review)
+    {
+        // an unique review id is not given in the used data. So we use asin_reviewerID_unixReviewTime
+        return getAsin(review)+"_"+review.getReviewerID()+"_"+review.getUnixReviewTime();
+    }
+
+    private static String getAsin(Review review)
+    {
+        // The raw McAuley dumps contain no product information, so fall back to the asin field
+        return review.getProduct() != null ? review.getProduct().getAsin() : review.getAsin();
+    }
 }
@@ -27,7 +27,9 @@ import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
@@ -35,6 +37,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import opennlp.tools.tokenize.Tokenizer;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
 
 /**
  * A tokenizer using the tokenizer from Apache openNLP.
@@ -53,6 +56,14 @@ public class OpenNLPTokenizerAnnotator
     @ConfigurationParameter(name = PARAM_LANGUAGE_MODEL,defaultValue = ENGLISH_LANGUAGE_MODEL)
     private String language;
 
+    /**
+     * Optional {@link TokenizerModelResource}. If bound, the model is taken from the shared
+     * resource instead of being loaded from PARAM_LANGUAGE_MODEL.
+     */
+    public static final String RES_TOKENIZER_MODEL = "tokenizerModel";
+    @ExternalResource(key = RES_TOKENIZER_MODEL, mandatory = false)
+    private TokenizerModelResource modelResource;
+
     private TokenizerModel model;
     private Tokenizer tokenizer;
     private InputStream modelIn;
@@ -63,15 +74,27 @@ public class OpenNLPTokenizerAnnotator
     {
         super.initialize(ctx);
         language = ctx.getConfigParameterValue(PARAM_LANGUAGE_MODEL).toString();
-        String workingPath = Paths.get("").toAbsolutePath().toString();
-        // Initialize a tokenizer with the given languageModel e.g. "/path/to/file/en-token.bin"
         try {
-            modelIn = new FileInputStream(workingPath+language);
-            model = new TokenizerModel(modelIn);
+            modelResource = (TokenizerModelResource) ctx.getResourceObject(RES_TOKENIZER_MODEL);
         }
-        catch (IOException e) {
+        catch (ResourceAccessException e) {
             throw new ResourceInitializationException(e);
         }
+        if (modelResource != null) {
+            model = modelResource.getModel();
+        }
+        else {
+            String workingPath = Paths.get("").toAbsolutePath().toString();
+            // Initialize a tokenizer with the given languageModel e.g. "/path/to/file/en-token.bin"
+            try {
+                modelIn = new FileInputStream(workingPath+language);
+                model = new TokenizerModel(modelIn);
+            }
+            catch (IOException e) {
+                throw new ResourceInitializationException(e);
+            }
+        }
+        // TokenizerME is not thread-safe, so every annotator has its own
         tokenizer = new TokenizerME(model);
     }
 
@@ -86,8 +109,8 @@ public class OpenNLPTokenizerAnnotator
     }
 
     /**
-     * Does the tokenizing using the opennlp tokenizer and some
-     * regex patterns, which are explained below.
+     * Does the tokenizing using the opennlp tokenizer and splits
+     * the tokens at punctuation, see {@link TokenSplitter}.
      *
      * @param aJCas
      *      the actual JCas
@@ -97,83 +120,15 @@ public class OpenNLPTokenizerAnnotator
      *      the type of token we want our token id to have: tokentype_<startID>
      */
     private void tokenize(JCas aJCas, String text, String tokentype){
-     // Generate tokens and tokenids
-        String tokens[] = tokenizer.tokenize(text);
-        int offset = 0;
-        for (String reviewToken : tokens) {
-            // We check, if we have basic punctuation inside the token. If so, we split
-            // the token in smaller tokens and process them
-            if (!checkValidTokenSplitting(reviewToken)) {
-                // Split the string, but keep its delimiters!
-                String[] tmpTokens = reviewToken.split("((?<=[,.:\\e{-}!?\\e{(}\\e{)}])|(?=[,.:\\e{-}!?\\e{(}\\e{)}]))");
-                String[] checkTokens = reviewToken.split("(?!^)");  // In Java 8 we can just use String.split("").
-                // Check if a token consists only of punctuations like in smilies. If so, we split them all
-                // into single tokens.
-                boolean onlyPunctuations = true;
-                for(String checkTok : checkTokens){
-                    if(checkTok.matches("\\p{Alnum}")) {
-                        onlyPunctuations = false;
-                    }
-                }
-                if(onlyPunctuations) {
-                    tmpTokens = checkTokens;
-                }
-                for (String tmpReviewToken : tmpTokens) {
-                    int start = text.indexOf(tmpReviewToken, offset);
-                    int end = start + tmpReviewToken.length();
-                    Token annotation = new Token(aJCas, start, end);
-                    annotation.setId( tokentype + "_" + Integer.toString(start)); // Set token id to start index of the token
-                    annotation.addToIndexes(aJCas);
-                    offset = end;
-                }
-                continue;
-            }
-            int start = text.indexOf(reviewToken, offset);
-            int end = start + reviewToken.length();
-            Token annotation = new Token(aJCas, start, end);
+        // Generate tokens and tokenids. The spans give the offsets directly, so we do not
+        // have to search the tokens in the text.
+        Span[] spans = tokenizer.tokenizePos(text);
+        int[] bounds = TokenSplitter.split(text, spans);
+        for (int i = 0; i < bounds.length; i += 2) {
+            int start = bounds[i];
+            Token annotation = new Token(aJCas, start, bounds[i + 1]);
             annotation.setId(tokentype+"_" + Integer.toString(start)); // Set token id to start index of the token
             annotation.addToIndexes(aJCas);
-            offset = end;
-        }
-    }
-
-    /**
-     * Apache OpenNLP does not split punctuation, if it is
-     * ahead of something else without a whitespace:
-     * "hello ,world" -> "hello", ",world"
-     * Therefore, we check the first char of our tokens if
-     * any of them contain punctuation with having further characters
-     *
-     *  Patter explanations:
-     *
-     *  [,.!?]\\p{IsAlphabetic}+   - check for cases like .This ,..
-     *  ..*[,.!?]..*       - check for cases like  before.That
-     *  .[0-9]+[,.!?][0-9]+ - ignore version numbers like v0.1
-     *  \\p{Punct}           - ignore single char punctuation
-     *
-     * @param token
-     *      the token to check
-     * @return
-     *      true, if the splitting is valid
-     *      false, if the splitting is invalid
-     */
-    private boolean checkValidTokenSplitting(String token){
-        if((token.matches("[,.:\\e{-}!?\\e{(}\\e{)}]\\p{IsAlphabetic}+") || token.matches("..*[,.:\\e{-}!?\\e{(}\\e{)}]..*"))&& !(token.matches("\\p{Punct}") || token.matches(".[0-9]+[,.:\\e{-}][0-9]+"))){
-            return false;
-        }
-
-        String[] checkTokens = token.split("(?!^)");  // In Java 8 we can just use String.split("").
-        // Check if a token consists only of punctuations like in smilies. If so, we split them all
-        // into single tokens.
-        boolean onlyPunctuations = true;
-        for(String checkTok : checkTokens){
-            if(checkTok.matches("\\p{Alnum}")) {
-                onlyPunctuations = false;
-            }
-        }
-        if(onlyPunctuations) {
-            return false;
         }
-        return true;
     }
 }
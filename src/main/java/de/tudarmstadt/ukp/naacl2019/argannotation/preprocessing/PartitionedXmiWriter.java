@@ -0,0 +1,247 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.TypeCapability;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.TypeSystemUtil;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
+
+/**
+ * Writes the XMI files of {@link Step02DataAnnotator}. Optionally, each XMI is written directly
+ * into the subfolder of its product (outputDirectory/asin/documentId.xmi), and an index folder
+ * listing all written files (the all/ folder) is maintained in the same pass. This replaces
+ * moving the files into the subfolders and walking the output again for the index.
+ *
+ * The index can be kept as pointer files (one file per XMI containing its path relative to the
+ * index folder, as written by former versions), as symbolic links, or as a single manifest with
+ * one "file name TAB relative path" line per XMI.
+ *
+ * With the storage format {@link StorageFormat#BINARY}, compressed binary CASes are written
+ * instead of XMI, to be read by the next steps with the BinaryCasReader.
+ *
+ */
+@TypeCapability(inputs = { "de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData" })
+public class PartitionedXmiWriter
+    extends JCasFileWriter_ImplBase
+{
+    public static final String INDEX_POINTER = "pointer";
+    public static final String INDEX_SYMLINK = "symlink";
+    public static final String INDEX_MANIFEST = "manifest";
+
+    /**
+     * Name of the manifest in the index folder
+     */
+    public static final String MANIFEST_NAME = "index.tsv";
+
+    /**
+     * Location to write the type system to. If this is not set, no type system is written, so
+     * that only one of several parallel writers writes it.
+     */
+    public static final String PARAM_TYPE_SYSTEM_FILE = "typeSystemFile";
+    @ConfigurationParameter(name = PARAM_TYPE_SYSTEM_FILE, mandatory = false)
+    private File typeSystemFile;
+
+    /**
+     * Write each XMI into a subfolder named after the asin of the review, i.e. the first part of
+     * the document ID.
+     */
+    public static final String PARAM_PARTITION_BY_ASIN = "partitionByAsin";
+    @ConfigurationParameter(name = PARAM_PARTITION_BY_ASIN, mandatory = true, defaultValue = "false")
+    private boolean partitionByAsin;
+
+    /**
+     * Optional index folder, e.g. outputDirectory/../all
+     */
+    public static final String PARAM_INDEX_LOCATION = "indexLocation";
+    @ConfigurationParameter(name = PARAM_INDEX_LOCATION, mandatory = false)
+    private File indexLocation;
+
+    /**
+     * How the index is kept: {@value #INDEX_POINTER}, {@value #INDEX_SYMLINK} or
+     * {@value #INDEX_MANIFEST}
+     */
+    public static final String PARAM_INDEX_MODE = "indexMode";
+    @ConfigurationParameter(name = PARAM_INDEX_MODE, mandatory = true, defaultValue = INDEX_POINTER)
+    private String indexMode;
+
+    /**
+     * Name of the {@link StorageFormat} to write
+     */
+    public static final String PARAM_STORAGE_FORMAT = "storageFormat";
+    @ConfigurationParameter(name = PARAM_STORAGE_FORMAT, mandatory = true, defaultValue = "XMI")
+    private StorageFormat storageFormat;
+
+    // manifest lines are appended in batches
+    private static final int BATCH_SIZE = 100;
+
+    private boolean typeSystemWritten;
+    private List<String[]> manifestEntries = new ArrayList<String[]>();
+
+    @Override
+    public void initialize(UimaContext aContext)
+        throws ResourceInitializationException
+    {
+        super.initialize(aContext);
+        if (!indexMode.equals(INDEX_POINTER) && !indexMode.equals(INDEX_SYMLINK)
+                && !indexMode.equals(INDEX_MANIFEST)) {
+            throw new ResourceInitializationException(
+                    new IllegalArgumentException("Unknown index mode: " + indexMode));
+        }
+        if (indexLocation != null && !indexLocation.exists()) {
+            indexLocation.mkdirs();
+        }
+        typeSystemWritten = false;
+    }
+
+    @Override
+    public void process(JCas aJCas)
+        throws AnalysisEngineProcessException
+    {
+        String documentId = DocumentMetaData.get(aJCas).getDocumentId();
+        String relativePath = documentId;
+        if (partitionByAsin) {
+            String asin = documentId.split("_")[0];
+            new File(getTargetLocation(), asin).mkdirs();
+            relativePath = asin + "/" + documentId;
+        }
+
+        OutputStream docOS = null;
+        try {
+            docOS = getOutputStream(relativePath, storageFormat.getExtension());
+            storageFormat.serialize(aJCas.getCas(), docOS);
+
+            if (!typeSystemWritten && typeSystemFile != null) {
+                writeTypeSystem(aJCas);
+                typeSystemWritten = true;
+            }
+        }
+        catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        finally {
+            closeQuietly(docOS);
+        }
+
+        if (indexLocation != null) {
+            try {
+                index(new File(getTargetLocation(), relativePath + storageFormat.getExtension()));
+            }
+            catch (IOException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+        }
+    }
+
+    @Override
+    public void collectionProcessComplete()
+        throws AnalysisEngineProcessException
+    {
+        try {
+            flushManifest();
+        }
+        catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        super.collectionProcessComplete();
+    }
+
+    private void index(File xmiFile)
+        throws IOException
+    {
+        Path target = indexLocation.getAbsoluteFile().toPath()
+                .relativize(xmiFile.getAbsoluteFile().toPath());
+        File entry = new File(indexLocation, xmiFile.getName());
+        if (indexMode.equals(INDEX_POINTER)) {
+            FileUtils.write(entry, target.toString());
+        }
+        else if (indexMode.equals(INDEX_SYMLINK)) {
+            Files.deleteIfExists(entry.toPath());
+            Files.createSymbolicLink(entry.toPath(), target);
+        }
+        else {
+            manifestEntries.add(new String[] { xmiFile.getName(), target.toString() });
+            if (manifestEntries.size() >= BATCH_SIZE) {
+                flushManifest();
+            }
+        }
+    }
+
+    private void flushManifest()
+        throws IOException
+    {
+        if (!manifestEntries.isEmpty()) {
+            appendManifest(new File(indexLocation, MANIFEST_NAME), manifestEntries);
+            manifestEntries.clear();
+        }
+    }
+
+    /**
+     * Several writers may share the same index folder, so appending is synchronized.
+     */
+    private static synchronized void appendManifest(File manifest, List<String[]> entries)
+        throws IOException
+    {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(manifest, true), "utf-8"))) {
+            for (String[] entry : entries) {
+                writer.write(entry[0]);
+                writer.write("\t");
+                writer.write(entry[1]);
+                writer.write("\n");
+            }
+        }
+    }
+
+    private void writeTypeSystem(JCas aJCas)
+        throws Exception
+    {
+        OutputStream typeOS = null;
+        try {
+            typeOS = CompressionUtils.getOutputStream(typeSystemFile);
+            TypeSystemUtil.typeSystem2TypeSystemDescription(aJCas.getTypeSystem()).toXML(typeOS);
+        }
+        finally {
+            closeQuietly(typeOS);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+
+/**
+ * Joins reviews with the product metadata of the McAuley data set (meta_*.json).
+ *
+ * The metadata files contain one product per line. The ASIN of each line is extracted once and
+ * probed against the set of wanted ASINs, so only matching lines are parsed into a
+ * {@link Product}. Alternatively, a persistent ASIN to byte offset index of the metadata file can
+ * be built, which lets repeated sampling runs seek directly to the wanted products. The index
+ * stores the offset and the length of each line, so a product is read with a single read.
+ *
+ */
+public class ProductMetadataIndex
+{
+    /**
+     * File extension of the persistent index, which is stored next to the metadata file
+     */
+    public static final String INDEX_SUFFIX = ".asinidx";
+
+    private final File metaFile;
+    private final Map<String, Line> offsets;
+    private final Gson gson = new Gson();
+
+    private ProductMetadataIndex(File metaFile, Map<String, Line> offsets)
+    {
+        this.metaFile = metaFile;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Reads the metadata file once and parses only the lines of the wanted products.
+     *
+     * @param metaFile
+     *            the metadata file, e.g. meta_Books.json
+     * @param asins
+     *            the ASINs of the wanted products
+     * @return mapping ASIN to product for all wanted products found in the file
+     * @throws IOException
+     *             I/O exception
+     */
+    public static Map<String, Product> join(File metaFile, Set<String> asins)
+        throws IOException
+    {
+        Gson gson = new Gson();
+        Map<String, Product> products = new HashMap<String, Product>();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(metaFile), "utf-8"))) {
+            String line;
+            while ((line = br.readLine()) != null && products.size() < asins.size()) {
+                String asin = extractAsin(line);
+                if (asin != null && asins.contains(asin) && !products.containsKey(asin)) {
+                    products.put(asin, gson.fromJson(line, Product.class));
+                }
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Loads the persistent index of the given metadata file. If there is no index yet, or the
+     * metadata file changed since the index was written, the index is (re-)built and stored next
+     * to the metadata file.
+     *
+     * @param metaFile
+     *            the metadata file, e.g. meta_Books.json
+     * @return the index
+     * @throws IOException
+     *             I/O exception
+     */
+    public static ProductMetadataIndex load(File metaFile)
+        throws IOException
+    {
+        File indexFile = new File(metaFile.getPath() + INDEX_SUFFIX);
+        String signature = signature(metaFile);
+        if (indexFile.exists()) {
+            Map<String, Line> offsets = readIndex(indexFile, signature);
+            if (offsets != null) {
+                return new ProductMetadataIndex(metaFile, offsets);
+            }
+            System.out.println("Metadata changed, rebuilding index " + indexFile);
+        }
+        else {
+            System.out.println("Building metadata index " + indexFile);
+        }
+        Map<String, Line> offsets = buildOffsets(metaFile);
+        writeIndex(indexFile, signature, offsets);
+        return new ProductMetadataIndex(metaFile, offsets);
+    }
+
+    /**
+     * Looks up the wanted products by seeking to their offsets in the metadata file.
+     *
+     * @param asins
+     *            the ASINs of the wanted products
+     * @return mapping ASIN to product for all wanted products found in the index
+     * @throws IOException
+     *             I/O exception
+     */
+    public Map<String, Product> lookup(Collection<String> asins)
+        throws IOException
+    {
+        Map<String, Product> products = new HashMap<String, Product>();
+        byte[] buffer = new byte[1 << 12];
+        try (RandomAccessFile raf = new RandomAccessFile(metaFile, "r")) {
+            for (String asin : asins) {
+                Line line = offsets.get(asin);
+                if (line == null || products.containsKey(asin)) {
+                    continue;
+                }
+                if (line.length > buffer.length) {
+                    buffer = new byte[Math.max(line.length, 2 * buffer.length)];
+                }
+                raf.seek(line.offset);
+                raf.readFully(buffer, 0, line.length);
+                products.put(asin, gson.fromJson(new String(buffer, 0, line.length, "utf-8"),
+                        Product.class));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * @return number of products in the index
+     */
+    public int size()
+    {
+        return offsets.size();
+    }
+
+    /**
+     * The metadata files are Python literals ('asin': '...'), but some versions of the data set
+     * use proper JSON, so we try both.
+     */
+    private static String extractAsin(String line)
+    {
+        String asin = RawFieldExtractor.extract(line, "asin", '\'');
+        if (asin == null) {
+            asin = RawFieldExtractor.extract(line, "asin", '"');
+        }
+        return asin;
+    }
+
+    private static Map<String, Line> buildOffsets(File metaFile)
+        throws IOException
+    {
+        Map<String, Line> offsets = new HashMap<String, Line>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(metaFile), 1 << 16)) {
+            long offset = 0;
+            long lineStart = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    buffer.write(b);
+                    continue;
+                }
+                addOffset(offsets, buffer, lineStart);
+                lineStart = offset;
+            }
+            addOffset(offsets, buffer, lineStart);
+        }
+        return offsets;
+    }
+
+    private static void addOffset(Map<String, Line> offsets, ByteArrayOutputStream buffer,
+            long lineStart)
+        throws IOException
+    {
+        if (buffer.size() > 0) {
+            String asin = extractAsin(buffer.toString("utf-8"));
+            // keep the first occurrence, as the single-pass join does
+            if (asin != null && !offsets.containsKey(asin)) {
+                offsets.put(asin, new Line(lineStart, buffer.size()));
+            }
+            buffer.reset();
+        }
+    }
+
+    /**
+     * The index is only valid for the exact metadata file it was built from, and for the current
+     * version of the index format (with line lengths).
+     */
+    private static String signature(File metaFile)
+    {
+        return "# v2 " + metaFile.length() + " " + metaFile.lastModified();
+    }
+
+    private static Map<String, Line> readIndex(File indexFile, String signature)
+        throws IOException
+    {
+        Map<String, Line> offsets = new HashMap<String, Line>();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(indexFile), "utf-8"))) {
+            if (!signature.equals(br.readLine())) {
+                return null;
+            }
+            String line;
+            while ((line = br.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                int lengthTab = line.indexOf('\t', tab + 1);
+                offsets.put(line.substring(0, tab),
+                        new Line(Long.parseLong(line.substring(tab + 1, lengthTab)),
+                                Integer.parseInt(line.substring(lengthTab + 1))));
+            }
+        }
+        return offsets;
+    }
+
+    private static void writeIndex(File indexFile, String signature, Map<String, Line> offsets)
+        throws IOException
+    {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(indexFile), "utf-8"))) {
+            writer.write(signature);
+            writer.write("\n");
+            for (Map.Entry<String, Line> entry : offsets.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write("\t");
+                writer.write(Long.toString(entry.getValue().offset));
+                writer.write("\t");
+                writer.write(Integer.toString(entry.getValue().length));
+                writer.write("\n");
+            }
+        }
+    }
+
+    /**
+     * Position of a product in the metadata file: byte offset and length of its line, without
+     * the line break
+     */
+    private static class Line
+    {
+        private final long offset;
+        private final int length;
+
+        private Line(long offset, int length)
+        {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+/**
+ * Extracts single fields from a raw line of the McAuley data without binding the whole line.
+ * This is only meant for cheap pre-checks (e.g. ID lookups); the full record is still parsed
+ * with Gson afterwards.
+ *
+ */
+public final class RawFieldExtractor
+{
+    private RawFieldExtractor()
+    {
+    }
+
+    /**
+     * Returns the value of the first occurrence of the given string or number field in the line.
+     * The McAuley review files use JSON ("key": "value"), so we look for double-quoted keys.
+     *
+     * @param line
+     *            a single raw JSON line
+     * @param field
+     *            the name of the field, e.g. "asin"
+     * @return the value of the field, or null if the field could not be found
+     */
+    public static String extract(String line, String field)
+    {
+        return extract(line, field, '"');
+    }
+
+    /**
+     * Returns the value of the first occurrence of the given string or number field in the line
+     * using the given quotation character for keys and string values.
+     *
+     * @param line
+     *            a single raw line
+     * @param field
+     *            the name of the field, e.g. "asin"
+     * @param quote
+     *            the quotation character, e.g. '"' for JSON or '\'' for Python literals
+     * @return the value of the field, or null if the field could not be found
+     */
+    public static String extract(String line, String field, char quote)
+    {
+        String key = quote + field + quote;
+        int pos = line.indexOf(key);
+        if (pos < 0) {
+            return null;
+        }
+        pos += key.length();
+        // skip the separator between key and value
+        while (pos < line.length()
+                && (line.charAt(pos) == ':' || Character.isWhitespace(line.charAt(pos)))) {
+            pos++;
+        }
+        if (pos >= line.length()) {
+            return null;
+        }
+        if (line.charAt(pos) == quote) {
+            // IDs and ASINs never contain escaped quotes, so the next quote ends the value
+            int end = line.indexOf(quote, pos + 1);
+            return end < 0 ? null : line.substring(pos + 1, end);
+        }
+        int end = pos;
+        while (end < line.length()
+                && (Character.isDigit(line.charAt(end)) || line.charAt(end) == '-')) {
+            end++;
+        }
+        return end == pos ? null : line.substring(pos, end);
+    }
+
+    /**
+     * Builds the review ID (asin_reviewerID_unixReviewTime) from a raw review line.
+     *
+     * @param line
+     *            a single raw JSON line
+     * @return the review ID, or null if one of its parts is missing
+     */
+    public static String extractReviewID(String line)
+    {
+        String asin = extract(line, "asin");
+        String reviewerID = extract(line, "reviewerID");
+        String time = extract(line, "unixReviewTime");
+        if (asin == null || reviewerID == null || time == null) {
+            return null;
+        }
+        return asin + "_" + reviewerID + "_" + time;
+    }
+}
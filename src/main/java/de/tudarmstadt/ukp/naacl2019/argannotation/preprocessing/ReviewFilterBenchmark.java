@@ -0,0 +1,163 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import com.google.gson.Gson;
+
+/**
+ * Measures the throughput (lines/sec) of the review filtering in {@link Step01DataSampling}:
+ * binding every line to a {@link Review} and splitting its text, compared to the streaming
+ * {@link ReviewPreFilter} that only binds the lines passing the criteria.
+ *
+ */
+public class ReviewFilterBenchmark
+{
+	@Option(name="-i",aliases = { "--input" },metaVar="file",usage="review file (.json or .json.gz)", required=true)
+	private File inputFile;
+
+	@Option(name="-n",aliases = { "--lines" },metaVar="N",usage="maximum number of lines to load")
+	private int maxLines = 1000000;
+
+	@Option(name="-r",aliases = { "--rounds" },metaVar="N",usage="number of measured rounds")
+	private int rounds = 5;
+
+	private final int minLength = 150;
+	private final int maxLength = 200;
+	private final int minHelpful = 5;
+	private final double minRatio = 0.4;
+
+	private final Gson gson = new Gson();
+
+	public void runBenchmark()
+			throws IOException
+	{
+		List<String> lines = loadLines();
+		System.out.println("Loaded " + lines.size() + " lines from " + inputFile);
+
+		// warm up both paths before measuring
+		int legacy = filterLegacy(lines);
+		int streaming = filterStreaming(lines);
+		if (legacy != streaming) {
+			throw new IllegalStateException("Filters disagree: " + legacy + " vs. " + streaming);
+		}
+		System.out.println(legacy + " reviews pass the criteria");
+
+		for (int round = 1; round <= rounds; round++) {
+			long start = System.nanoTime();
+			filterLegacy(lines);
+			long legacyTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			filterStreaming(lines);
+			long streamingTime = System.nanoTime() - start;
+
+			System.out.println("Round " + round + ": full binding " + linesPerSecond(lines.size(), legacyTime)
+					+ " lines/sec, pre-filter " + linesPerSecond(lines.size(), streamingTime)
+					+ " lines/sec");
+		}
+	}
+
+	/**
+	 * The filtering as done before the pre-filter was introduced
+	 */
+	private int filterLegacy(List<String> lines)
+	{
+		int accepted = 0;
+		for (String line : lines) {
+			Review review = gson.fromJson(line,Review.class);
+			if(review.getReviewText().split(" ").length > minLength
+					&& review.getHelpful()[0] > minHelpful
+					&& review.getReviewText().split(" ").length < maxLength
+					&& (review.getHelpful()[0] / review.getHelpful()[1]*1.0) > minRatio){
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	private int filterStreaming(List<String> lines)
+	{
+		ReviewPreFilter preFilter = new ReviewPreFilter(minLength, maxLength, minHelpful, minRatio);
+		int accepted = 0;
+		for (String line : lines) {
+			if (preFilter.accept(line)) {
+				gson.fromJson(line, Review.class);
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	private static long linesPerSecond(int lines, long nanos)
+	{
+		return Math.round(lines / (nanos / 1e9));
+	}
+
+	private List<String> loadLines()
+			throws IOException
+	{
+		InputStream is = new FileInputStream(inputFile);
+		if (inputFile.getName().endsWith(".gz")) {
+			is = new GZIPInputStream(is);
+		}
+		List<String> lines = new ArrayList<String>();
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(is, "utf-8"))) {
+			String line;
+			while (lines.size() < maxLines && (line = br.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	public static void main(String[] args)
+			throws IOException
+	{
+		new ReviewFilterBenchmark().doMain(args);
+	}
+
+	private void doMain(String[] args) throws IOException {
+		CmdLineParser parser = new CmdLineParser(this);
+		try {
+            // parse the arguments.
+            parser.parseArgument(args);
+            runBenchmark();
+        } catch( CmdLineException e ) {
+            System.err.println(e.getMessage());
+            System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
+            parser.printUsage(System.err);
+            System.err.println();
+            return;
+        }
+	}
+}
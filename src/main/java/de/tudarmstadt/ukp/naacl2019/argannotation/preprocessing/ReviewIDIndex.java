@@ -0,0 +1,257 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
+
+/**
+ * Append-only set of review IDs (asin_reviewerID_unixReviewTime), e.g. of the reviews which
+ * have already been annotated. The IDs are kept in a hash set; if a file is given, it holds one
+ * ID per line and new IDs are appended to it, so the index survives between runs.
+ *
+ * The IDs can be taken from the review data folder written by {@link PartitionedXmiWriter}.
+ * How far the folder has been read is stored next to the index file ({@value #SCANNED_SUFFIX}):
+ * the length of its manifest, of which only the appended lines are read, and the modification
+ * time of the folder, which is only listed again if files were added.
+ *
+ */
+public class ReviewIDIndex
+{
+    /**
+     * Suffix of the file next to the index file, recording how far the review data has been read
+     */
+    public static final String SCANNED_SUFFIX = ".scanned";
+
+    // a folder modified this recently may still get files within the same timestamp
+    private static final long FOLDER_SETTLE_TIME = 2000;
+
+    private final File file;
+    private final Set<String> ids = new HashSet<String>();
+
+    /**
+     * Opens the index stored in the given file. If the file does not exist yet, the index is
+     * empty and the file is created when the first IDs are added.
+     *
+     * @param file
+     *            the index file, or null for an index which is only kept in memory
+     * @throws IOException
+     *             I/O exception
+     */
+    public ReviewIDIndex(File file)
+        throws IOException
+    {
+        this.file = file;
+        if (file != null && file.exists()) {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), "utf-8"))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        ids.add(line.trim());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param id
+     *            review ID; a trailing ".xmi" or ".bcas" is ignored
+     * @return true, if the ID is in the index
+     */
+    public boolean contains(String id)
+    {
+        return ids.contains(normalize(id));
+    }
+
+    /**
+     * Adds all IDs not yet contained in the index and appends them to the index file.
+     *
+     * @param newIDs
+     *            review IDs; a trailing ".xmi" or ".bcas" is ignored
+     * @return number of IDs added
+     * @throws IOException
+     *             I/O exception
+     */
+    public int addAll(Collection<String> newIDs)
+        throws IOException
+    {
+        List<String> added = new ArrayList<String>();
+        for (String id : newIDs) {
+            String normalized = normalize(id);
+            if (ids.add(normalized)) {
+                added.add(normalized);
+            }
+        }
+        if (file != null && !added.isEmpty()) {
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file, true), "utf-8"))) {
+                for (String id : added) {
+                    writer.write(id);
+                    writer.write("\n");
+                }
+            }
+        }
+        return added.size();
+    }
+
+    /**
+     * Adds the IDs of the review data folder: the names of its files and the names listed in its
+     * manifest {@value PartitionedXmiWriter#MANIFEST_NAME}. If the index is kept in a file, only
+     * what has been added to the folder since the last call is read.
+     *
+     * @param dir
+     *            the review data folder, e.g. the all/ index folder
+     * @return number of IDs added
+     * @throws IOException
+     *             I/O exception
+     */
+    public int addReviewData(File dir)
+        throws IOException
+    {
+        Map<String, Long> scanned = readScanned();
+        List<String> names = new ArrayList<String>();
+
+        File manifest = new File(dir, PartitionedXmiWriter.MANIFEST_NAME);
+        String manifestKey = manifest.getAbsolutePath();
+        if (manifest.isFile()) {
+            Long offset = scanned.get(manifestKey);
+            // the manifest is append-only, a shorter one has been written anew
+            long start = offset == null || offset > manifest.length() ? 0 : offset;
+            scanned.put(manifestKey, readManifest(manifest, start, names));
+        }
+
+        String dirKey = dir.getAbsolutePath();
+        long modified = dir.lastModified();
+        Long lastModified = scanned.get(dirKey);
+        if (lastModified == null || lastModified != modified) {
+            File[] children = dir.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (!child.getName().equals(PartitionedXmiWriter.MANIFEST_NAME)) {
+                        names.add(child.getName());
+                    }
+                }
+            }
+            if (System.currentTimeMillis() - modified > FOLDER_SETTLE_TIME) {
+                scanned.put(dirKey, modified);
+            }
+            else {
+                scanned.remove(dirKey);
+            }
+        }
+
+        int added = addAll(names);
+        writeScanned(scanned);
+        return added;
+    }
+
+    /**
+     * @return number of IDs in the index
+     */
+    public int size()
+    {
+        return ids.size();
+    }
+
+    /**
+     * Reads the file names of the complete lines of the manifest from the given offset on.
+     *
+     * @return the offset after the last complete line
+     */
+    private static long readManifest(File manifest, long start, List<String> names)
+        throws IOException
+    {
+        byte[] tail;
+        try (RandomAccessFile raf = new RandomAccessFile(manifest, "r")) {
+            tail = new byte[(int) (raf.length() - start)];
+            raf.seek(start);
+            raf.readFully(tail);
+        }
+        // a line may still be being written
+        int end = tail.length;
+        while (end > 0 && tail[end - 1] != '\n') {
+            end--;
+        }
+        for (String line : new String(tail, 0, end, "utf-8").split("\n")) {
+            if (line.indexOf('\t') > 0) {
+                names.add(line.substring(0, line.indexOf('\t')));
+            }
+        }
+        return start + end;
+    }
+
+    private Map<String, Long> readScanned()
+        throws IOException
+    {
+        Map<String, Long> scanned = new HashMap<String, Long>();
+        // without the index, its IDs have to be read again
+        if (file == null || !file.exists()) {
+            return scanned;
+        }
+        File scannedFile = new File(file.getPath() + SCANNED_SUFFIX);
+        if (scannedFile.exists()) {
+            for (String line : FileUtils.readLines(scannedFile, "utf-8")) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0) {
+                    scanned.put(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)));
+                }
+            }
+        }
+        return scanned;
+    }
+
+    private void writeScanned(Map<String, Long> scanned)
+        throws IOException
+    {
+        if (file == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<String>();
+        for (Map.Entry<String, Long> entry : scanned.entrySet()) {
+            lines.add(entry.getKey() + "\t" + entry.getValue());
+        }
+        FileUtils.writeLines(new File(file.getPath() + SCANNED_SUFFIX), "utf-8", lines, "\n");
+    }
+
+    private static String normalize(String id)
+    {
+        return StorageFormat.getDocumentId(id);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streaming pre-filter for the sampling criteria of {@link Step01DataSampling}. Only the
+ * "helpful" and "reviewText" fields of a raw review line are read with Gson's
+ * {@link JsonReader}, all other fields are skipped. Lines failing the helpfulness criteria are
+ * rejected before the review text is read, so a {@link Review} only has to be bound for the
+ * lines that pass.
+ *
+ * The criteria are exactly those of the sampling step: the number of words (as given by
+ * reviewText.split(" ")) must be between the minimum and the maximum length (exclusive), and
+ * the number of helpful votes as well as the helpful ratio must exceed the given minimums.
+ *
+ */
+public class ReviewPreFilter
+    implements ReviewRecordFilter
+{
+    private final int minLength;
+    private final int maxLength;
+    private final int minHelpful;
+    private final double minRatio;
+
+    /**
+     * Creates a filter with the default criteria of {@link Step01DataSampling}
+     */
+    public ReviewPreFilter()
+    {
+        this(150, 200, 5, 0.4);
+    }
+
+    public ReviewPreFilter(int minLength, int maxLength, int minHelpful, double minRatio)
+    {
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.minHelpful = minHelpful;
+        this.minRatio = minRatio;
+    }
+
+    @Override
+    public boolean accept(String line)
+    {
+        JsonReader reader = new JsonReader(new StringReader(line));
+        reader.setLenient(true);
+        boolean helpfulChecked = false;
+        int words = -1;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("helpful") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    int helpfulVotes = reader.nextInt();
+                    int overallVotes = reader.nextInt();
+                    reader.endArray();
+                    if (!(helpfulVotes > minHelpful
+                            && (helpfulVotes / overallVotes * 1.0) > minRatio)) {
+                        return false;
+                    }
+                    helpfulChecked = true;
+                }
+                else if (name.equals("reviewText") && reader.peek() == JsonToken.STRING) {
+                    words = countWords(reader.nextString());
+                    if (!(words > minLength && words < maxLength)) {
+                        return false;
+                    }
+                }
+                else {
+                    reader.skipValue();
+                }
+                if (helpfulChecked && words >= 0) {
+                    return true;
+                }
+            }
+        }
+        catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+        // one of the fields is missing
+        return false;
+    }
+
+    /**
+     * Counts the words of a text as text.split(" ").length would, but without creating the
+     * substrings: each space starts a new word, except for trailing spaces.
+     *
+     * @param text
+     *            the text
+     * @return the number of words
+     */
+    public static int countWords(String text)
+    {
+        int last = text.length() - 1;
+        while (last >= 0 && text.charAt(last) == ' ') {
+            last--;
+        }
+        if (last < 0) {
+            // split returns the text itself for an empty text, and nothing for only spaces
+            return text.isEmpty() ? 1 : 0;
+        }
+        int words = 1;
+        for (int i = 0; i < last; i++) {
+            if (text.charAt(i) == ' ') {
+                words++;
+            }
+        }
+        return words;
+    }
+}
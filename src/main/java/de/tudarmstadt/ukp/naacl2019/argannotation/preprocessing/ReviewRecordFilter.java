@@ -0,0 +1,35 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+/**
+ * Filter applied to a raw review line before it is bound to a {@link Review}. Implementations
+ * must provide a public no-argument constructor, since they are instantiated by name from the
+ * {@link AmazonReviewJSONReader} parameters.
+ *
+ */
+public interface ReviewRecordFilter
+{
+    /**
+     * @param line
+     *            a single raw JSON line of the review data
+     * @return true, if the review should be read
+     */
+    boolean accept(String line);
+}
@@ -21,8 +21,6 @@ package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -50,6 +48,9 @@ public class Step011FilterReviews {
 	@Option(name="-n",aliases = { "--number" },metaVar="N",usage="number of reviews to be sampled per category")
 	private int number = 4;
 
+	@Option(name="-x",aliases = { "--index" },metaVar="file",usage="persistent index of the already annotated review IDs")
+	private File indexFile;
+
 	private long seed = 123;
 
     /**
@@ -61,22 +62,31 @@ public class Step011FilterReviews {
             throws IOException
     {
     	if(inputDir.isDirectory() && outputDir.isDirectory() && reviewdata.isDirectory()){
-    		Collection<String> xmiNames = new ArrayList<>();
-    		for(File file: reviewdata.listFiles()){
-    			xmiNames.add(file.getName());
-    		}
+    		// Only what was added to the review data since the last run is read
+    		ReviewIDIndex annotated = new ReviewIDIndex(indexFile);
+    		int added = annotated.addReviewData(reviewdata);
+    		System.out.println(annotated.size()+" reviews already annotated ("+added+" new)");
         	Gson gson = new Gson();
         	Map<String, Integer> categoryMap = new HashMap<>();
+        	Map<String, String> manifest = readManifests(inputDir);
 
-        	List<File> files = Arrays.asList(inputDir.listFiles());
+        	List<File> files = new ArrayList<>();
+        	for(File file: inputDir.listFiles()){
+        		if(!file.getName().endsWith(Step01DataSampling.MANIFEST_SUFFIX)){
+        			files.add(file);
+        		}
+        	}
         	Random random = new Random(seed);
         	Collections.shuffle(files, random);
 
     		for(File file: files){
     			if(file.isFile()){
-        			Review review = gson.fromJson(FileUtils.readFileToString(file), Review.class);
-        			String id = review.getProduct().getAsin()+"_"+review.getReviewerID()+"_"+review.getUnixReviewTime()+".xmi";
-        			if(!xmiNames.contains(id)){
+    				String id = manifest.get(file.getName());
+    				if(id == null){
+    					Review review = gson.fromJson(FileUtils.readFileToString(file), Review.class);
+    					id = review.getProduct().getAsin()+"_"+review.getReviewerID()+"_"+review.getUnixReviewTime();
+    				}
+        			if(!annotated.contains(id)){
 	        			String category = file.getName().substring(file.getName().indexOf("_") + 1, file.getName().lastIndexOf("_"));
 	        			if(categoryMap.containsKey(category)){
 	        				categoryMap.put(category, (categoryMap.get(category) + 1));
@@ -102,6 +112,31 @@ public class Step011FilterReviews {
     	}
     }
 
+    /**
+     * Reads the manifests written by {@link Step01DataSampling}, which map the file names of
+     * the sampled reviews to their review IDs.
+     *
+     * @param dir the directory of the sampled reviews
+     * @return mapping file name to review ID
+     * @throws IOException I/O exception
+     */
+    private static Map<String, String> readManifests(File dir)
+            throws IOException
+    {
+    	Map<String, String> manifest = new HashMap<>();
+    	for(File file: dir.listFiles()){
+    		if(file.isFile() && file.getName().endsWith(Step01DataSampling.MANIFEST_SUFFIX)){
+    			for(String line: FileUtils.readLines(file, "utf-8")){
+    				int tab = line.indexOf('\t');
+    				if(tab > 0){
+    					manifest.put(line.substring(0, tab), line.substring(tab + 1));
+    				}
+    			}
+    		}
+    	}
+    	return manifest;
+    }
+
     public static void main(String[] args)
             throws ParseException, IOException
     {
@@ -23,10 +23,15 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
@@ -42,6 +47,13 @@ import com.google.gson.Gson;
  */
 public class Step01DataSampling
 {
+	private static final int PROGRESS_INTERVAL = 1000000;
+
+	/**
+	 * File extension of the per-category manifest listing the written files and their review IDs
+	 */
+	public static final String MANIFEST_SUFFIX = ".manifest";
+
 	@Option(name="-o",aliases = { "--output" },metaVar="dir",usage="output folder", required=true)
 	private File outputDir;
 
@@ -66,8 +78,15 @@ public class Step01DataSampling
 	@Option(name="-r",aliases = { "--ratio" },metaVar="double",usage="Minimum ratio of helpful votings of the review")
 	private double minRatio = 0.4;
 
+	@Option(name="-ix",aliases = { "--index" },usage="use a persistent ASIN index of the metadata files for repeated runs")
+	private boolean useIndex = false;
+
+	@Option(name="-t",aliases = { "--threads" },metaVar="N",usage="number of categories processed in parallel")
+	private int threads = 1;
+
     /**
-     * Data sampling
+     * Data sampling. The category files in the input directory are processed in parallel on a
+     * pool of {@link #threads} threads.
      *
      * @throws IOException I/O exception
      */
@@ -75,51 +94,37 @@ public class Step01DataSampling
             throws IOException
     {
     	if(inputDir.isDirectory() && outputDir.isDirectory()){
-    		for(File file: inputDir.listFiles()){
+    		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    		List<Future<Void>> results = new ArrayList<Future<Void>>();
+    		for(final File file: inputDir.listFiles()){
     			if(file.isFile()){
-        			BufferedReader brMeta = new BufferedReader(new FileReader(metaDir+"/"+file.getName().replace("reviews_", "meta_")));
-            		Gson gson = new Gson();
-    				BufferedReader br = new BufferedReader(new FileReader(file));
-    				String outputBase = outputDir.getPath()+"/"+file.getName().replace(".json", "");
-    				List<Review> reviews = new ArrayList<Review>();
-    				String line;
-    				System.out.println("Acquiring reviews for "+file.getName().replace(".json", ""));
-    				while((line = br.readLine()) != null){
-    					Review review = gson.fromJson(line,Review.class);
-    					if(review.getReviewText().split(" ").length > minLength
-    							&& review.getHelpful()[0] > minHelpful
-    							&& review.getReviewText().split(" ").length < maxLength
-    							&& (review.getHelpful()[0] / review.getHelpful()[1]*1.0) > minRatio){
-    						//FileUtils.writeStringToFile(new File(outputBase+"_"+i+++".json"), line);
-    						reviews.add(review);
+    				results.add(executor.submit(new Callable<Void>() {
+    					@Override
+    					public Void call() throws IOException {
+    						sampleCategory(file);
+    						return null;
     					}
-    				}
-    				br.close();
-    				Collections.sort(reviews);
-    				int maxi = number <= reviews.size() ? number : reviews.size();
-    				System.out.println("Acquire product data for " + maxi + " reviews");
-    				Map<String,Product> map = new HashMap<String,Product>();
-    				while((line = brMeta.readLine()) != null){
-    					for(Review review: reviews){
-    						if(line.contains("'asin': "+"'"+review.getAsin()+"'")){
-    							Product product = gson.fromJson(line, Product.class);
-    							map.put(review.getAsin(), product);
-    							break;
-    						}
-    					}
-    				}
-    				System.out.println("Writing review data");
-    				for(int i=0; i < maxi; i++){
-    					Review review = reviews.get(i);
-    					review.setProduct(map.get(review.getAsin()));
-    					if(review.getProduct().getTitle() != null && !review.getProduct().getTitle().isEmpty()) {
-                            FileUtils.writeStringToFile(new File(outputBase+"_"+i+".json"), gson.toJson(review));
-                        }
-    				}
-        			System.out.println(file.getName().replace(".json", "")+" completed");
-        			brMeta.close();
+    				}));
+    			}
+    		}
+    		executor.shutdown();
+    		try {
+    			for(Future<Void> result: results){
+    				result.get();
     			}
     		}
+    		catch (InterruptedException e) {
+    			executor.shutdownNow();
+    			Thread.currentThread().interrupt();
+    			throw new IOException(e);
+    		}
+    		catch (ExecutionException e) {
+    			executor.shutdownNow();
+    			if(e.getCause() instanceof IOException){
+    				throw (IOException) e.getCause();
+    			}
+    			throw new IOException(e.getCause());
+    		}
     	}
     	else{
     		System.out.println("The inputDir '"+inputDir+"' is not a directory!");
@@ -127,6 +132,68 @@ public class Step01DataSampling
     	}
     }
 
+    /**
+     * Samples the reviews of a single category file. Only the best {@link #number} reviews are
+     * kept in memory while reading.
+     *
+     * @param file the review file of the category
+     * @throws IOException I/O exception
+     */
+    private void sampleCategory(File file)
+            throws IOException
+    {
+    	String category = file.getName().replace(".json", "");
+    	File metaFile = new File(metaDir+"/"+file.getName().replace("reviews_", "meta_"));
+    	Gson gson = new Gson();
+    	BufferedReader br = new BufferedReader(new FileReader(file));
+    	String outputBase = outputDir.getPath()+"/"+category;
+    	TopReviewSelector selector = new TopReviewSelector(number);
+    	ReviewPreFilter preFilter = new ReviewPreFilter(minLength, maxLength, minHelpful, minRatio);
+    	String line;
+    	long lines = 0;
+    	long accepted = 0;
+    	System.out.println(category+": acquiring reviews");
+    	while((line = br.readLine()) != null){
+    		// Only bind the reviews which pass the length and helpfulness criteria
+    		if(preFilter.accept(line)){
+    			selector.offer(gson.fromJson(line,Review.class));
+    			accepted++;
+    		}
+    		if(++lines % PROGRESS_INTERVAL == 0){
+    			System.out.println(category+": read "+lines+" reviews, "+accepted+" match the criteria");
+    		}
+    	}
+    	br.close();
+    	List<Review> reviews = selector.getSortedReviews();
+    	int maxi = reviews.size();
+    	System.out.println(category+": acquire product data for " + maxi + " of " + accepted + " reviews");
+    	Set<String> asins = new HashSet<String>();
+    	for(Review review: reviews){
+    		asins.add(review.getAsin());
+    	}
+    	Map<String,Product> map;
+    	if(useIndex){
+    		map = ProductMetadataIndex.load(metaFile).lookup(asins);
+    	}
+    	else{
+    		map = ProductMetadataIndex.join(metaFile, asins);
+    	}
+    	System.out.println(category+": writing review data");
+    	// The manifest maps each written file to its review ID, so later steps need not parse it
+    	StringBuilder manifest = new StringBuilder();
+    	for(int i=0; i < maxi; i++){
+    		Review review = reviews.get(i);
+    		review.setProduct(map.get(review.getAsin()));
+    		if(review.getProduct() != null && review.getProduct().getTitle() != null && !review.getProduct().getTitle().isEmpty()) {
+    			File output = new File(outputBase+"_"+i+".json");
+    			FileUtils.writeStringToFile(output, gson.toJson(review));
+    			manifest.append(output.getName()).append("\t").append(review.getProduct().getAsin()+"_"+review.getReviewerID()+"_"+review.getUnixReviewTime()).append("\n");
+    		}
+    	}
+    	FileUtils.writeStringToFile(new File(outputBase+MANIFEST_SUFFIX), manifest.toString(), "utf-8");
+    	System.out.println(category+" completed");
+    }
+
     public static void main(String[] args)
             throws ParseException, IOException
     {
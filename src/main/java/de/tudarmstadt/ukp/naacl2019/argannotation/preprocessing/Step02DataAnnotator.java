@@ -20,20 +20,39 @@ package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceManager;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
 import de.tudarmstadt.ukp.dkpro.core.tokit.ParagraphSplitter;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
 
 /**
  * Reads files in the format specified by the UIMA reader and performs basic annotation, such as
@@ -61,6 +80,21 @@ public class Step02DataAnnotator
 	@Option(name="-s",aliases = { "--symlink" },usage="creates symlinks")
     private boolean symlink = true;
 
+	@Option(name="-x",aliases = { "--indexMode" },metaVar="mode",usage="how the all/ index is kept: pointer (files containing the relative path), symlink or manifest")
+    private String indexMode = PartitionedXmiWriter.INDEX_POINTER;
+
+	@Option(name="-d",aliases = { "--dump" },usage="reads every line of the (gzipped) input files as a separate review")
+    private boolean multiRecord = false;
+
+	@Option(name="-a",aliases = { "--allowlist" },metaVar="file",usage="file with review IDs to be read in --dump mode")
+    private File allowlist;
+
+	@Option(name="-t",aliases = { "--threads" },metaVar="N",usage="number of pipelines run in parallel")
+    private int threads = 1;
+
+	@Option(name="-u",aliases = { "--incremental" },usage="skips reviews whose xmi in the output folder is still up to date")
+    private boolean incremental = false;
+
     /**
      * Runs UIMA annotations
      *
@@ -82,40 +116,274 @@ public class Step02DataAnnotator
     public static void runPipeline(File inputDir, File outputDir, String language, boolean move)
         throws UIMAException, IOException
     {
-        SimplePipeline.runPipeline(CollectionReaderFactory.createReader(
-                AmazonReviewJSONReader.class, AmazonReviewJSONReader.PARAM_SOURCE_LOCATION,
-                inputDir, AmazonReviewJSONReader.PARAM_PATTERNS, "*.json" // only include json files
-        ), AnalysisEngineFactory
-                .createEngineDescription(ParagraphSplitter.class,
-                        ParagraphSplitter.PARAM_SPLIT_PATTERN,
-                        ParagraphSplitter.SINGLE_LINE_BREAKS_PATTERN), AnalysisEngineFactory
-                .createEngineDescription(OpenNLPTokenizerAnnotator.class,
-                        OpenNLPTokenizerAnnotator.PARAM_LANGUAGE_MODEL, language),
-                AnalysisEngineFactory
-                        .createEngineDescription(XmiWriter.class, XmiWriter.PARAM_TARGET_LOCATION,
-                                outputDir, XmiWriter.PARAM_OVERWRITE, true,
-                                XmiWriter.PARAM_TYPE_SYSTEM_FILE, outputDir+"/TypeSystem.xml"));
-
-        // Organize files into asin specific subfolders
-        if(move){
-	        File[] outputFiles = outputDir.listFiles();
-
-	        for (File reviewFile : outputFiles) {
-	            // Skip this step for the typesystem file
-	            if(reviewFile.getName().equals("TypeSystem.xml")) {
-	                continue;
-	            }
-	            // get the asin for moving into the subfolder:
-	            String subfolder = outputDir.getAbsolutePath() + "/" + reviewFile.getName().split("_")[0];
-
-	            // Create the subfolder, if it does not exist yet.
-	            if (!new File(subfolder).exists()) {
-	                new File(subfolder).mkdir();
-	            }
-
-	            Files.move(Paths.get(reviewFile.getAbsolutePath()),
-	                    Paths.get(subfolder + "/" + reviewFile.getName()));
-	        }
+        runPipeline(inputDir, outputDir, language, move, 1, false, null,
+                PartitionedXmiWriter.INDEX_POINTER);
+    }
+
+    /**
+     * Runs UIMA annotations with the given number of pipeline replicas in parallel, see
+     * {@link #runPipeline(File, File, String, boolean)}.
+     *
+     * @param threads
+     *            number of pipeline replicas, fed by a single reader
+     * @param incremental
+     *            skip the reviews whose XMI in the output directory is still valid, see
+     *            {@link TokenizationCache}
+     * @param indexDir
+     *            optional folder indexing all written XMI files (e.g. all/), see
+     *            {@link PartitionedXmiWriter}
+     * @param indexMode
+     *            how the index is kept, one of the PartitionedXmiWriter.INDEX_* modes
+     */
+    public static void runPipeline(File inputDir, File outputDir, String language, boolean move,
+            int threads, boolean incremental, File indexDir, String indexMode)
+        throws UIMAException, IOException
+    {
+        runPipeline(new ArrayList<Object>(Arrays.<Object> asList(
+                AmazonReviewJSONReader.PARAM_SOURCE_LOCATION, inputDir,
+                AmazonReviewJSONReader.PARAM_PATTERNS, "*.json" // only include json files
+        )), outputDir, language, move, threads, incremental, indexDir, indexMode);
+    }
+
+    /**
+     * Runs UIMA annotations directly on the McAuley review dumps, without splitting them into one
+     * file per review first.
+     *
+     * @param inputDir
+     *            The path to the input directory containing the (gzipped) review dumps, e.g.
+     *            aggressive_dedup.json.gz or reviews_*.json.gz
+     * @param outputDir
+     *            The path to the output directory, see
+     *            {@link #runPipeline(File, File, String, boolean)}
+     * @param allowlist
+     *            Optional file with one review ID per line. If given, only these reviews are read.
+     * @throws UIMAException
+     *             exception
+     * @throws IOException
+     *             exception
+     */
+    public static void runPipelineOnDump(File inputDir, File outputDir, String language,
+            boolean move, File allowlist)
+        throws UIMAException, IOException
+    {
+        runPipelineOnDump(inputDir, outputDir, language, move, allowlist, 1, false, null,
+                PartitionedXmiWriter.INDEX_POINTER);
+    }
+
+    /**
+     * Runs UIMA annotations directly on the McAuley review dumps with the given number of
+     * pipeline replicas in parallel, see {@link #runPipelineOnDump(File, File, String, boolean, File)}.
+     *
+     * @param threads
+     *            number of pipeline replicas, fed by a single reader
+     * @param incremental
+     *            skip the reviews whose XMI in the output directory is still valid, see
+     *            {@link TokenizationCache}
+     * @param indexDir
+     *            optional folder indexing all written XMI files (e.g. all/), see
+     *            {@link PartitionedXmiWriter}
+     * @param indexMode
+     *            how the index is kept, one of the PartitionedXmiWriter.INDEX_* modes
+     */
+    public static void runPipelineOnDump(File inputDir, File outputDir, String language,
+            boolean move, File allowlist, int threads, boolean incremental, File indexDir,
+            String indexMode)
+        throws UIMAException, IOException
+    {
+        List<Object> readerParameters = new ArrayList<Object>(Arrays.<Object> asList(
+                AmazonReviewJSONReader.PARAM_SOURCE_LOCATION, inputDir,
+                AmazonReviewJSONReader.PARAM_PATTERNS, new String[] { "*.json", "*.json.gz" },
+                AmazonReviewJSONReader.PARAM_MULTI_RECORD, true));
+        if (allowlist != null) {
+            readerParameters.add(AmazonReviewJSONReader.PARAM_ID_ALLOWLIST);
+            readerParameters.add(allowlist);
+        }
+        runPipeline(readerParameters, outputDir, language, move, threads, incremental, indexDir,
+                indexMode);
+    }
+
+    private static void runPipeline(List<Object> readerParameters, File outputDir,
+            String language, boolean move, int threads, boolean incremental, File indexDir,
+            String indexMode)
+        throws UIMAException, IOException
+    {
+        File cacheModel = null;
+        if (incremental) {
+            // The manifest of the cache is stored next to the TypeSystem.xml
+            cacheModel = new File(Paths.get("").toAbsolutePath().toString()+language);
+            readerParameters.addAll(Arrays.<Object> asList(
+                    AmazonReviewJSONReader.PARAM_CACHE_DIRECTORY, outputDir,
+                    AmazonReviewJSONReader.PARAM_CACHE_MODEL, cacheModel));
+        }
+        // The files are written directly into the asin specific subfolders and the index is
+        // updated for each file, so the output is not walked again afterwards
+        List<Object> writerParameters = new ArrayList<Object>(Arrays.<Object> asList(
+                PartitionedXmiWriter.PARAM_TARGET_LOCATION, outputDir,
+                PartitionedXmiWriter.PARAM_OVERWRITE, true,
+                PartitionedXmiWriter.PARAM_PARTITION_BY_ASIN, move,
+                PartitionedXmiWriter.PARAM_INDEX_MODE, indexMode,
+                PartitionedXmiWriter.PARAM_STORAGE_FORMAT,
+                StorageFormat.getIntermediateFormat().name()));
+        if (indexDir != null) {
+            writerParameters.add(PartitionedXmiWriter.PARAM_INDEX_LOCATION);
+            writerParameters.add(indexDir);
+        }
+        if (threads <= 1) {
+            SimplePipeline.runPipeline(CollectionReaderFactory.createReaderDescription(
+                    AmazonReviewJSONReader.class, readerParameters.toArray()),
+                    createEngineDescription(language, outputDir, writerParameters, true, null,
+                            cacheModel, null));
+        }
+        else {
+            runReplicas(readerParameters, outputDir, language, writerParameters, threads,
+                    cacheModel);
+        }
+    }
+
+    private static AnalysisEngineDescription createEngineDescription(String language,
+            File outputDir, List<Object> writerParameters, boolean writeTypeSystem,
+            ExternalResourceDescription tokenizerModel, File cacheModel,
+            ExternalResourceDescription cacheKeys)
+        throws ResourceInitializationException
+    {
+        List<Object> tokenizerParameters = new ArrayList<Object>(Arrays.<Object> asList(
+                OpenNLPTokenizerAnnotator.PARAM_LANGUAGE_MODEL, language));
+        if (tokenizerModel != null) {
+            tokenizerParameters.add(OpenNLPTokenizerAnnotator.RES_TOKENIZER_MODEL);
+            tokenizerParameters.add(tokenizerModel);
+        }
+        writerParameters = new ArrayList<Object>(writerParameters);
+        // Only one replica writes the type system, it is the same for all of them
+        if (writeTypeSystem) {
+            writerParameters.add(PartitionedXmiWriter.PARAM_TYPE_SYSTEM_FILE);
+            writerParameters.add(outputDir+"/TypeSystem.xml");
+        }
+        List<AnalysisEngineDescription> engines = new ArrayList<AnalysisEngineDescription>();
+        engines.add(AnalysisEngineFactory.createEngineDescription(ParagraphSplitter.class,
+                ParagraphSplitter.PARAM_SPLIT_PATTERN,
+                ParagraphSplitter.SINGLE_LINE_BREAKS_PATTERN));
+        engines.add(AnalysisEngineFactory.createEngineDescription(OpenNLPTokenizerAnnotator.class,
+                tokenizerParameters.toArray()));
+        engines.add(AnalysisEngineFactory.createEngineDescription(PartitionedXmiWriter.class,
+                writerParameters.toArray()));
+        // Record the written documents only after their XMI has been written
+        if (cacheModel != null) {
+            List<Object> updaterParameters = new ArrayList<Object>(Arrays.<Object> asList(
+                    TokenizationCacheUpdater.PARAM_OUTPUT_DIR, outputDir,
+                    TokenizationCacheUpdater.PARAM_MODEL_FILE, cacheModel));
+            if (cacheKeys != null) {
+                updaterParameters.add(TokenizationCacheUpdater.RES_CACHE_KEYS);
+                updaterParameters.add(cacheKeys);
+            }
+            engines.add(AnalysisEngineFactory.createEngineDescription(
+                    TokenizationCacheUpdater.class, updaterParameters.toArray()));
+        }
+        return AnalysisEngineFactory.createEngineDescription(
+                engines.toArray(new AnalysisEngineDescription[engines.size()]));
+    }
+
+    /**
+     * Runs one pipeline replica per thread, fed by a single reader: the input is read and
+     * decompressed only once, and each CAS filled by the reader is processed by the next free
+     * replica. All replicas are created with the same resource manager, so the tokenizer model is
+     * only loaded once, and only hashed once for the keys of the tokenization cache.
+     */
+    private static void runReplicas(List<Object> readerParameters, File outputDir,
+            String language, List<Object> writerParameters, int threads, File cacheModel)
+        throws UIMAException, IOException
+    {
+        String workingPath = Paths.get("").toAbsolutePath().toString();
+        ExternalResourceDescription tokenizerModel = ExternalResourceFactory
+                .createExternalResourceDescription(TokenizerModelResource.class,
+                        new File(workingPath+language));
+        ExternalResourceDescription cacheKeys = cacheModel == null ? null
+                : ExternalResourceFactory.createExternalResourceDescription(
+                        TokenizationKeyResource.class, cacheModel);
+        ResourceManager resourceManager = UIMAFramework.newDefaultResourceManager();
+
+        CollectionReader reader = CollectionReaderFactory.createReader(
+                AmazonReviewJSONReader.class, readerParameters.toArray());
+        List<AnalysisEngine> engines = new ArrayList<AnalysisEngine>();
+        final BlockingQueue<AnalysisEngine> idleEngines = new ArrayBlockingQueue<AnalysisEngine>(
+                threads);
+        for (int i = 0; i < threads; i++) {
+            AnalysisEngine engine = UIMAFramework.produceAnalysisEngine(
+                    createEngineDescription(language, outputDir, writerParameters, i == 0,
+                            tokenizerModel, cacheModel, cacheKeys),
+                    resourceManager, null);
+            engines.add(engine);
+            idleEngines.add(engine);
+        }
+        // one CAS per replica and one more per replica being filled by the reader
+        final BlockingQueue<CAS> freeCases = new ArrayBlockingQueue<CAS>(2 * threads);
+        for (int i = 0; i < 2 * threads; i++) {
+            freeCases.add(engines.get(0).newCAS());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<Void>> results = new ArrayDeque<Future<Void>>();
+            while (reader.hasNext()) {
+                final CAS cas = freeCases.take();
+                try {
+                    reader.getNext(cas);
+                }
+                catch (IOException | UIMAException | RuntimeException e) {
+                    cas.reset();
+                    freeCases.add(cas);
+                    throw e;
+                }
+                results.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws Exception
+                    {
+                        // there is an engine for each thread, so this does not block
+                        AnalysisEngine engine = idleEngines.take();
+                        try {
+                            engine.process(cas);
+                        }
+                        finally {
+                            idleEngines.add(engine);
+                            cas.reset();
+                            freeCases.add(cas);
+                        }
+                        return null;
+                    }
+                }));
+                // the processed documents are collected right away, so a failure stops reading
+                while (!results.isEmpty() && results.peekFirst().isDone()) {
+                    results.pollFirst().get();
+                }
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+            for (AnalysisEngine engine : engines) {
+                engine.collectionProcessComplete();
+            }
+            reader.close();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof UIMAException) {
+                throw (UIMAException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+            reader.destroy();
+            for (AnalysisEngine engine : engines) {
+                engine.destroy();
+            }
         }
     }
 
@@ -137,15 +405,13 @@ public class Step02DataAnnotator
             			if(!categoryDir.exists()){
             				categoryDir.mkdir();
             			}
-            			runPipeline(dir, categoryDir, language, move);
-            			createSymLink(categoryDir);
+            			annotate(dir, categoryDir);
 
             		}
             	}
             }
             else {
-            	runPipeline(inputDir, outputDir, language, move);
-            	createSymLink(outputDir);
+            	annotate(inputDir, outputDir);
             }
         } catch( CmdLineException e ) {
             System.err.println(e.getMessage());
@@ -156,30 +422,13 @@ public class Step02DataAnnotator
         }
 	}
 
-	private void createSymLink(File linkDir) {
-		try{
-			if(symlink){
-				for(File file: linkDir.listFiles()){
-					if(move){
-						if(file.isDirectory()){
-							for (File subFile: file.listFiles()){
-								if(subFile.getName().endsWith(".xmi")){
-	    							String relativePath = "../"+linkDir.getName() + "/" +  file.getName() + "/" + subFile.getName();
-	                        		FileUtils.write(new File(outputDir.getPath()+"/all/"+subFile.getName()), relativePath);
-								}
-							}
-						}
-					}
-					else {
-						if(file.getName().endsWith(".xmi")){
-							String relativePath = "../"+linkDir.getName() + "/" + file.getName();
-	                		FileUtils.write(new File(outputDir.getPath()+"/all/"+file.getName()), relativePath);
-						}
-					}
-				}
-			}
-		} catch(Exception e){
-			System.err.println(e.getMessage());
+	private void annotate(File input, File output) throws UIMAException, IOException {
+		File indexDir = symlink ? new File(outputDir.getPath()+"/all") : null;
+		if(multiRecord){
+			runPipelineOnDump(input, output, language, move, allowlist, threads, incremental, indexDir, indexMode);
+		}
+		else {
+			runPipeline(input, output, language, move, threads, incremental, indexDir, indexMode);
 		}
 	}
 }
@@ -0,0 +1,261 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.util.Arrays;
+
+import opennlp.tools.util.Span;
+
+/**
+ * Splits the tokens of the openNLP tokenizer at punctuation, see
+ * {@link OpenNLPTokenizerAnnotator}. Apache OpenNLP does not split punctuation, if it is ahead
+ * of something else without a whitespace: "hello ,world" -&gt; "hello", ",world". Such tokens
+ * are split again, except for version numbers like v0.1 and single punctuation chars.
+ *
+ * The tokens are scanned char by char on the document text,
+ * no substrings or regular expressions are involved. The result is identical to the former
+ * regex implementation:
+ *
+ * <pre>
+ * invalid = (token.matches("[,.:\\e{-}!?\\e{(}\\e{)}]\\p{IsAlphabetic}+")
+ *                 || token.matches("..*[,.:\\e{-}!?\\e{(}\\e{)}]..*"))
+ *         &amp;&amp; !(token.matches("\\p{Punct}") || token.matches(".[0-9]+[,.:\\e{-}][0-9]+"))
+ *         || token contains no \p{Alnum}
+ * </pre>
+ *
+ * Invalid tokens without any \p{Alnum} are split into single chars (split("(?!^)")), all other
+ * invalid tokens before and after each punctuation char
+ * (split("((?&lt;=[,.:\\e{-}!?\\e{(}\\e{)}])|(?=[,.:\\e{-}!?\\e{(}\\e{)}]))")).
+ *
+ * Note that "\\e{-}" in these patterns is the escape char followed by the range '{'-'}', so the
+ * punctuation chars are , . : ! ? ( ) { | } and ESC, but not '-'.
+ *
+ */
+public final class TokenSplitter
+{
+    private static final String POSIX_PUNCT = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+    private TokenSplitter()
+    {
+        // utility class
+    }
+
+    /**
+     * Splits the tokens given by the spans.
+     *
+     * @param text
+     *            the document text
+     * @param spans
+     *            the token spans, as returned by the openNLP tokenizer
+     * @return begin and end offsets of the resulting tokens, alternating
+     */
+    public static int[] split(String text, Span[] spans)
+    {
+        int[] bounds = new int[2 * spans.length + 16];
+        int size = 0;
+        for (Span span : spans) {
+            int begin = span.getStart();
+            int end = span.getEnd();
+            if (isValidSplitting(text, begin, end)) {
+                bounds = ensureCapacity(bounds, size + 2);
+                bounds[size++] = begin;
+                bounds[size++] = end;
+                continue;
+            }
+            boolean perChar = !containsAlnum(text, begin, end);
+            int start = begin;
+            while (start < end) {
+                int pieceEnd = perChar ? start + 1 : nextPieceEnd(text, start, end);
+                bounds = ensureCapacity(bounds, size + 2);
+                bounds[size++] = start;
+                bounds[size++] = pieceEnd;
+                start = pieceEnd;
+            }
+        }
+        return Arrays.copyOf(bounds, size);
+    }
+
+    /**
+     * @return true, if the token text[begin, end) does not have to be split
+     */
+    public static boolean isValidSplitting(String text, int begin, int end)
+    {
+        if ((isPunctuationWord(text, begin, end) || hasInnerPunctuation(text, begin, end))
+                && !(isPosixPunct(text, begin, end) || isVersionNumber(text, begin, end))) {
+            return false;
+        }
+        return containsAlnum(text, begin, end);
+    }
+
+    /**
+     * Chars of the class [,.:\\e{-}!?\\e{(}\\e{)}]
+     */
+    static boolean isSplitChar(char c)
+    {
+        switch (c) {
+        case ',': case '.': case ':': case '!': case '?': case '(': case ')':
+        case '{': case '|': case '}': case '\u001B':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Chars of the class [,.:\\e{-}]
+     */
+    private static boolean isVersionSeparator(char c)
+    {
+        switch (c) {
+        case ',': case '.': case ':': case '{': case '|': case '}': case '\u001B':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Chars not matched by '.' without DOTALL
+     */
+    private static boolean isLineTerminator(char c)
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Code point at the given index, not reaching beyond the end of the token
+     */
+    private static int codePointAt(String text, int index, int end)
+    {
+        char c = text.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < end
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            return Character.toCodePoint(c, text.charAt(index + 1));
+        }
+        return c;
+    }
+
+    private static boolean isAsciiDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * [,.:\\e{-}!?\\e{(}\\e{)}]\\p{IsAlphabetic}+
+     */
+    private static boolean isPunctuationWord(String text, int begin, int end)
+    {
+        if (end - begin < 2 || !isSplitChar(text.charAt(begin))) {
+            return false;
+        }
+        int i = begin + 1;
+        while (i < end) {
+            int codePoint = codePointAt(text, i, end);
+            if (!Character.isAlphabetic(codePoint)) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    /**
+     * ..*[,.:\\e{-}!?\\e{(}\\e{)}]..*
+     */
+    private static boolean hasInnerPunctuation(String text, int begin, int end)
+    {
+        boolean found = false;
+        for (int i = begin; i < end; i++) {
+            char c = text.charAt(i);
+            if (isLineTerminator(c)) {
+                return false;
+            }
+            if (i > begin && i < end - 1 && isSplitChar(c)) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * \\p{Punct}
+     */
+    private static boolean isPosixPunct(String text, int begin, int end)
+    {
+        return end - begin == 1 && POSIX_PUNCT.indexOf(text.charAt(begin)) >= 0;
+    }
+
+    /**
+     * .[0-9]+[,.:\\e{-}][0-9]+
+     */
+    private static boolean isVersionNumber(String text, int begin, int end)
+    {
+        if (begin >= end || isLineTerminator(text.charAt(begin))) {
+            return false;
+        }
+        int i = begin + Character.charCount(codePointAt(text, begin, end));
+        int digits = i;
+        while (i < end && isAsciiDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == digits || i >= end || !isVersionSeparator(text.charAt(i))) {
+            return false;
+        }
+        i++;
+        digits = i;
+        while (i < end && isAsciiDigit(text.charAt(i))) {
+            i++;
+        }
+        return i > digits && i == end;
+    }
+
+    /**
+     * Whether any single char matches \\p{Alnum}, i.e. is an ASCII letter or digit
+     */
+    private static boolean containsAlnum(String text, int begin, int end)
+    {
+        for (int i = begin; i < end; i++) {
+            char c = text.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isAsciiDigit(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Each punctuation char is a piece on its own, the chars in between form one piece.
+     */
+    private static int nextPieceEnd(String text, int start, int end)
+    {
+        if (isSplitChar(text.charAt(start))) {
+            return start + 1;
+        }
+        int i = start + 1;
+        while (i < end && !isSplitChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int[] ensureCapacity(int[] bounds, int capacity)
+    {
+        return capacity <= bounds.length ? bounds : Arrays.copyOf(bounds, 2 * capacity);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.ContentHash;
+import de.tudarmstadt.ukp.naacl2019.argannotation.io.StorageFormat;
+
+/**
+ * Incremental cache of the tokenization stage of {@link Step02DataAnnotator}. Each review is
+ * keyed by a hash of its document text and of the tokenizer model. The keys of the reviews
+ * written so far are kept in a manifest next to the TypeSystem.xml of the output folder, one
+ * "documentId TAB key" line per review. The manifest is append-only, the last line of a
+ * document is the valid one. When the manifest is loaded and at least half of its lines are
+ * superseded, it is rewritten with only the valid lines.
+ *
+ * A review does not have to be processed again, if its key is unchanged and its XMI still
+ * exists, either directly in the output folder or in its ASIN subfolder.
+ *
+ */
+public class TokenizationCache
+{
+    public static final String MANIFEST_NAME = "tokenization.manifest";
+
+    private final File outputDir;
+    private final String modelHash;
+    private final Map<String, String> keys = new HashMap<String, String>();
+
+    /**
+     * @param outputDir
+     *            the output folder of the XMI files, containing the manifest
+     * @param modelFile
+     *            the tokenizer model
+     * @throws IOException
+     *             I/O exception
+     */
+    public TokenizationCache(File outputDir, File modelFile)
+        throws IOException
+    {
+        this.outputDir = outputDir;
+        try (InputStream in = new FileInputStream(modelFile)) {
+            this.modelHash = hashModel(in);
+        }
+        File manifest = getManifest(outputDir);
+        if (manifest.exists()) {
+            int lines = 0;
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(manifest), "utf-8"))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        keys.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                    lines++;
+                }
+            }
+            if (lines >= 2 * keys.size() && lines > 0) {
+                compact(manifest);
+            }
+        }
+    }
+
+    /**
+     * @param documentId
+     *            the document ID (asin_reviewerID_unixReviewTime)
+     * @param documentText
+     *            the document text
+     * @return true, if the cached XMI (or binary CAS) of the document is still valid
+     */
+    public boolean isValid(String documentId, String documentText)
+    {
+        String key = keys.get(documentId);
+        if (key == null || !key.equals(key(documentText))) {
+            return false;
+        }
+        String fileName = documentId + StorageFormat.getIntermediateFormat().getExtension();
+        return new File(outputDir, fileName).exists()
+                || new File(new File(outputDir, documentId.split("_")[0]), fileName).exists();
+    }
+
+    /**
+     * @param documentText
+     *            the document text
+     * @return the key of the document text for the tokenizer model of this cache
+     */
+    public String key(String documentText)
+    {
+        return key(modelHash, documentText);
+    }
+
+    /**
+     * @param modelHash
+     *            the hash of the tokenizer model, see {@link #hashModel(InputStream)}
+     * @param documentText
+     *            the document text
+     * @return the key of the document text for the tokenizer model
+     */
+    public static String key(String modelHash, String documentText)
+    {
+        return ContentHash.hash(modelHash, documentText);
+    }
+
+    /**
+     * @param outputDir
+     *            the output folder of the XMI files
+     * @return the manifest file of the output folder
+     */
+    public static File getManifest(File outputDir)
+    {
+        return new File(outputDir, MANIFEST_NAME);
+    }
+
+    /**
+     * Appends the keys of the written documents to the manifest. Several pipelines may write to
+     * the same manifest, so appending is synchronized.
+     *
+     * @param manifest
+     *            the manifest file
+     * @param entries
+     *            document ID and key of each written document
+     * @throws IOException
+     *             I/O exception
+     */
+    public static synchronized void append(File manifest, List<String[]> entries)
+        throws IOException
+    {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(manifest, true), "utf-8"))) {
+            for (String[] entry : entries) {
+                writer.write(entry[0]);
+                writer.write("\t");
+                writer.write(entry[1]);
+                writer.write("\n");
+            }
+        }
+    }
+
+    /**
+     * @param in
+     *            the tokenizer model, not closed
+     * @return the hash of the model, part of the keys
+     * @throws IOException
+     *             I/O exception
+     */
+    public static String hashModel(InputStream in)
+        throws IOException
+    {
+        return ContentHash.hash(in);
+    }
+
+    /**
+     * Rewrites the manifest with one line per document. The new manifest is written next to it
+     * and moved over it, so an interrupted run leaves the old one intact.
+     */
+    private void compact(File manifest)
+        throws IOException
+    {
+        File compacted = new File(manifest.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(compacted), "utf-8"))) {
+            for (Map.Entry<String, String> entry : keys.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write("\t");
+                writer.write(entry.getValue());
+                writer.write("\n");
+            }
+        }
+        Files.move(compacted.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
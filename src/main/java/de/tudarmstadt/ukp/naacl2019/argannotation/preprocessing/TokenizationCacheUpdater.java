@@ -0,0 +1,121 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+
+/**
+ * Records the documents written by the preceding XmiWriter in the manifest of the
+ * {@link TokenizationCache}. Has to be the last engine of the pipeline, so only documents whose
+ * XMI has actually been written are recorded. The updater only appends to the manifest, it does
+ * not read it.
+ *
+ */
+public class TokenizationCacheUpdater
+    extends JCasAnnotator_ImplBase
+{
+    /**
+     * Output folder of the XMI files, containing the manifest
+     */
+    public static final String PARAM_OUTPUT_DIR = "outputDir";
+    @ConfigurationParameter(name = PARAM_OUTPUT_DIR, mandatory = true)
+    private File outputDir;
+
+    /**
+     * The tokenizer model used in the pipeline
+     */
+    public static final String PARAM_MODEL_FILE = "modelFile";
+    @ConfigurationParameter(name = PARAM_MODEL_FILE, mandatory = true)
+    private File modelFile;
+
+    /**
+     * Optional {@link TokenizationKeyResource}. If bound, the keys are computed with the shared
+     * resource instead of hashing PARAM_MODEL_FILE in every replica.
+     */
+    public static final String RES_CACHE_KEYS = "cacheKeys";
+    @ExternalResource(key = RES_CACHE_KEYS, mandatory = false)
+    private TokenizationKeyResource cacheKeys;
+
+    // entries are appended in batches; documents not recorded yet are just processed again
+    private static final int BATCH_SIZE = 100;
+
+    private List<String[]> entries = new ArrayList<String[]>();
+
+    @Override
+    public void initialize(UimaContext context)
+        throws ResourceInitializationException
+    {
+        super.initialize(context);
+        if (cacheKeys == null) {
+            try {
+                cacheKeys = new TokenizationKeyResource(modelFile);
+            }
+            catch (IOException e) {
+                throw new ResourceInitializationException(e);
+            }
+        }
+    }
+
+    @Override
+    public void process(JCas aJCas)
+        throws AnalysisEngineProcessException
+    {
+        entries.add(new String[] { DocumentMetaData.get(aJCas).getDocumentId(),
+                cacheKeys.key(aJCas.getDocumentText()) });
+        if (entries.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    @Override
+    public void collectionProcessComplete()
+        throws AnalysisEngineProcessException
+    {
+        flush();
+        super.collectionProcessComplete();
+    }
+
+    private void flush()
+        throws AnalysisEngineProcessException
+    {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            TokenizationCache.append(TokenizationCache.getManifest(outputDir), entries);
+        }
+        catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        entries.clear();
+    }
+}
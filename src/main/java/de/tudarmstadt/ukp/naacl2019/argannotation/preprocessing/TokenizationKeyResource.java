@@ -0,0 +1,83 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+
+/**
+ * Shared UIMA resource computing the keys of the {@link TokenizationCache} for a tokenizer model.
+ * The model is hashed once when the resource is loaded, so all {@link TokenizationCacheUpdater}
+ * replicas which share a resource manager use the same hash instead of each reading the model.
+ *
+ */
+public class TokenizationKeyResource
+    implements SharedResourceObject
+{
+    private String modelHash;
+
+    public TokenizationKeyResource()
+    {
+        // loaded by UIMA
+    }
+
+    /**
+     * Key provider for a single pipeline, without a resource manager.
+     *
+     * @param modelFile
+     *            the tokenizer model
+     * @throws IOException
+     *             I/O exception
+     */
+    public TokenizationKeyResource(File modelFile)
+        throws IOException
+    {
+        try (InputStream in = new FileInputStream(modelFile)) {
+            modelHash = TokenizationCache.hashModel(in);
+        }
+    }
+
+    @Override
+    public void load(DataResource aData)
+        throws ResourceInitializationException
+    {
+        try (InputStream in = aData.getInputStream()) {
+            modelHash = TokenizationCache.hashModel(in);
+        }
+        catch (IOException e) {
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    /**
+     * @param documentText
+     *            the document text
+     * @return the key of the document text for the tokenizer model
+     */
+    public String key(String documentText)
+    {
+        return TokenizationCache.key(modelHash, documentText);
+    }
+}
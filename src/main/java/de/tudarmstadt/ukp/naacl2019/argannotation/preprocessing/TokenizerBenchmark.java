@@ -0,0 +1,220 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.pipeline.JCasIterable;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * Checks and measures the punctuation splitting of {@link OpenNLPTokenizerAnnotator}.
+ *
+ * The documents of already tokenized XMI files (e.g. data/xmi_stripped) are tokenized again.
+ * The tokens of the {@link TokenSplitter} must be identical to the tokens stored in the files
+ * and to the tokens of the former regex based splitting. Afterwards, the throughput (tokens/sec)
+ * of both splitting implementations is measured on the openNLP tokens of the documents.
+ *
+ */
+public class TokenizerBenchmark
+{
+	@Option(name="-i",aliases = { "--input" },metaVar="dir",usage="folder with tokenized xmi files")
+	private File inputDir = new File("data/xmi_stripped");
+
+	@Option(name="-l",aliases = { "--language" },metaVar="file",usage="path to language model")
+	private String language = "/src/main/resources/openNLPModels/en-token.bin";
+
+	@Option(name="-r",aliases = { "--rounds" },metaVar="N",usage="number of measured rounds")
+	private int rounds = 5;
+
+	public void runBenchmark()
+			throws IOException, UIMAException
+	{
+		Tokenizer tokenizer = loadTokenizer();
+		List<String> ids = new ArrayList<String>();
+		List<String> texts = new ArrayList<String>();
+		List<int[]> expected = new ArrayList<int[]>();
+		for (JCas jcas : new JCasIterable(CollectionReaderFactory.createReaderDescription(
+				XmiReader.class, XmiReader.PARAM_SOURCE_LOCATION, inputDir,
+				XmiReader.PARAM_PATTERNS, "*.xmi"))) {
+			ids.add(DocumentMetaData.get(jcas).getDocumentId());
+			texts.add(jcas.getDocumentText());
+			List<Token> tokens = new ArrayList<Token>(JCasUtil.select(jcas, Token.class));
+			int[] bounds = new int[2 * tokens.size()];
+			for (int i = 0; i < tokens.size(); i++) {
+				bounds[2 * i] = tokens.get(i).getBegin();
+				bounds[2 * i + 1] = tokens.get(i).getEnd();
+			}
+			expected.add(bounds);
+		}
+		System.out.println("Loaded " + texts.size() + " documents from " + inputDir);
+
+		List<Span[]> spans = new ArrayList<Span[]>();
+		List<String[]> tokens = new ArrayList<String[]>();
+		int mismatches = 0;
+		long tokenCount = 0;
+		for (int d = 0; d < texts.size(); d++) {
+			String text = texts.get(d);
+			Span[] docSpans = tokenizer.tokenizePos(text);
+			spans.add(docSpans);
+			tokens.add(Span.spansToStrings(docSpans, text));
+			int[] split = TokenSplitter.split(text, docSpans);
+			int[] legacy = splitLegacy(text, tokens.get(d));
+			tokenCount += split.length / 2;
+			if (!Arrays.equals(split, expected.get(d)) || !Arrays.equals(split, legacy)) {
+				System.out.println("Tokens differ for " + ids.get(d) + ": "
+						+ (Arrays.equals(split, expected.get(d)) ? "" : "stored tokens ")
+						+ (Arrays.equals(split, legacy) ? "" : "regex splitting"));
+				mismatches++;
+			}
+		}
+		System.out.println(mismatches + " of " + texts.size() + " documents differ, "
+				+ tokenCount + " tokens");
+
+		for (int round = 1; round <= rounds; round++) {
+			long start = System.nanoTime();
+			for (int d = 0; d < texts.size(); d++) {
+				splitLegacy(texts.get(d), tokens.get(d));
+			}
+			long legacyTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int d = 0; d < texts.size(); d++) {
+				TokenSplitter.split(texts.get(d), spans.get(d));
+			}
+			long scanningTime = System.nanoTime() - start;
+
+			System.out.println("Round " + round + ": regex splitting "
+					+ tokensPerSecond(tokenCount, legacyTime) + " tokens/sec, char scanning "
+					+ tokensPerSecond(tokenCount, scanningTime) + " tokens/sec");
+		}
+	}
+
+	private Tokenizer loadTokenizer()
+			throws IOException
+	{
+		String workingPath = Paths.get("").toAbsolutePath().toString();
+		try (InputStream modelIn = new FileInputStream(workingPath+language)) {
+			return new TokenizerME(new TokenizerModel(modelIn));
+		}
+	}
+
+	/**
+	 * The splitting as done before the {@link TokenSplitter} was introduced
+	 */
+	private static int[] splitLegacy(String text, String[] tokens)
+	{
+		List<Integer> bounds = new ArrayList<Integer>();
+		int offset = 0;
+		for (String reviewToken : tokens) {
+			if (!checkValidTokenSplittingLegacy(reviewToken)) {
+				String[] tmpTokens = reviewToken.split("((?<=[,.:\\e{-}!?\\e{(}\\e{)}])|(?=[,.:\\e{-}!?\\e{(}\\e{)}]))");
+				String[] checkTokens = reviewToken.split("(?!^)");
+				boolean onlyPunctuations = true;
+				for(String checkTok : checkTokens){
+					if(checkTok.matches("\\p{Alnum}")) {
+						onlyPunctuations = false;
+					}
+				}
+				if(onlyPunctuations) {
+					tmpTokens = checkTokens;
+				}
+				for (String tmpReviewToken : tmpTokens) {
+					int start = text.indexOf(tmpReviewToken, offset);
+					int end = start + tmpReviewToken.length();
+					bounds.add(start);
+					bounds.add(end);
+					offset = end;
+				}
+				continue;
+			}
+			int start = text.indexOf(reviewToken, offset);
+			int end = start + reviewToken.length();
+			bounds.add(start);
+			bounds.add(end);
+			offset = end;
+		}
+		int[] result = new int[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	private static boolean checkValidTokenSplittingLegacy(String token){
+		if((token.matches("[,.:\\e{-}!?\\e{(}\\e{)}]\\p{IsAlphabetic}+") || token.matches("..*[,.:\\e{-}!?\\e{(}\\e{)}]..*"))&& !(token.matches("\\p{Punct}") || token.matches(".[0-9]+[,.:\\e{-}][0-9]+"))){
+			return false;
+		}
+		String[] checkTokens = token.split("(?!^)");
+		boolean onlyPunctuations = true;
+		for(String checkTok : checkTokens){
+			if(checkTok.matches("\\p{Alnum}")) {
+				onlyPunctuations = false;
+			}
+		}
+		return !onlyPunctuations;
+	}
+
+	private static long tokensPerSecond(long tokens, long nanos)
+	{
+		return Math.round(tokens / (nanos / 1e9));
+	}
+
+	public static void main(String[] args)
+			throws IOException, UIMAException
+	{
+		new TokenizerBenchmark().doMain(args);
+	}
+
+	private void doMain(String[] args) throws IOException, UIMAException {
+		CmdLineParser parser = new CmdLineParser(this);
+		try {
+            // parse the arguments.
+            parser.parseArgument(args);
+            runBenchmark();
+        } catch( CmdLineException e ) {
+            System.err.println(e.getMessage());
+            System.err.println("java "+this.getClass().getSimpleName()+" [options...] arguments...");
+            parser.printUsage(System.err);
+            System.err.println();
+            return;
+        }
+	}
+}
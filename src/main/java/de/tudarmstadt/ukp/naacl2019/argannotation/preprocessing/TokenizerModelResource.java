@@ -0,0 +1,57 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+
+import opennlp.tools.tokenize.TokenizerModel;
+
+/**
+ * Shared UIMA resource holding an openNLP {@link TokenizerModel}. The model is immutable, so a
+ * single instance can be used by all {@link OpenNLPTokenizerAnnotator} replicas which share a
+ * resource manager; each annotator still creates its own tokenizer on top of it.
+ *
+ */
+public class TokenizerModelResource
+    implements SharedResourceObject
+{
+    private TokenizerModel model;
+
+    @Override
+    public void load(DataResource aData)
+        throws ResourceInitializationException
+    {
+        try (InputStream modelIn = aData.getInputStream()) {
+            model = new TokenizerModel(modelIn);
+        }
+        catch (IOException e) {
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    public TokenizerModel getModel()
+    {
+        return model;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package de.tudarmstadt.ukp.naacl2019.argannotation.preprocessing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the n best reviews according to {@link Review#compareTo(Review)} in a bounded heap, so
+ * memory stays O(n) regardless of the number of reviews offered. Reviews that compare equal are
+ * kept in the order they were offered, which gives the same result as sorting all reviews with
+ * Collections.sort and taking the first n.
+ *
+ */
+public class TopReviewSelector
+{
+    private final int limit;
+    private long offered = 0;
+
+    // The root of the heap is the worst review kept so far
+    private final PriorityQueue<RankedReview> heap;
+
+    /**
+     * @param limit
+     *            maximum number of reviews to keep
+     */
+    public TopReviewSelector(int limit)
+    {
+        this.limit = limit;
+        this.heap = new PriorityQueue<RankedReview>(Math.max(1, Math.min(limit, 1024)),
+                Collections.reverseOrder(RANKING));
+    }
+
+    /**
+     * Offers a review. It is kept if fewer than n reviews are kept so far, or if it is better
+     * than the worst review kept.
+     *
+     * @param review
+     *            the review
+     */
+    public void offer(Review review)
+    {
+        if (limit <= 0) {
+            return;
+        }
+        RankedReview ranked = new RankedReview(review, offered++);
+        if (heap.size() < limit) {
+            heap.add(ranked);
+        }
+        else if (RANKING.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * @return the kept reviews, best first
+     */
+    public List<Review> getSortedReviews()
+    {
+        List<RankedReview> ranked = new ArrayList<RankedReview>(heap);
+        Collections.sort(ranked, RANKING);
+        List<Review> reviews = new ArrayList<Review>(ranked.size());
+        for (RankedReview r : ranked) {
+            reviews.add(r.review);
+        }
+        return reviews;
+    }
+
+    /**
+     * Best reviews first; ties are broken by the order in which the reviews were offered.
+     */
+    private static final Comparator<RankedReview> RANKING = new Comparator<RankedReview>()
+    {
+        @Override
+        public int compare(RankedReview a, RankedReview b)
+        {
+            int result = a.review.compareTo(b.review);
+            if (result == 0) {
+                result = Long.compare(a.position, b.position);
+            }
+            return result;
+        }
+    };
+
+    private static class RankedReview
+    {
+        final Review review;
+        final long position;
+
+        RankedReview(Review review, long position)
+        {
+            this.review = review;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+* Copyright 2019
+* Ubiquitous Knowledge Processing (UKP) Lab
+* Technische Universität Darmstadt
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*      http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+// Packed HITs: each review is the page of a single HIT in an iframe. The answers of a review
+// are copied into this form, prefixed with the prefix of its HIT (e.g. item0.tokens), when
+// the Submit button of the review is pressed. The HIT is submitted when all reviews are done.
+
+$(document).ready(function() {
+    $('#assignmentId').val(gup('assignmentId'));
+    $('iframe.packed').each(function() {
+        var frame = this;
+        $(frame).on('load', function() {
+            connect(frame);
+        });
+        // the pages of the reviews need the assignmentId etc. as well
+        frame.src = $(frame).data('src') + window.location.search;
+    });
+});
+
+function connect(frame)
+{
+    var page = frame.contentWindow.document;
+    resize(frame);
+    $(page).on('click mouseup keyup', function() {
+        resize(frame);
+    });
+    $(page).find('#mturk_form').on('submit', function(e) {
+        e.preventDefault();
+        store($(frame).data('prefix'), this);
+        return false;
+    });
+}
+
+function resize(frame)
+{
+    frame.style.height = (frame.contentWindow.document.body.scrollHeight + 20) + 'px';
+}
+
+function store(prefix, innerForm)
+{
+    var form = $('#mturk_form');
+    form.find('input.packed_answer[data-prefix="' + prefix + '"]').remove();
+    $(innerForm).find('input[name], select[name], textarea[name]').each(function() {
+        var name = this.name;
+        if (name == 'assignmentId' || this.disabled) {
+            return;
+        }
+        if ((this.type == 'radio' || this.type == 'checkbox') && !this.checked) {
+            return;
+        }
+        $('<input type="hidden" class="packed_answer">')
+            .attr('data-prefix', prefix)
+            .attr('name', prefix + '.' + name)
+            .val($(this).val())
+            .appendTo(form);
+    });
+    $('#' + prefix + '_done').show();
+
+    var done = $('.packed_done:visible').length;
+    if (done == $('iframe.packed').length && gup('assignmentId') != 'ASSIGNMENT_ID_NOT_AVAILABLE') {
+        $('#button_submit').prop('disabled', false);
+    }
+    else {
+        var next = $('iframe.packed').filter(function() {
+            return !$('#' + $(this).data('prefix') + '_done').is(':visible');
+        }).first();
+        if (next.length > 0) {
+            $('html, body').animate({ scrollTop: next.offset().top - 60 });
+        }
+    }
+}
+
+function gup( name )
+{
+    var regexS = "[\\?&amp;]"+name+"=([^&amp;#]*)";
+    var regex = new RegExp( regexS );
+    var tmpURL = window.location.href;
+    var results = regex.exec( tmpURL );
+    if( results == null )
+        return "";
+    else
+        return results[1];
+}